@@ -1,11 +1,13 @@
 package com.facebook.controller;
 
 import com.facebook.annotation.CurrentUser;
+import com.facebook.dto.FriendRecommendationDto;
 import com.facebook.dto.UserAuthDto;
 import com.facebook.dto.UserShortDto;
 import com.facebook.enums.FriendStatus;
 import com.facebook.openapi.ErrorResponseWrapper;
 import com.facebook.openapi.VoidSuccessResponseWrapper;
+import com.facebook.service.FriendRecommendationService;
 import com.facebook.service.FriendService;
 import com.facebook.util.ResponseHandler;
 import io.swagger.v3.oas.annotations.Operation;
@@ -29,6 +31,7 @@ import java.util.Objects;
 @Tag(name = "Friends management API", description = "Endpoints for friends management")
 public class FriendController {
     private final FriendService friendService;
+    private final FriendRecommendationService friendRecommendationService;
 
     @Operation(
             summary = "Add friend",
@@ -337,14 +340,14 @@ public class FriendController {
 
     @Operation(
             summary = "Get recommended friends",
-            description = "Get a list of recommended friends for the user",
+            description = "Get friends of the user's friends, ranked by mutual friends, padded with the newest users",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Recommended friends retrieved successfully",
                             content = @Content(
                                     mediaType = "application/json",
-                                    schema = @Schema(type = "array", implementation = UserShortDto.class)
+                                    schema = @Schema(type = "array", implementation = FriendRecommendationDto.class)
                             )
                     ),
                     @ApiResponse(
@@ -368,7 +371,7 @@ public class FriendController {
                 HttpStatus.OK,
                 false,
                 "Recommended friends retrieved successfully",
-                friendService.getRecommendedFriends(userId)
+                friendRecommendationService.getRecommendedFriends(userId)
         );
     }
 }
@@ -3,6 +3,7 @@ package com.facebook.controller;
 import com.facebook.annotation.CurrentUser;
 import com.facebook.dto.*;
 import com.facebook.enums.GroupJoinStatus;
+import com.facebook.enums.PageCount;
 import com.facebook.openapi.*;
 import com.facebook.service.GroupService;
 import com.facebook.util.ResponseHandler;
@@ -15,7 +16,6 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -74,7 +74,8 @@ public class GroupController {
             description = "Retrieve all groups",
             parameters = {
                     @Parameter(name = "page", description = "Page number for pagination", required = false, example = "0"),
-                    @Parameter(name = "size", description = "Number of groups per page", required = false, example = "10")
+                    @Parameter(name = "size", description = "Number of groups per page", required = false, example = "10"),
+                    @Parameter(name = "count", description = "How totals are computed: exact (default), approximate (cached count refreshed in the background) or none (totals are -1, only last is known)")
             },
             responses = {
                     @ApiResponse(
@@ -101,13 +102,13 @@ public class GroupController {
     public ResponseEntity<?> getAllGroups(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "count", defaultValue = "exact") String count,
             @Parameter(hidden = true)
             @CurrentUser UserAuthDto currentUser
     ) {
         long userId = currentUser.getId();
 
-        Page<GroupResponse> groups = groupService.getAll(page, size, userId);
-        PageResponseDto<GroupResponse> response = new PageResponseDto<>(groups);
+        PageResponseDto<GroupResponse> response = groupService.getAll(page, size, userId, PageCount.fromParam(count));
 
         return ResponseHandler.generateResponse(
                 HttpStatus.OK,
@@ -2,6 +2,7 @@ package com.facebook.controller;
 
 import com.facebook.annotation.CurrentUser;
 import com.facebook.dto.*;
+import com.facebook.enums.PageCount;
 import com.facebook.service.MessageService;
 import com.facebook.util.ResponseHandler;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,7 +13,6 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -57,7 +57,8 @@ public class MessageController {
             parameters = {
                     @Parameter(name = "friendId", description = "ID of the friend to retrieve messages with", required = true),
                     @Parameter(name = "page", description = "Page number for pagination", required = false, example = "0"),
-                    @Parameter(name = "size", description = "Number of messages per page", required = false, example = "20")
+                    @Parameter(name = "size", description = "Number of messages per page", required = false, example = "20"),
+                    @Parameter(name = "count", description = "How totals are computed: exact (default), approximate (cached count refreshed in the background) or none (totals are -1, only last is known)")
             },
             responses = {
                     @ApiResponse(
@@ -79,10 +80,11 @@ public class MessageController {
             @PathVariable Long friendId,
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "count", defaultValue = "exact") String count,
             @Parameter(hidden = true) @CurrentUser UserAuthDto currentUser
     ) {
-        Page<MessageResponse> messages = messageService.getMessagesWithFriend(currentUser.getId(), friendId, page, size);
-        PageResponseDto<MessageResponse> response = new PageResponseDto<>(messages);
+        PageResponseDto<MessageResponse> response = messageService.getMessagesWithFriend(
+                currentUser.getId(), friendId, page, size, PageCount.fromParam(count));
 
         return ResponseHandler.generateResponse(
                 HttpStatus.OK,
@@ -2,6 +2,7 @@ package com.facebook.controller;
 
 import com.facebook.annotation.CurrentUser;
 import com.facebook.dto.*;
+import com.facebook.enums.PageCount;
 import com.facebook.openapi.CommentResponseWrapper;
 import com.facebook.openapi.ErrorResponseWrapper;
 import com.facebook.openapi.NotFoundResponseWrapper;
@@ -16,9 +17,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -293,14 +298,44 @@ public class PostController {
 
     @Operation(
             summary = "Get comments for a post",
-            description = "Retrieves all comments for a post by ID",
+            description = "Retrieves a page of comments for a post by ID, newest first",
+            parameters = {
+                    @Parameter(name = "postId", description = "ID of the post"),
+                    @Parameter(name = "cursor", description = "Cursor from the previous page (omit for the first page)"),
+                    @Parameter(name = "size", description = "Number of comments per page (default is 20)")
+            },
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Comments retrieved successfully",
                             content = @Content(
                                     mediaType = "application/json",
-                                    schema = @Schema(type = "array", implementation = CommentResponseDto.class)
+                                    schema = @Schema(type = "object", example = """
+                                                {
+                                                  "error": false,
+                                                  "message": "Comments retrieved successfully",
+                                                  "data": {
+                                                    "content": [
+                                                      {
+                                                        "id": 12,
+                                                        "user": {
+                                                          "id": 7,
+                                                          "firstName": "Jane",
+                                                          "lastName": "Doe",
+                                                          "avatarUrl": "https://example.com/avatar.jpg",
+                                                          "birthdate": "1995-04-12"
+                                                        },
+                                                        "text": "Nice!",
+                                                        "createdAt": "2024-05-01T12:00:00"
+                                                      }
+                                                    ],
+                                                    "size": 20,
+                                                    "nextCursor": "MjAyNC0wNS0wMVQxMjowMHwxMg",
+                                                    "hasNext": true,
+                                                    "headCursor": null
+                                                  }
+                                                }
+                                            """)
                             )
                     ),
                     @ApiResponse(
@@ -317,9 +352,11 @@ public class PostController {
     )
     @GetMapping("/{postId}/comments")
     public ResponseEntity<?> getComments(
-            @PathVariable Long postId
+            @PathVariable Long postId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size
     ) {
-        List<CommentResponseDto> comments = commentService.getPostComments(postId);
+        CursorPageResponseDto<CommentResponseDto> comments = commentService.getPostComments(postId, cursor, size);
 
         return ResponseHandler.generateResponse(
                 HttpStatus.OK,
@@ -376,7 +413,8 @@ public class PostController {
             description = "Retrieve all posts and reposts made by current user",
             parameters = {
                     @Parameter(name = "page", description = "Page number (default is 0)"),
-                    @Parameter(name = "size", description = "Number of users per page (default is 20)")
+                    @Parameter(name = "size", description = "Number of users per page (default is 20)"),
+                    @Parameter(name = "count", description = "How totals are computed: exact (default), approximate (cached count refreshed in the background) or none (totals are -1, only last is known)")
             },
             responses = {
                     @ApiResponse(
@@ -432,10 +470,11 @@ public class PostController {
     public ResponseEntity<?> getCurrentUserPosts(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "count", defaultValue = "exact") String count,
             @Parameter(hidden = true) @CurrentUser UserAuthDto currentUser
     ) {
         long userId = currentUser.getId();
-        PageResponseDto<PostResponseDto> posts = postService.getUserPosts(userId, page, size);
+        PageResponseDto<PostResponseDto> posts = postService.getUserPosts(userId, page, size, PageCount.fromParam(count));
 
         return ResponseHandler.generateResponse(
                 HttpStatus.OK,
@@ -451,7 +490,8 @@ public class PostController {
             parameters = {
                     @Parameter(name = "userId", description = "ID of the user whose posts to retrieve"),
                     @Parameter(name = "page", description = "Page number (default is 0)"),
-                    @Parameter(name = "size", description = "Number of users per page (default is 20)")
+                    @Parameter(name = "size", description = "Number of users per page (default is 20)"),
+                    @Parameter(name = "count", description = "How totals are computed: exact (default), approximate (cached count refreshed in the background) or none (totals are -1, only last is known)")
             },
             responses = {
                     @ApiResponse(
@@ -507,9 +547,10 @@ public class PostController {
     public ResponseEntity<?> getUserPosts(
             @PathVariable long userId,
             @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "20") int size
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "count", defaultValue = "exact") String count
     ) {
-        PageResponseDto<PostResponseDto> posts = postService.getUserPosts(userId, page, size);
+        PageResponseDto<PostResponseDto> posts = postService.getUserPosts(userId, page, size, PageCount.fromParam(count));
 
         return ResponseHandler.generateResponse(
                 HttpStatus.OK,
@@ -519,12 +560,136 @@ public class PostController {
         );
     }
 
+    @Operation(
+            summary = "Export user posts and reposts by user ID",
+            description = "Streams the whole post history of certain user as NDJSON, one post per line, newest first",
+            parameters = {
+                    @Parameter(name = "userId", description = "ID of the user whose posts to export")
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Posts streamed successfully",
+                            content = @Content(
+                                    mediaType = "application/x-ndjson",
+                                    schema = @Schema(
+                                            type = "string",
+                                            example = """
+                                                        {"id":2,"user":{"id":1,"firstName":"John","lastName":"Doe"},"text":"Second post","images":[],"createdDate":"2023-10-02T12:00:00","likesCount":1,"commentsCount":0,"repostsCount":0}
+                                                        {"id":1,"user":{"id":1,"firstName":"John","lastName":"Doe"},"text":"Hello World!","images":["http://example.com/image.jpg"],"createdDate":"2023-10-01T12:00:00","likesCount":10,"commentsCount":5,"repostsCount":2}
+                                                    """)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "User not found",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = NotFoundResponseWrapper.class
+                                    )
+                            )
+                    )
+            }
+    )
+    @GetMapping("/user/{userId}/export")
+    public ResponseEntity<StreamingResponseBody> exportUserPosts(@PathVariable long userId) {
+        StreamingResponseBody posts = postService.exportUserPosts(userId);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"posts-" + userId + ".ndjson\"")
+                .body(posts);
+    }
+
+    @Operation(
+            summary = "Get trending posts",
+            description = "Retrieve the posts with the most likes, comments and reposts lately, "
+                    + "across the site or in a group",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Trending posts retrieved successfully",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(type = "object", example = """
+                                                {
+                                                  "error": false,
+                                                  "message": "Trending posts",
+                                                  "data": [
+                                                    {
+                                                      "id": 42,
+                                                      "user": {
+                                                        "id": 7,
+                                                        "firstName": "Jane",
+                                                        "lastName": "Doe",
+                                                        "avatarUrl": "https://example.com/avatar.jpg",
+                                                        "birthdate": "1995-04-12"
+                                                      },
+                                                      "text": "Hello world",
+                                                      "images": [],
+                                                      "createdDate": "2024-05-01T12:00:00",
+                                                      "likesCount": 120,
+                                                      "commentsCount": 35,
+                                                      "repostsCount": 12,
+                                                      "likedByMe": false,
+                                                      "repostedByMe": false
+                                                    }
+                                                  ]
+                                                }
+                                            """)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid size",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(type = "object", example = """
+                                                {
+                                                  "error": true,
+                                                  "message": "Size must be between 1 and 50",
+                                                  "data": null
+                                                }
+                                            """)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Group not found or private",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(type = "object", example = """
+                                                {
+                                                  "error": true,
+                                                  "message": "Group isn't found",
+                                                  "data": null
+                                                }
+                                            """)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/trending")
+    public ResponseEntity<?> getTrendingPosts(
+            @RequestParam(value = "groupId", required = false) Long groupId,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @Parameter(hidden = true) @CurrentUser UserAuthDto currentUser
+    ) {
+        List<PostResponseDto> posts = postService.getTrendingPosts(currentUser.getId(), groupId, size);
+
+        return ResponseHandler.generateResponse(HttpStatus.OK, false, "Trending posts", posts);
+    }
+
     @Operation(
             summary = "Get current user and his friends posts",
             description = "Retrieve all posts made by current user and his friends",
             parameters = {
-                    @Parameter(name = "page", description = "Page number (default is 0)"),
-                    @Parameter(name = "size", description = "Number of users per page (default is 20)")
+                    @Parameter(name = "cursor", description = "Cursor from the previous page (omit for the first page)"),
+                    @Parameter(name = "since", description = "Head cursor the client already has, returns only newer posts and counters of known ones"),
+                    @Parameter(name = "order", description = "chronological (default) or ranked by engagement and affinity to the author, since is only supported for chronological"),
+                    @Parameter(name = "size", description = "Number of posts per page (default is 20)"),
+                    @Parameter(name = "comments", description = "Newest comments to include with each post as latestComments, 0 to 10 (default is 0)")
             },
             responses = {
                     @ApiResponse(
@@ -552,18 +717,24 @@ public class PostController {
                                                                 "createdDate": "2023-10-01T12:00:00Z",
                                                                 "likesCount": 10,
                                                                 "commentsCount": 5,
-                                                                "repostsCount": 2
+                                                                "repostsCount": 2,
+                                                                "likedByMe": true,
+                                                                "repostedByMe": false
                                                             }
                                                           ],
-                                                            "totalElements": 1,
-                                                            "totalPages": 1,
-                                                            "size": 10,
-                                                            "number": 0
+                                                            "size": 20,
+                                                            "nextCursor": "MjAyMy0xMC0wMVQxMjowMHwx",
+                                                            "hasNext": true,
+                                                            "headCursor": "MjAyMy0xMC0wMVQxMjowMHwx"
                                                           }
                                                         }
                                                     """)
                             )
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Nothing changed in the feed since the ETag sent in If-None-Match"
+                    ),
                     @ApiResponse(
                             responseCode = "404",
                             description = "User not found",
@@ -578,19 +749,15 @@ public class PostController {
     )
     @GetMapping("/my-posts/with-friends")
     public ResponseEntity<?> getCurrentUserPostsWithFriends(
-            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "since", required = false) String since,
+            @RequestParam(value = "order", defaultValue = "chronological") String order,
             @RequestParam(value = "size", defaultValue = "20") int size,
-            @Parameter(hidden = true) @CurrentUser UserAuthDto currentUser
+            @RequestParam(value = "comments", defaultValue = "0") int comments,
+            @Parameter(hidden = true) @CurrentUser UserAuthDto currentUser,
+            @Parameter(hidden = true) WebRequest webRequest
     ) {
-        long userId = currentUser.getId();
-        PageResponseDto<PostResponseDto> posts = postService.getUserAndFriendsPosts(userId, page, size);
-
-        return ResponseHandler.generateResponse(
-                HttpStatus.OK,
-                false,
-                "Posts retrieved successfully",
-                posts
-        );
+        return getFeed(currentUser.getId(), currentUser.getId(), cursor, since, order, size, comments, webRequest);
     }
 
     @Operation(
@@ -598,8 +765,11 @@ public class PostController {
             description = "Retrieve all posts made by certain user and his friends",
             parameters = {
                     @Parameter(name = "userId", description = "ID of the user whose posts to retrieve"),
-                    @Parameter(name = "page", description = "Page number (default is 0)"),
-                    @Parameter(name = "size", description = "Number of users per page (default is 20)")
+                    @Parameter(name = "cursor", description = "Cursor from the previous page (omit for the first page)"),
+                    @Parameter(name = "since", description = "Head cursor the client already has, returns only newer posts and counters of known ones"),
+                    @Parameter(name = "order", description = "chronological (default) or ranked by engagement and affinity to the author, since is only supported for chronological"),
+                    @Parameter(name = "size", description = "Number of posts per page (default is 20)"),
+                    @Parameter(name = "comments", description = "Newest comments to include with each post as latestComments, 0 to 10 (default is 0)")
             },
             responses = {
                     @ApiResponse(
@@ -627,18 +797,24 @@ public class PostController {
                                                                 "createdDate": "2023-10-01T12:00:00Z",
                                                                 "likesCount": 10,
                                                                 "commentsCount": 5,
-                                                                "repostsCount": 2
+                                                                "repostsCount": 2,
+                                                                "likedByMe": true,
+                                                                "repostedByMe": false
                                                             }
                                                           ],
-                                                            "totalElements": 1,
-                                                            "totalPages": 1,
-                                                            "size": 10,
-                                                            "number": 0
+                                                            "size": 20,
+                                                            "nextCursor": "MjAyMy0xMC0wMVQxMjowMHwx",
+                                                            "hasNext": true,
+                                                            "headCursor": "MjAyMy0xMC0wMVQxMjowMHwx"
                                                           }
                                                         }
                                                     """)
                             )
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Nothing changed in the feed since the ETag sent in If-None-Match"
+                    ),
                     @ApiResponse(
                             responseCode = "404",
                             description = "User not found",
@@ -654,10 +830,55 @@ public class PostController {
     @GetMapping("/user/{userId}/with-friends")
     public ResponseEntity<?> getUserPostsWithFriends(
             @PathVariable long userId,
-            @RequestParam(value = "page", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "20") int size
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "since", required = false) String since,
+            @RequestParam(value = "order", defaultValue = "chronological") String order,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "comments", defaultValue = "0") int comments,
+            @Parameter(hidden = true) @CurrentUser UserAuthDto currentUser,
+            @Parameter(hidden = true) WebRequest webRequest
+    ) {
+        return getFeed(userId, currentUser.getId(), cursor, since, order, size, comments, webRequest);
+    }
+
+    private ResponseEntity<?> getFeed(
+            long userId,
+            long viewerId,
+            String cursor,
+            String since,
+            String order,
+            int size,
+            int comments,
+            WebRequest webRequest
     ) {
-        PageResponseDto<PostResponseDto> posts = postService.getUserAndFriendsPosts(userId, page, size);
+        boolean ranked = "ranked".equalsIgnoreCase(order);
+        if (!ranked && !"chronological".equalsIgnoreCase(order)) {
+            throw new IllegalArgumentException("Unknown feed order: " + order);
+        }
+
+        if (ranked && since != null) {
+            throw new IllegalArgumentException("since is only supported for the chronological feed");
+        }
+
+        // The feed version changes on every write shown in the feed: posts and their edits, comments, likes, reposts,
+        // profile edits of the authors and friendships. So polling gets a 304 without any feed query.
+        // The viewer's own version also changes with their likes and reposts, shown as likedByMe and repostedByMe
+        String version = userId == viewerId
+                ? String.valueOf(postService.getFeedVersion(userId))
+                : postService.getFeedVersion(userId) + "-" + postService.getFeedVersion(viewerId);
+        String eTag = "\"" + version + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        Object posts;
+        if (ranked) {
+            posts = postService.getRankedUserAndFriendsPosts(userId, viewerId, cursor, size, comments);
+        } else if (since != null) {
+            posts = postService.getUserAndFriendsPostsSince(userId, viewerId, since, size, comments);
+        } else {
+            posts = postService.getUserAndFriendsPosts(userId, viewerId, cursor, size, comments);
+        }
 
         return ResponseHandler.generateResponse(
                 HttpStatus.OK,
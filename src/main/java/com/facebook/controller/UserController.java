@@ -2,6 +2,7 @@ package com.facebook.controller;
 
 import com.facebook.annotation.CurrentUser;
 import com.facebook.dto.*;
+import com.facebook.enums.PageCount;
 import com.facebook.openapi.ErrorResponseWrapper;
 import com.facebook.openapi.NotFoundResponseWrapper;
 import com.facebook.openapi.UserDetailsWrapper;
@@ -17,7 +18,6 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -120,6 +120,86 @@ public class UserController {
         );
     }
 
+    @Operation(
+            summary = "Get mutual friends",
+            description = "Returns a page of the friends the user shares with the current user, totalElements is their count",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Mutual friends retrieved successfully",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = PageResponseDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "User not found",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = NotFoundResponseWrapper.class
+                                    )
+                            )
+                    )
+            }
+    )
+    @GetMapping("/{userId}/mutual-friends")
+    public ResponseEntity<?> getMutualFriends(
+            @PathVariable long userId,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @Parameter(hidden = true)
+            @CurrentUser UserAuthDto currentUser
+    ) {
+        return ResponseHandler.generateResponse(
+                HttpStatus.OK,
+                false,
+                "Mutual friends retrieved successfully",
+                userService.getMutualFriends(userId, currentUser.getId(), page, size)
+        );
+    }
+
+    @Operation(
+            summary = "Get friends",
+            description = "Returns a page of the user's friends the current user does not share, totalElements is their count",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Friends retrieved successfully",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = PageResponseDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "User not found",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(
+                                            implementation = NotFoundResponseWrapper.class
+                                    )
+                            )
+                    )
+            }
+    )
+    @GetMapping("/{userId}/friends")
+    public ResponseEntity<?> getFriends(
+            @PathVariable long userId,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @Parameter(hidden = true)
+            @CurrentUser UserAuthDto currentUser
+    ) {
+        return ResponseHandler.generateResponse(
+                HttpStatus.OK,
+                false,
+                "Friends retrieved successfully",
+                userService.getOtherFriends(userId, currentUser.getId(), page, size)
+        );
+    }
+
     @Operation(
             summary = "Update user date",
             description = "Update details of a user by ID",
@@ -178,7 +258,8 @@ public class UserController {
             description = "Retrieve a paginated list of all users except the current user",
             parameters = {
                     @Parameter(name = "page", description = "Page number (default is 0)"),
-                    @Parameter(name = "size", description = "Number of users per page (default is 10)")
+                    @Parameter(name = "size", description = "Number of users per page (default is 10)"),
+                    @Parameter(name = "count", description = "How totals are computed: exact (default), approximate (cached count refreshed in the background) or none (totals are -1, only last is known)")
             },
             responses = {
                     @ApiResponse(
@@ -215,11 +296,12 @@ public class UserController {
     public ResponseEntity<?> getAllUsers(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "count", defaultValue = "exact") String count,
             @Parameter(hidden = true)
             @CurrentUser UserAuthDto currentUser
     ) {
-        Page<UserShortDto> users = userService.getAllUsersExceptCurrent(currentUser.getId(), page, size);
-        PageResponseDto<UserShortDto> response = new PageResponseDto<>(users);
+        PageResponseDto<UserShortDto> response =
+                userService.getAllUsersExceptCurrent(currentUser.getId(), page, size, PageCount.fromParam(count));
 
         return ResponseHandler.generateResponse(
                 HttpStatus.OK,
@@ -0,0 +1,20 @@
+package com.facebook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedDeltaResponseDto {
+    // Posts newer than the client's head, newest first
+    private List<PostResponseDto> newPosts;
+    // Current counters of the top posts the client already has
+    private List<PostCountersDto> counters;
+    private String headCursor;
+    // More new posts than fit in one page, the client should reload the feed
+    private boolean truncated;
+}
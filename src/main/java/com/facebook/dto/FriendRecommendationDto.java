@@ -0,0 +1,20 @@
+package com.facebook.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+// A recommended user, equal to other short profiles of the same user
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString(callSuper = true)
+public class FriendRecommendationDto extends UserShortDto {
+    private int mutualFriendsCount;
+
+    public FriendRecommendationDto(UserShortDto user, int mutualFriendsCount) {
+        super(user.getId(), user.getFirstName(), user.getLastName(), user.getAvatarUrl(), user.getBirthdate());
+        this.mutualFriendsCount = mutualFriendsCount;
+    }
+}
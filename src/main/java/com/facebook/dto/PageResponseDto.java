@@ -1,21 +1,26 @@
 package com.facebook.dto;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
 @Data
 @NoArgsConstructor
 public class PageResponseDto<T> {
+    // Total of a page fetched without counting
+    public static final int UNCOUNTED = -1;
+
     private List<T> content;
     private int number;
     private int size;
     private long totalElements;
     private int totalPages;
     private boolean last;
+    // Totals come from a cached count and may lag behind the content
+    private boolean approximate;
 
     public PageResponseDto(Page<T> page) {
         this.content = page.getContent();
@@ -25,4 +30,20 @@ public class PageResponseDto<T> {
         this.totalPages = page.getTotalPages();
         this.last = page.isLast();
     }
+
+    public PageResponseDto(Slice<T> slice) {
+        this.content = slice.getContent();
+        this.number = slice.getNumber();
+        this.size = slice.getSize();
+        this.totalElements = UNCOUNTED;
+        this.totalPages = UNCOUNTED;
+        this.last = slice.isLast();
+    }
+
+    public PageResponseDto(Slice<T> slice, long approximateTotal) {
+        this(slice);
+        this.totalElements = approximateTotal;
+        this.totalPages = (int) Math.ceil((double) approximateTotal / slice.getSize());
+        this.approximate = true;
+    }
 }
@@ -0,0 +1,15 @@
+package com.facebook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostCountersDto {
+    private Long id;
+    private int likesCount;
+    private int commentsCount;
+    private int repostsCount;
+}
@@ -3,6 +3,7 @@ package com.facebook.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.With;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -20,4 +21,25 @@ public class PostResponseDto {
     private int likesCount;
     private int commentsCount;
     private int repostsCount;
-}
\ No newline at end of file
+    // State of the current user, set on copies so cached posts are shared between users
+    @With
+    private boolean likedByMe;
+    @With
+    private boolean repostedByMe;
+    // Newest comments, only when the page is requested with previews
+    @With
+    private List<CommentResponseDto> latestComments = new ArrayList<>();
+
+    public PostResponseDto(
+            Long id,
+            UserShortDto user,
+            String text,
+            List<String> images,
+            LocalDateTime createdDate,
+            int likesCount,
+            int commentsCount,
+            int repostsCount
+    ) {
+        this(id, user, text, images, createdDate, likesCount, commentsCount, repostsCount, false, false, new ArrayList<>());
+    }
+}
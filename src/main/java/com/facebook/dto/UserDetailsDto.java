@@ -22,8 +22,11 @@ public class UserDetailsDto {
     private String headerPhotoUrl;
     private String homeCity;
     private String currentCity;
+    // First pages of the friends, the rest are paged by the friends and mutual friends endpoints
     private List<UserShortDto> friends = new ArrayList<>();
     private List<UserShortDto> friendsRequests = new ArrayList<>();
     private List<UserShortDto> mutualFriends = new ArrayList<>();
+    private int mutualFriendsCount;
+    private int friendsCount;
     private Date createdDate;
 }
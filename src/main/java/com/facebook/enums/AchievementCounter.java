@@ -0,0 +1,33 @@
+package com.facebook.enums;
+
+import lombok.Getter;
+
+/**
+ * Counters that achievement rules are evaluated against. The scope tells where a counter is read from,
+ * so a batch of events reads each source once.
+ */
+@Getter
+public enum AchievementCounter {
+    POSTS(Scope.USER_STATS),
+    POSTS_WITH_IMAGES(Scope.USER_STATS),
+    COMMENTS(Scope.USER_STATS),
+    LIKES_RECEIVED(Scope.USER_STATS),
+    // Filled fields of the profile, out of the 8 the profile form has
+    PROFILE_FIELDS(Scope.PROFILE),
+    POST_LIKES(Scope.POST);
+
+    private final Scope scope;
+
+    AchievementCounter(Scope scope) {
+        this.scope = scope;
+    }
+
+    public enum Scope {
+        // The user's row in user_stats
+        USER_STATS,
+        // The user's profile
+        PROFILE,
+        // The post the event is about
+        POST
+    }
+}
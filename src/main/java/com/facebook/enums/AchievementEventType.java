@@ -0,0 +1,20 @@
+package com.facebook.enums;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public enum AchievementEventType {
+    POST_CREATED(AchievementCounter.POSTS, AchievementCounter.POSTS_WITH_IMAGES),
+    POST_LIKED(AchievementCounter.POST_LIKES, AchievementCounter.LIKES_RECEIVED),
+    COMMENT_ADDED(AchievementCounter.COMMENTS),
+    PROFILE_UPDATED(AchievementCounter.PROFILE_FIELDS);
+
+    // Counters the event changes, only rules over them are evaluated for it
+    private final List<AchievementCounter> counters;
+
+    AchievementEventType(AchievementCounter... counters) {
+        this.counters = List.of(counters);
+    }
+}
@@ -1,22 +1,25 @@
 package com.facebook.enums;
 
+import com.facebook.util.AchievementRule;
+import lombok.Getter;
+
 public enum Achievements {
     SWEET_SIGNED_IN( "Sweet & Signed In"),
-    PINK_PROFILE( "Pink Profile"),
+    PINK_PROFILE( "Pink Profile", AchievementRule.atLeast(AchievementCounter.PROFILE_FIELDS, 8)),
     SUGAR_RUSH( "Sugar Rush"),
-    YOU_ARE_INVITED( "You're invited"),
-    BUZZ_STARTED( "Buzz Started"),
-    FIRST_HEARTBEAT( "First Heartbeat"),
-    VIBE_CREATOR( "Vibe Creator"),
-    COMMENT_KING( "Comment King"),
+    YOU_ARE_INVITED( "You are Invited!"),
+    BUZZ_STARTED( "Buzz Started", AchievementRule.atLeast(AchievementCounter.POSTS, 1)),
+    FIRST_HEARTBEAT( "First Heartbeat", AchievementRule.atLeast(AchievementCounter.POST_LIKES, 1)),
+    VIBE_CREATOR( "Vibe Creator", AchievementRule.atLeast(AchievementCounter.POST_LIKES, 10)),
+    COMMENT_KING( "Comment King", AchievementRule.atLeast(AchievementCounter.COMMENTS, 25)),
     SOFT_SUPPORTER( "Soft Supporter"),
     TAG_ME_LATER( "Tag Me Later"),
     SWEET_TALKER( "Sweet Talker"),
-    AESTHETIC_DROP( "Aesthetic Drop"),
+    AESTHETIC_DROP( "Aesthetic Drop", AchievementRule.atLeast(AchievementCounter.POSTS_WITH_IMAGES, 5)),
     MAIN_CHARACTER_ENERGY( "Main Character Energy"),
     WHIMSICAL_WONDER( "Whimsical Wonder"),
     KIND_SOUL( "Kind Soul"),
-    BUZZLIGHT_STAR( "Buzzlight Star"),
+    BUZZLIGHT_STAR( "Buzzlight Star", AchievementRule.atLeast(AchievementCounter.POST_LIKES, 100)),
     NIGHT_SCROLLER( "Night Scroller"),
     VANISHED_AND_REBORN( "Vanished & Reborn"),
     TREND_STARTER( "Trend Starter"),
@@ -28,9 +31,17 @@ public enum Achievements {
     PREMIUM_PLAYER( "Premium Player"),;
 
     private final String achievementInString;
+    // Null for achievements that are not awarded from counters
+    @Getter
+    private final AchievementRule rule;
 
     Achievements(String achievementInString) {
+        this(achievementInString, null);
+    }
+
+    Achievements(String achievementInString, AchievementRule rule) {
         this.achievementInString = achievementInString;
+        this.rule = rule;
     }
 
     @Override
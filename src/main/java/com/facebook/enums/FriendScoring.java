@@ -0,0 +1,11 @@
+package com.facebook.enums;
+
+/**
+ * How friends-of-friends are ranked as friend recommendations, set with {@code app.friends.recommendations.scoring}.
+ */
+public enum FriendScoring {
+    // Each mutual friend counts as one
+    MUTUAL_FRIENDS,
+    // Each mutual friend counts as 1 / ln(their friends count), so mutual friends with few friends weigh more
+    ADAMIC_ADAR
+}
@@ -0,0 +1,23 @@
+package com.facebook.enums;
+
+/**
+ * How a paged endpoint computes the total of its {@code PageResponseDto}, selected with the {@code count} parameter.
+ */
+public enum PageCount {
+    // Counts every row on every page
+    EXACT,
+    // Cached count, refreshed in the background
+    APPROXIMATE,
+    // No count, fetches one extra row to know whether the page is the last one
+    NONE;
+
+    public static PageCount fromParam(String value) {
+        for (PageCount count : values()) {
+            if (count.name().equalsIgnoreCase(value)) {
+                return count;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown count mode: " + value);
+    }
+}
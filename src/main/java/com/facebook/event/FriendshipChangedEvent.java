@@ -0,0 +1,12 @@
+package com.facebook.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class FriendshipChangedEvent {
+    private final Long userId;
+    private final Long friendId;
+    private final boolean linked;
+}
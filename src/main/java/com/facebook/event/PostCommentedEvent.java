@@ -0,0 +1,15 @@
+package com.facebook.event;
+
+import lombok.Getter;
+
+@Getter
+public class PostCommentedEvent extends PostEvent {
+    private final Long userId;
+    private final boolean added;
+
+    public PostCommentedEvent(Long postId, Long authorId, Long userId, boolean added) {
+        super(postId, authorId);
+        this.userId = userId;
+        this.added = added;
+    }
+}
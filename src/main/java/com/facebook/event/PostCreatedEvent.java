@@ -0,0 +1,7 @@
+package com.facebook.event;
+
+public class PostCreatedEvent extends PostEvent {
+    public PostCreatedEvent(Long postId, Long authorId) {
+        super(postId, authorId);
+    }
+}
@@ -0,0 +1,7 @@
+package com.facebook.event;
+
+public class PostDeletedEvent extends PostEvent {
+    public PostDeletedEvent(Long postId, Long authorId) {
+        super(postId, authorId);
+    }
+}
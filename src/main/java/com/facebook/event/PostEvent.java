@@ -0,0 +1,15 @@
+package com.facebook.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Base of the domain events that change a post or how it looks in feeds.
+ * Published by the services after the change, listeners react once the transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public abstract class PostEvent {
+    private final Long postId;
+    private final Long authorId;
+}
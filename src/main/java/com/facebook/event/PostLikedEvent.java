@@ -0,0 +1,15 @@
+package com.facebook.event;
+
+import lombok.Getter;
+
+@Getter
+public class PostLikedEvent extends PostEvent {
+    private final Long userId;
+    private final boolean liked;
+
+    public PostLikedEvent(Long postId, Long authorId, Long userId, boolean liked) {
+        super(postId, authorId);
+        this.userId = userId;
+        this.liked = liked;
+    }
+}
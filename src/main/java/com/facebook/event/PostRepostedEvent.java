@@ -0,0 +1,15 @@
+package com.facebook.event;
+
+import lombok.Getter;
+
+@Getter
+public class PostRepostedEvent extends PostEvent {
+    private final Long userId;
+    private final boolean reposted;
+
+    public PostRepostedEvent(Long postId, Long authorId, Long userId, boolean reposted) {
+        super(postId, authorId);
+        this.userId = userId;
+        this.reposted = reposted;
+    }
+}
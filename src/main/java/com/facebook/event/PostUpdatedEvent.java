@@ -0,0 +1,8 @@
+package com.facebook.event;
+
+// The text or images of the post, or one of its comments, were edited
+public class PostUpdatedEvent extends PostEvent {
+    public PostUpdatedEvent(Long postId, Long authorId) {
+        super(postId, authorId);
+    }
+}
@@ -0,0 +1,323 @@
+package com.facebook.job;
+
+import com.facebook.enums.AchievementCounter;
+import com.facebook.enums.Achievements;
+import com.facebook.repository.UserRepository;
+import com.facebook.service.AchievementCatalog;
+import com.facebook.service.UserAchievementService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates every achievement rule for every user, to award what existing users earned before a rule was added
+ * or changed. Users are read in id-ordered chunks, and each chunk is evaluated on a bounded pool with one
+ * aggregate query per counter for the whole chunk. Awards are written with a JDBC batch of INSERT IGNORE.
+ * Progress is checkpointed to {@code achievement_backfills} after each chunk that completes in order, so
+ * a run interrupted by a crash resumes after the last checkpoint. On startup a run starts when the rules
+ * differ from the last finished run, and an unfinished run resumes. Assumes a single application instance.
+ */
+@Slf4j
+@Component
+public class AchievementBackfillJob {
+    private static final String INSERT_AWARD =
+            "INSERT IGNORE INTO user_achievements (user_id, achievement_id, created_at) VALUES (?, ?, ?)";
+
+    private final UserRepository userRepository;
+    private final AchievementCatalog achievementCatalog;
+    private final UserAchievementService userAchievementService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor startupExecutor;
+    private final Counter usersCounter;
+    private final int chunkSize;
+    private final int threads;
+    private final boolean runOnStartup;
+
+    public AchievementBackfillJob(
+            UserRepository userRepository,
+            AchievementCatalog achievementCatalog,
+            UserAchievementService userAchievementService,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor startupExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${app.achievements.backfill.chunk-size:1000}") int chunkSize,
+            @Value("${app.achievements.backfill.threads:4}") int threads,
+            @Value("${app.achievements.backfill.on-startup:true}") boolean runOnStartup
+    ) {
+        this.userRepository = userRepository;
+        this.achievementCatalog = achievementCatalog;
+        this.userAchievementService = userAchievementService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.startupExecutor = startupExecutor;
+        this.usersCounter = Counter.builder("achievements.backfill.users").register(meterRegistry);
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        this.runOnStartup = runOnStartup;
+    }
+
+    // Runs in the background, so a long backfill does not hold up startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void runIfNeeded() {
+        if (runOnStartup) {
+            startupExecutor.execute(() -> run(false));
+        }
+    }
+
+    /**
+     * Resumes the unfinished run of the current rules, or starts a new one if the rules changed since
+     * the last finished run or {@code force} is set.
+     *
+     * @return the users evaluated by this call
+     */
+    public synchronized long run(boolean force) {
+        String rulesHash = rulesHash();
+        Checkpoint checkpoint = findLastCheckpoint();
+
+        if (checkpoint == null || force || !checkpoint.rulesHash().equals(rulesHash)) {
+            checkpoint = startCheckpoint(rulesHash);
+        } else if (checkpoint.finished()) {
+            return 0;
+        } else {
+            log.info("Achievement backfill: resuming after user {}", checkpoint.lastUserId());
+        }
+
+        return backfill(checkpoint);
+    }
+
+    private long backfill(Checkpoint start) {
+        long startedAt = System.nanoTime();
+        long users = 0;
+        long awards = 0;
+        long lastUserId = start.lastUserId();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        // Chunks in id order, a chunk is checkpointed once it and every chunk before it completed
+        Deque<Future<ChunkResult>> inFlight = new ArrayDeque<>();
+
+        try {
+            List<Long> userIds = userRepository.findIdsAfter(lastUserId, PageRequest.of(0, chunkSize));
+
+            while (!userIds.isEmpty() || !inFlight.isEmpty()) {
+                if (!userIds.isEmpty() && inFlight.size() < threads * 2) {
+                    List<Long> chunk = userIds;
+                    inFlight.add(workers.submit(() -> evaluate(chunk)));
+                    userIds = userRepository.findIdsAfter(chunk.getLast(), PageRequest.of(0, chunkSize));
+                    continue;
+                }
+
+                ChunkResult result = inFlight.removeFirst().get();
+                users += result.users();
+                awards += result.awards();
+                lastUserId = result.lastUserId();
+                usersCounter.increment(result.users());
+                saveCheckpoint(start.id(), lastUserId, start.usersCount() + users, start.awardsCount() + awards);
+
+                double seconds = (System.nanoTime() - startedAt) / 1e9;
+                log.info("Achievement backfill: {} users, {} awards, {} users/s",
+                        users, awards, Math.round(users / Math.max(seconds, 1e-3)));
+            }
+
+            jdbcTemplate.update("UPDATE achievement_backfills SET finished_at = ? WHERE id = ?",
+                    new Timestamp(System.currentTimeMillis()), start.id());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Achievement backfill: interrupted after user {}, will resume from there", lastUserId);
+        } catch (ExecutionException e) {
+            log.error("Achievement backfill: failed after user {}, will resume from there", lastUserId, e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        log.info("Achievement backfill finished: {} users, {} awards in {} s ({} users/s)",
+                users, awards, Math.round(seconds), Math.round(users / Math.max(seconds, 1e-3)));
+
+        return users;
+    }
+
+    // Users of the chunk are exactly the users with ids in its range
+    private ChunkResult evaluate(List<Long> userIds) {
+        long firstId = userIds.getFirst();
+        long lastId = userIds.getLast();
+        Set<Award> awards = new LinkedHashSet<>();
+
+        for (AchievementCounter counter : achievementCatalog.getRuleCounters()) {
+            List<Achievements> rules = achievementCatalog.getRules(counter);
+            Map<Long, Long> values = new HashMap<>();
+            jdbcTemplate.query(aggregateSql(counter),
+                    resultSet -> {
+                        values.put(resultSet.getLong(1), resultSet.getLong(2));
+                    },
+                    firstId, lastId);
+
+            values.forEach((userId, value) -> rules.stream()
+                    .filter(achievement -> achievement.getRule().matches(value))
+                    .forEach(achievement -> awards.add(new Award(userId, achievement))));
+        }
+
+        if (awards.isEmpty()) {
+            return new ChunkResult(userIds.size(), 0, lastId);
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int[] inserted = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(INSERT_AWARD, awards.stream()
+                .map(award -> new Object[]{
+                        award.userId(), achievementCatalog.get(award.achievement()).getId(), now
+                })
+                .toList()));
+
+        userAchievementService.evict(awards.stream().map(Award::userId).collect(Collectors.toSet()));
+
+        return new ChunkResult(userIds.size(), (int) Arrays.stream(inserted).filter(rows -> rows != 0).count(), lastId);
+    }
+
+    /**
+     * Value of the counter for each user with an id in the range, users without rows count as zero.
+     * Post counters take the user's best post, since rules only test that a value was reached.
+     */
+    private static String aggregateSql(AchievementCounter counter) {
+        return switch (counter) {
+            case POSTS -> """
+                    SELECT user_id, COUNT(*) FROM posts
+                    WHERE user_id BETWEEN ? AND ?
+                    GROUP BY user_id
+                    """;
+            case POSTS_WITH_IMAGES -> """
+                    SELECT p.user_id, COUNT(*) FROM posts p
+                    WHERE p.user_id BETWEEN ? AND ?
+                      AND EXISTS (SELECT 1 FROM post_images i WHERE i.post_id = p.id)
+                    GROUP BY p.user_id
+                    """;
+            case COMMENTS -> """
+                    SELECT user_id, COUNT(*) FROM comments
+                    WHERE user_id BETWEEN ? AND ?
+                    GROUP BY user_id
+                    """;
+            case LIKES_RECEIVED -> """
+                    SELECT user_id, SUM(likes_count) FROM posts
+                    WHERE user_id BETWEEN ? AND ?
+                    GROUP BY user_id
+                    """;
+            case POST_LIKES -> """
+                    SELECT user_id, MAX(likes_count) FROM posts
+                    WHERE user_id BETWEEN ? AND ?
+                    GROUP BY user_id
+                    """;
+            case PROFILE_FIELDS -> """
+                    SELECT id, (CASE WHEN first_name IS NULL THEN 0 ELSE 1 END)
+                             + (CASE WHEN last_name IS NULL THEN 0 ELSE 1 END)
+                             + (CASE WHEN phone IS NULL THEN 0 ELSE 1 END)
+                             + (CASE WHEN birthdate IS NULL THEN 0 ELSE 1 END)
+                             + (CASE WHEN avatar_url IS NULL THEN 0 ELSE 1 END)
+                             + (CASE WHEN header_photo_url IS NULL THEN 0 ELSE 1 END)
+                             + (CASE WHEN home_city IS NULL THEN 0 ELSE 1 END)
+                             + (CASE WHEN current_city IS NULL THEN 0 ELSE 1 END)
+                    FROM users
+                    WHERE id BETWEEN ? AND ?
+                    """;
+        };
+    }
+
+    // Changes whenever a rule is added, removed or changed
+    private String rulesHash() {
+        String rules = Arrays.stream(Achievements.values())
+                .filter(achievement -> achievement.getRule() != null)
+                .map(achievement -> achievement.name() + "=" + achievement.getRule())
+                .collect(Collectors.joining(";"));
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+            return HexFormat.of().formatHex(digest.digest(rules.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Checkpoint findLastCheckpoint() {
+        List<Checkpoint> checkpoints = jdbcTemplate.query("""
+                        SELECT id, rules_hash, last_user_id, users_count, awards_count, finished_at
+                        FROM achievement_backfills
+                        ORDER BY id DESC
+                        LIMIT 1
+                        """,
+                (resultSet, rowNum) -> new Checkpoint(
+                        resultSet.getLong("id"),
+                        resultSet.getString("rules_hash"),
+                        resultSet.getLong("last_user_id"),
+                        resultSet.getLong("users_count"),
+                        resultSet.getLong("awards_count"),
+                        resultSet.getTimestamp("finished_at") != null
+                ));
+
+        return checkpoints.isEmpty() ? null : checkpoints.getFirst();
+    }
+
+    private Checkpoint startCheckpoint(String rulesHash) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.update(
+                "INSERT INTO achievement_backfills (rules_hash, started_at, updated_at) VALUES (?, ?, ?)",
+                rulesHash, now, now);
+
+        log.info("Achievement backfill: started for rules {}", rulesHash);
+
+        return findLastCheckpoint();
+    }
+
+    private void saveCheckpoint(long id, long lastUserId, long users, long awards) {
+        jdbcTemplate.update("""
+                        UPDATE achievement_backfills
+                        SET last_user_id = ?, users_count = ?, awards_count = ?, updated_at = ?
+                        WHERE id = ?
+                        """,
+                lastUserId, users, awards, new Timestamp(System.currentTimeMillis()), id);
+    }
+
+    private record Checkpoint(
+            long id,
+            String rulesHash,
+            long lastUserId,
+            long usersCount,
+            long awardsCount,
+            boolean finished
+    ) {
+    }
+
+    private record ChunkResult(int users, int awards, long lastUserId) {
+    }
+
+    private record Award(Long userId, Achievements achievement) {
+    }
+}
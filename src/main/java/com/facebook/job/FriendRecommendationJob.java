@@ -0,0 +1,214 @@
+package com.facebook.job;
+
+import com.facebook.enums.FriendScoring;
+import com.facebook.repository.UserRepository;
+import com.facebook.service.FriendGraph;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Precomputes the top friend recommendations of each user into {@code friend_recommendations}, so reading them is
+ * one indexed query. Friend writes mark both users in {@code friend_graph_changes}, and the periodic refresh
+ * recomputes the marked users and their friends, whose friends-of-friends changed with them. A nightly rebuild
+ * recomputes every user. Users are computed from the {@link FriendGraph} in chunks on a bounded worker pool.
+ */
+@Slf4j
+@Component
+public class FriendRecommendationJob {
+    private static final String INSERT_RECOMMENDATION = """
+            INSERT INTO friend_recommendations
+                (user_id, position, candidate_id, mutual_friends_count, score, computed_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final FriendGraph friendGraph;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor startupExecutor;
+    private final int limit;
+    private final FriendScoring scoring;
+    private final int chunkSize;
+    private final int threads;
+
+    public FriendRecommendationJob(
+            FriendGraph friendGraph,
+            UserRepository userRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor startupExecutor,
+            @Value("${app.friends.recommendations.limit:40}") int limit,
+            @Value("${app.friends.recommendations.scoring:MUTUAL_FRIENDS}") FriendScoring scoring,
+            @Value("${app.friends.recommendations.chunk-size:500}") int chunkSize,
+            @Value("${app.friends.recommendations.threads:4}") int threads
+    ) {
+        this.friendGraph = friendGraph;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.startupExecutor = startupExecutor;
+        this.limit = limit;
+        this.scoring = scoring;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+    }
+
+    // Recommendations are empty right after the table is introduced on a database that already has friends
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfNeeded() {
+        if (jdbcTemplate.queryForList("SELECT 1 FROM friend_recommendations LIMIT 1").isEmpty()
+                && !jdbcTemplate.queryForList("SELECT 1 FROM friends LIMIT 1").isEmpty()) {
+            startupExecutor.execute(this::rebuildAll);
+        }
+    }
+
+    @Scheduled(cron = "${app.friends.recommendations.rebuild-cron:0 0 4 * * *}")
+    public synchronized long rebuildAll() {
+        long startedAt = System.currentTimeMillis();
+        List<Change> changes = findChanges();
+        long[] lastUserId = {0};
+
+        long users = compute(() -> {
+            List<Long> userIds = userRepository.findIdsAfter(lastUserId[0], PageRequest.of(0, chunkSize));
+
+            if (!userIds.isEmpty()) {
+                lastUserId[0] = userIds.getLast();
+            }
+
+            return userIds;
+        });
+
+        clearChanges(changes);
+        log.info("Friend recommendations rebuild: {} users in {} ms", users, System.currentTimeMillis() - startedAt);
+
+        return users;
+    }
+
+    @Scheduled(fixedDelayString = "${app.friends.recommendations.refresh-interval-ms:300000}")
+    public synchronized long refresh() {
+        List<Change> changes = findChanges();
+
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        TreeSet<Long> userIds = new TreeSet<>();
+
+        for (Change change : changes) {
+            userIds.add(change.userId());
+
+            for (long friendId : friendGraph.getFriendIds(change.userId())) {
+                userIds.add(friendId);
+            }
+        }
+
+        List<Long> pending = new ArrayList<>(userIds);
+        int[] offset = {0};
+
+        long users = compute(() -> {
+            List<Long> chunk = pending.subList(offset[0], Math.min(offset[0] + chunkSize, pending.size()));
+            offset[0] += chunk.size();
+
+            return chunk;
+        });
+
+        clearChanges(changes);
+        log.info("Friend recommendations refresh: {} changed users, {} users recomputed in {} ms",
+                changes.size(), users, System.currentTimeMillis() - startedAt);
+
+        return users;
+    }
+
+    // Computes chunks until an empty one, with a bounded number of chunks in flight
+    private long compute(Supplier<List<Long>> nextChunk) {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        Deque<Future<Integer>> inFlight = new ArrayDeque<>();
+        long users = 0;
+
+        try {
+            List<Long> userIds = nextChunk.get();
+
+            while (!userIds.isEmpty() || !inFlight.isEmpty()) {
+                if (!userIds.isEmpty() && inFlight.size() < threads * 2) {
+                    List<Long> chunk = userIds;
+                    inFlight.add(workers.submit(() -> computeChunk(chunk)));
+                    userIds = nextChunk.get();
+                    continue;
+                }
+
+                users += inFlight.removeFirst().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Friend recommendations interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Friend recommendations failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+
+        return users;
+    }
+
+    private int computeChunk(List<Long> userIds) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new ArrayList<>();
+
+        for (Long userId : userIds) {
+            List<FriendGraph.Suggestion> suggestions = friendGraph.suggestFriends(userId, limit, scoring);
+
+            for (int position = 0; position < suggestions.size(); position++) {
+                FriendGraph.Suggestion suggestion = suggestions.get(position);
+                rows.add(new Object[]{
+                        userId, position, suggestion.userId(), suggestion.mutualFriends(), suggestion.score(), now
+                });
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("DELETE FROM friend_recommendations WHERE user_id = ?",
+                    userIds.stream().map(userId -> new Object[]{userId}).toList());
+            jdbcTemplate.batchUpdate(INSERT_RECOMMENDATION, rows);
+        });
+
+        return userIds.size();
+    }
+
+    private List<Change> findChanges() {
+        return jdbcTemplate.query("SELECT user_id, version FROM friend_graph_changes",
+                (resultSet, rowNum) -> new Change(resultSet.getLong(1), resultSet.getLong(2)));
+    }
+
+    // Changes made while the users were computed have a newer version and are kept for the next refresh
+    private void clearChanges(List<Change> changes) {
+        jdbcTemplate.batchUpdate("DELETE FROM friend_graph_changes WHERE user_id = ? AND version = ?",
+                changes.stream().map(change -> new Object[]{change.userId(), change.version()}).toList());
+    }
+
+    private record Change(long userId, long version) {
+    }
+}
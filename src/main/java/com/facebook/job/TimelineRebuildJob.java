@@ -0,0 +1,64 @@
+package com.facebook.job;
+
+import com.facebook.repository.PostRepository;
+import com.facebook.repository.TimelineRepository;
+import com.facebook.repository.UserRepository;
+import com.facebook.service.TimelineService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TimelineRebuildJob {
+    private static final int BATCH_SIZE = 500;
+
+    private final TimelineService timelineService;
+    private final TimelineRepository timelineRepository;
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+
+    @Value("${app.timeline.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    // Timelines are empty right after the table is introduced on a database that already has posts
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfNeeded() {
+        if (rebuildOnStartup || (timelineRepository.count() == 0 && postRepository.count() > 0)) {
+            rebuildAll();
+        }
+    }
+
+    public long rebuildAll() {
+        long startedAt = System.currentTimeMillis();
+        long lastUserId = 0;
+        long users = 0;
+        long entries = 0;
+
+        List<Long> userIds = userRepository.findIdsAfter(lastUserId, PageRequest.of(0, BATCH_SIZE));
+
+        while (!userIds.isEmpty()) {
+            for (Long userId : userIds) {
+                entries += timelineService.rebuildTimeline(userId);
+            }
+
+            users += userIds.size();
+            lastUserId = userIds.getLast();
+            log.info("Timeline rebuild: {} users processed", users);
+
+            userIds = userRepository.findIdsAfter(lastUserId, PageRequest.of(0, BATCH_SIZE));
+        }
+
+        log.info("Timeline rebuild finished: {} users, {} entries in {} ms",
+                users, entries, System.currentTimeMillis() - startedAt);
+
+        return users;
+    }
+}
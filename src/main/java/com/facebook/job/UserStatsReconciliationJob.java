@@ -0,0 +1,69 @@
+package com.facebook.job;
+
+import com.facebook.repository.UserRepository;
+import com.facebook.repository.UserStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Checks {@code user_stats} against the source tables and recounts the users that drifted,
+ * e.g. after rows were changed outside of the application. A write racing the recount can leave
+ * a user off by one until the next run.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserStatsReconciliationJob {
+    private static final int BATCH_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final UserStatsRepository userStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Scheduled(cron = "${app.stats.reconcile-cron:0 30 3 * * *}")
+    public long reconcile() {
+        long startedAt = System.currentTimeMillis();
+        long lastUserId = 0;
+        long users = 0;
+        long drifted = 0;
+
+        List<Long> userIds = userRepository.findIdsAfter(lastUserId, PageRequest.of(0, BATCH_SIZE));
+
+        while (!userIds.isEmpty()) {
+            List<Long> batch = userIds;
+            drifted += transactionTemplate.execute(status -> recount(batch));
+
+            users += userIds.size();
+            lastUserId = userIds.getLast();
+
+            userIds = userRepository.findIdsAfter(lastUserId, PageRequest.of(0, BATCH_SIZE));
+        }
+
+        if (drifted > 0) {
+            log.warn("User stats reconciliation: {} of {} users recounted in {} ms",
+                    drifted, users, System.currentTimeMillis() - startedAt);
+        } else {
+            log.info("User stats reconciliation: {} users checked in {} ms",
+                    users, System.currentTimeMillis() - startedAt);
+        }
+
+        return drifted;
+    }
+
+    private int recount(List<Long> userIds) {
+        List<Long> driftedIds = userStatsRepository.findDriftedUserIds(userIds);
+
+        if (!driftedIds.isEmpty()) {
+            userStatsRepository.deleteByUserIds(driftedIds);
+            userStatsRepository.insertRecounted(driftedIds);
+        }
+
+        return driftedIds.size();
+    }
+}
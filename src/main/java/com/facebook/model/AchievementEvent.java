@@ -0,0 +1,35 @@
+package com.facebook.model;
+
+import com.facebook.enums.AchievementEventType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Outbox entry of an event that may award achievements, kept until it is evaluated
+@Entity
+@Table(name = "achievement_events")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class AchievementEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private AchievementEventType type;
+
+    // Plain ids, so events of deleted users or posts do not block the deletion and are skipped
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdDate;
+}
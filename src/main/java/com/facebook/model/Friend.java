@@ -1,46 +1,41 @@
 package com.facebook.model;
 
 import com.facebook.enums.FriendStatus;
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-import org.springframework.data.annotation.LastModifiedDate;
 
 import java.time.LocalDateTime;
 
+/**
+ * One row per pair of users, the lower id first, whichever of them sent the request.
+ * Written by the statements of {@link com.facebook.repository.FriendRepository}.
+ */
 @Entity
-@Table(name = "friends")
+@Table(
+        name = "friends",
+        uniqueConstraints = @UniqueConstraint(name = "UK_friends_low_high", columnNames = {"low_id", "high_id"})
+)
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
 @EqualsAndHashCode(callSuper = true)
 public class Friend extends AbstractEntity {
+    @Column(name = "low_id", nullable = false)
+    private Long lowId;
+
+    @Column(name = "high_id", nullable = false)
+    private Long highId;
+
+    @Column(name = "requester_id", nullable = false)
+    private Long requesterId;
+
     @Enumerated(EnumType.STRING)
     @Column(columnDefinition = "VARCHAR(20) DEFAULT 'PENDING'")
     private FriendStatus status;
 
-    @ManyToOne
-    @JoinColumn(
-            name = "user_id",
-            foreignKey = @ForeignKey(name = "FK_friends_user_id"),
-            nullable = false
-    )
-    @JsonIgnore
-    private User user;
-
-    @ManyToOne
-    @JoinColumn(
-            name = "friend_id",
-            foreignKey = @ForeignKey(name = "FK_friends_friend_id"),
-            nullable = false
-    )
-    @JsonIgnore
-    private User friend;
-
     @Column(name = "accepted_at")
-    @LastModifiedDate
     private LocalDateTime acceptedDate;
 }
@@ -0,0 +1,36 @@
+package com.facebook.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Journal entry of a like toggle, kept until it is flushed to likes
+@Entity
+@Table(name = "like_toggles")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class LikeToggle {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Plain ids, so toggles of deleted users or posts do not block the deletion and are dropped on flush
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    @Column(name = "author_id", nullable = false)
+    private Long authorId;
+
+    @Column(name = "liked", nullable = false)
+    private boolean liked;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdDate;
+}
@@ -52,6 +52,16 @@ public class Post extends AbstractEntity {
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Repost> reposts = new ArrayList<>();
 
+    // Counters are changed only by atomic UPDATEs in PostRepository, never by saving the entity
+    @Column(name = "likes_count", nullable = false, updatable = false)
+    private int likesCount;
+
+    @Column(name = "comments_count", nullable = false, updatable = false)
+    private int commentsCount;
+
+    @Column(name = "reposts_count", nullable = false, updatable = false)
+    private int repostsCount;
+
     @Column(name = "updated_at")
     @LastModifiedDate
     private LocalDateTime modifiedDate;
@@ -0,0 +1,42 @@
+package com.facebook.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "timeline_entries")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class TimelineEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @ManyToOne
+    @JoinColumn(
+            name = "owner_id",
+            foreignKey = @ForeignKey(name = "FK_timeline_entries_owner_id"),
+            nullable = false
+    )
+    @JsonIgnore
+    private User owner;
+
+    @ManyToOne
+    @JoinColumn(
+            name = "post_id",
+            foreignKey = @ForeignKey(name = "FK_timeline_entries_post_id"),
+            nullable = false
+    )
+    @JsonIgnore
+    private Post post;
+
+    // Copied from the post, so the feed is ordered without joining posts
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdDate;
+}
@@ -0,0 +1,33 @@
+package com.facebook.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Activity counters of a user, changed only by the atomic upserts in UserStatsRepository
+@Entity
+@Table(name = "user_stats")
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class UserStats {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "posts_count", nullable = false, insertable = false, updatable = false)
+    private int postsCount;
+
+    @Column(name = "posts_with_images_count", nullable = false, insertable = false, updatable = false)
+    private int postsWithImagesCount;
+
+    @Column(name = "comments_count", nullable = false, insertable = false, updatable = false)
+    private int commentsCount;
+
+    @Column(name = "likes_received_count", nullable = false, insertable = false, updatable = false)
+    private int likesReceivedCount;
+
+    @Column(name = "reposts_count", nullable = false, insertable = false, updatable = false)
+    private int repostsCount;
+}
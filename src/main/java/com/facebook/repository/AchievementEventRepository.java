@@ -0,0 +1,12 @@
+package com.facebook.repository;
+
+import com.facebook.model.AchievementEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface AchievementEventRepository extends JpaRepository<AchievementEvent, Long> {
+    List<AchievementEvent> findAllByCreatedDateBeforeOrderByIdAsc(LocalDateTime createdBefore, Pageable pageable);
+}
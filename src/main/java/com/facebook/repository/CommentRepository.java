@@ -1,10 +1,57 @@
 package com.facebook.repository;
 
 import com.facebook.model.Comment;
+import com.facebook.repository.projection.CommentView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByPostIdOrderByCreatedDateDesc(Long postId);
+
+    // Comments of a post older than the cursor, newest first, read from the (post_id, created_at, id) index
+    @Query("""
+    SELECT c.id AS id, c.post.id AS postId, c.text AS text, c.createdDate AS createdDate,
+           u.id AS userId, u.firstName AS firstName, u.lastName AS lastName,
+           u.avatarUrl AS avatarUrl, u.birthdate AS birthdate
+    FROM Comment c
+    JOIN c.user u
+    WHERE c.post.id = :postId
+      AND (c.createdDate < :cursorDate
+           OR (c.createdDate = :cursorDate AND c.id < :cursorId))
+    ORDER BY c.createdDate DESC, c.id DESC
+    """)
+    List<CommentView> getPostCommentsBefore(
+            @Param("postId") Long postId,
+            @Param("cursorDate") LocalDateTime cursorDate,
+            @Param("cursorId") long cursorId,
+            Pageable pageable
+    );
+
+    // Newest comments of each post of a page in one query, instead of a page of comments per post
+    @Query(value = """
+    SELECT ranked.id AS id, ranked.postId AS postId, ranked.text AS text, ranked.createdDate AS createdDate,
+           ranked.userId AS userId, ranked.firstName AS firstName, ranked.lastName AS lastName,
+           ranked.avatarUrl AS avatarUrl, ranked.birthdate AS birthdate
+    FROM (
+        SELECT c.id AS id, c.post_id AS postId, c.text AS text, c.created_at AS createdDate,
+               u.id AS userId, u.first_name AS firstName, u.last_name AS lastName,
+               u.avatar_url AS avatarUrl, u.birthdate AS birthdate,
+               ROW_NUMBER() OVER (PARTITION BY c.post_id ORDER BY c.created_at DESC, c.id DESC) AS position
+        FROM comments c
+        JOIN users u ON u.id = c.user_id
+        WHERE c.post_id IN (:postIds)
+    ) ranked
+    WHERE ranked.position <= :limit
+    ORDER BY ranked.postId, ranked.position
+    """, nativeQuery = true)
+    List<CommentView> findLatestByPostIds(
+            @Param("postIds") Collection<Long> postIds,
+            @Param("limit") int limit
+    );
 }
@@ -1,16 +1,77 @@
 package com.facebook.repository;
 
-import com.facebook.enums.FriendStatus;
 import com.facebook.model.Friend;
+import com.facebook.repository.projection.FriendRecommendationView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
-import java.util.Optional;
 
 public interface FriendRepository extends JpaRepository<Friend, Long> {
-    List<Friend> findByStatusAndUserId(FriendStatus status, Long userId);
-    List<Friend> findByStatusAndFriendId(FriendStatus status, Long friendId);
-    Optional<Friend> findByUserIdAndFriendId(Long userId, Long friendId);
-    List<Friend> findByUserId(Long userId);
-    List<Friend> findByFriendId(Long friendId);
+    // A pair of users is one row, lowId < highId, found by one probe of the unique (low_id, high_id) index
+
+    // No-op if the pair already has a request or a friendship, either way
+    @Modifying
+    @Query(value = """
+    INSERT IGNORE INTO friends (low_id, high_id, requester_id, status, created_at)
+    VALUES (:lowId, :highId, :requesterId, 'PENDING', CURRENT_TIMESTAMP)
+    """, nativeQuery = true)
+    int insertRequest(@Param("lowId") long lowId, @Param("highId") long highId, @Param("requesterId") long requesterId);
+
+    // Only the recipient can accept, and only while pending
+    @Modifying
+    @Query(value = """
+    UPDATE friends
+    SET status = 'ACCEPTED', accepted_at = CURRENT_TIMESTAMP
+    WHERE low_id = :lowId AND high_id = :highId AND requester_id = :requesterId AND status = 'PENDING'
+    """, nativeQuery = true)
+    int acceptRequest(@Param("lowId") long lowId, @Param("highId") long highId, @Param("requesterId") long requesterId);
+
+    @Modifying
+    @Query(value = """
+    DELETE FROM friends
+    WHERE low_id = :lowId AND high_id = :highId AND requester_id = :requesterId AND status = 'PENDING'
+    """, nativeQuery = true)
+    int deleteRequest(@Param("lowId") long lowId, @Param("highId") long highId, @Param("requesterId") long requesterId);
+
+    // The friendship or the request, either way
+    @Modifying
+    @Query(value = "DELETE FROM friends WHERE low_id = :lowId AND high_id = :highId", nativeQuery = true)
+    int deleteEdge(@Param("lowId") long lowId, @Param("highId") long highId);
+
+    // Each side of the edge has its own index
+    @Query(value = """
+    SELECT u.id
+    FROM (
+        SELECT f.high_id AS friend_id FROM friends f WHERE f.low_id = :userId AND f.status = 'ACCEPTED'
+        UNION ALL
+        SELECT f.low_id FROM friends f WHERE f.high_id = :userId AND f.status = 'ACCEPTED'
+    ) fr
+    JOIN users u ON u.id = fr.friend_id
+    WHERE u.friends_count >= :threshold
+    """, nativeQuery = true)
+    List<Long> findHighDegreeFriendIds(@Param("userId") Long userId, @Param("threshold") int threshold);
+
+    // Read in rank order along the primary key
+    @Query(value = """
+    SELECT u.id AS id, u.first_name AS firstName, u.last_name AS lastName,
+           u.avatar_url AS avatarUrl, u.birthdate AS birthdate,
+           r.mutual_friends_count AS mutualFriendsCount
+    FROM friend_recommendations r
+    JOIN users u ON u.id = r.candidate_id
+    WHERE r.user_id = :userId
+    ORDER BY r.position
+    """, nativeQuery = true)
+    List<FriendRecommendationView> findRecommendations(@Param("userId") long userId);
+
+    // Recommendations of the user and of their friends are recomputed by the next refresh
+    @Modifying
+    @Query(value = """
+    INSERT INTO friend_graph_changes (user_id, version, changed_at)
+    VALUES (:userId, 1, CURRENT_TIMESTAMP)
+    ON DUPLICATE KEY UPDATE version = version + 1, changed_at = CURRENT_TIMESTAMP
+    """, nativeQuery = true)
+    int markGraphChanged(@Param("userId") long userId);
 }
@@ -2,7 +2,10 @@ package com.facebook.repository;
 
 import com.facebook.model.Group;
 import com.facebook.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,4 +13,7 @@ import java.util.Optional;
 public interface GroupRepository extends JpaRepository<Group, Long> {
     Optional<Group> findByNameAndIsPrivateAndOwner(String name, boolean isPrivate, User owner);
     Optional<List<Group>>  findTop10ByOrderByIdDesc();
+
+    @Query("SELECT g FROM Group g")
+    Slice<Group> findSlice(Pageable pageable);
 }
@@ -0,0 +1,11 @@
+package com.facebook.repository;
+
+import com.facebook.model.LikeToggle;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface LikeToggleRepository extends JpaRepository<LikeToggle, Long> {
+    List<LikeToggle> findAllByOrderByIdAsc(Pageable pageable);
+}
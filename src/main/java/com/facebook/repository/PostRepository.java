@@ -1,14 +1,31 @@
 package com.facebook.repository;
 
 import com.facebook.model.Post;
+import com.facebook.repository.projection.PostFeedView;
+import com.facebook.repository.projection.PostGroupView;
+import com.facebook.repository.projection.PostImageView;
+import com.facebook.repository.projection.PostInteractionView;
+import com.facebook.repository.projection.PostLikesView;
+import com.facebook.repository.projection.RankedPostView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
+    // Rows fetched per round trip when streaming a post history
+    int STREAM_FETCH_SIZE = 500;
+
     Optional<List<Post>> findAllByUserId(Long userId);
 
     @Query(value = """
@@ -26,54 +43,204 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     long countCombinedPosts(@Param("userId") Long userId);
 
     @Query(value = """
-    (SELECT p.*
+    (SELECT p.id AS id, p.text AS text, p.created_at AS createdDate,
+            p.likes_count AS likesCount, p.comments_count AS commentsCount, p.reposts_count AS repostsCount,
+            u.id AS userId, u.first_name AS firstName, u.last_name AS lastName,
+            u.avatar_url AS avatarUrl, u.birthdate AS birthdate
      FROM posts p
+     JOIN users u ON u.id = p.user_id
      WHERE p.user_id = :userId)
     UNION ALL
-    (SELECT p.*
+    (SELECT p.id AS id, p.text AS text, p.created_at AS createdDate,
+            p.likes_count AS likesCount, p.comments_count AS commentsCount, p.reposts_count AS repostsCount,
+            u.id AS userId, u.first_name AS firstName, u.last_name AS lastName,
+            u.avatar_url AS avatarUrl, u.birthdate AS birthdate
      FROM reposts r
      JOIN posts p ON r.post_id = p.id
+     JOIN users u ON u.id = p.user_id
      WHERE r.user_id = :userId)
-    ORDER BY created_at DESC
+    ORDER BY createdDate DESC
     LIMIT :limit OFFSET :offset
     """, nativeQuery = true)
-    List<Post> getCombinedPosts(
+    List<PostFeedView> getCombinedPosts(
             @Param("userId") Long userId,
             @Param("limit") int limit,
             @Param("offset") int offset
     );
 
+    // Same rows as getCombinedPosts, read through a forward-only cursor instead of being loaded at once
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
     @Query(value = """
-    (SELECT p.*
+    (SELECT p.id AS id, p.text AS text, p.created_at AS createdDate,
+            p.likes_count AS likesCount, p.comments_count AS commentsCount, p.reposts_count AS repostsCount,
+            u.id AS userId, u.first_name AS firstName, u.last_name AS lastName,
+            u.avatar_url AS avatarUrl, u.birthdate AS birthdate
      FROM posts p
+     JOIN users u ON u.id = p.user_id
      WHERE p.user_id = :userId)
     UNION ALL
-    (SELECT p.*
-     FROM posts p
-     WHERE p.user_id IN :friendsIds)
-    ORDER BY created_at DESC
-    LIMIT :limit OFFSET :offset
+    (SELECT p.id AS id, p.text AS text, p.created_at AS createdDate,
+            p.likes_count AS likesCount, p.comments_count AS commentsCount, p.reposts_count AS repostsCount,
+            u.id AS userId, u.first_name AS firstName, u.last_name AS lastName,
+            u.avatar_url AS avatarUrl, u.birthdate AS birthdate
+     FROM reposts r
+     JOIN posts p ON r.post_id = p.id
+     JOIN users u ON u.id = p.user_id
+     WHERE r.user_id = :userId)
+    ORDER BY createdDate DESC, id DESC
     """, nativeQuery = true)
-    List<Post> getUserAndFriendsPosts(
-            @Param("userId") Long userId,
-            @Param("friendsIds") List<Long> friendsIds,
-            @Param("limit") int limit,
-            @Param("offset") int offset
+    Stream<PostFeedView> streamCombinedPosts(@Param("userId") Long userId);
+
+    @Query("""
+    SELECT p.id AS id, p.text AS text, p.createdDate AS createdDate,
+           p.likesCount AS likesCount, p.commentsCount AS commentsCount, p.repostsCount AS repostsCount,
+           u.id AS userId, u.firstName AS firstName, u.lastName AS lastName,
+           u.avatarUrl AS avatarUrl, u.birthdate AS birthdate
+    FROM TimelineEntry t
+    JOIN t.post p
+    JOIN p.user u
+    WHERE t.owner.id = :ownerId
+      AND (t.createdDate < :cursorDate
+           OR (t.createdDate = :cursorDate AND p.id < :cursorId))
+    ORDER BY t.createdDate DESC, p.id DESC
+    """)
+    List<PostFeedView> getTimelinePostsBefore(
+            @Param("ownerId") Long ownerId,
+            @Param("cursorDate") LocalDateTime cursorDate,
+            @Param("cursorId") long cursorId,
+            Pageable pageable
     );
 
+    @Query("""
+    SELECT p.id AS id, p.text AS text, p.createdDate AS createdDate,
+           p.likesCount AS likesCount, p.commentsCount AS commentsCount, p.repostsCount AS repostsCount,
+           u.id AS userId, u.firstName AS firstName, u.lastName AS lastName,
+           u.avatarUrl AS avatarUrl, u.birthdate AS birthdate
+    FROM Post p
+    JOIN p.user u
+    WHERE u.id IN :authorIds
+      AND (p.createdDate < :cursorDate
+           OR (p.createdDate = :cursorDate AND p.id < :cursorId))
+    ORDER BY p.createdDate DESC, p.id DESC
+    """)
+    List<PostFeedView> getAuthorsPostsBefore(
+            @Param("authorIds") Collection<Long> authorIds,
+            @Param("cursorDate") LocalDateTime cursorDate,
+            @Param("cursorId") long cursorId,
+            Pageable pageable
+    );
+
+    // Candidates of the ranked feed: the newest timeline entries up to the snapshot head, scored by engagement
+    // and affinity to the author
     @Query(value = """
-    SELECT COUNT(*) FROM (
-        (SELECT p.id
-         FROM posts p
-         WHERE p.user_id = :userId)
-        UNION ALL
-        (SELECT p.id
-         FROM posts p
-         WHERE p.user_id IN :friendsIds)
-    ) AS combined_posts
+    SELECT p.id AS id, p.created_at AS createdDate,
+           p.rank_score + :affinityWeight * LN(1 + COALESCE(a.score, 0)) AS score
+    FROM (SELECT t.post_id
+          FROM timeline_entries t
+          WHERE t.owner_id = :ownerId
+            AND (t.created_at < :headDate OR (t.created_at = :headDate AND t.post_id <= :headId))
+          ORDER BY t.created_at DESC, t.post_id DESC
+          LIMIT :candidates) c
+    JOIN posts p ON p.id = c.post_id
+    LEFT JOIN user_affinities a ON a.user_id = :ownerId AND a.author_id = p.user_id
+    """, nativeQuery = true)
+    List<RankedPostView> getRankedTimelineCandidates(
+            @Param("ownerId") Long ownerId,
+            @Param("headDate") LocalDateTime headDate,
+            @Param("headId") long headId,
+            @Param("affinityWeight") double affinityWeight,
+            @Param("candidates") int candidates
+    );
+
+    @Query(value = """
+    SELECT p.id AS id, p.created_at AS createdDate,
+           p.rank_score + :affinityWeight * LN(1 + COALESCE(a.score, 0)) AS score
+    FROM posts p
+    LEFT JOIN user_affinities a ON a.user_id = :ownerId AND a.author_id = p.user_id
+    WHERE p.user_id IN :authorIds
+      AND (p.created_at < :headDate OR (p.created_at = :headDate AND p.id <= :headId))
+    ORDER BY p.created_at DESC, p.id DESC
+    LIMIT :candidates
+    """, nativeQuery = true)
+    List<RankedPostView> getRankedAuthorCandidates(
+            @Param("ownerId") Long ownerId,
+            @Param("authorIds") Collection<Long> authorIds,
+            @Param("headDate") LocalDateTime headDate,
+            @Param("headId") long headId,
+            @Param("affinityWeight") double affinityWeight,
+            @Param("candidates") int candidates
+    );
+
+    // Images of a whole feed page in one round trip
+    @Query("SELECT i.post.id AS postId, i.url AS url FROM PostImage i WHERE i.post.id IN :postIds ORDER BY i.id")
+    List<PostImageView> findImagesByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    @Query("""
+    SELECT p.id AS id, p.text AS text, p.createdDate AS createdDate,
+           p.likesCount AS likesCount, p.commentsCount AS commentsCount, p.repostsCount AS repostsCount,
+           u.id AS userId, u.firstName AS firstName, u.lastName AS lastName,
+           u.avatarUrl AS avatarUrl, u.birthdate AS birthdate
+    FROM Post p
+    JOIN p.user u
+    WHERE p.id IN :postIds
+    """)
+    List<PostFeedView> findFeedViewsByIds(@Param("postIds") Collection<Long> postIds);
+
+    @Query("SELECT g.id AS groupId, g.isPrivate AS privateGroup FROM Post p LEFT JOIN p.group g WHERE p.id = :postId")
+    Optional<PostGroupView> findGroup(@Param("postId") Long postId);
+
+    // Likes and reposts of a user among the posts of a page, in one round trip
+    @Query(value = """
+    SELECT l.post_id AS postId, 'like' AS interaction
+    FROM likes l
+    WHERE l.user_id = :userId AND l.post_id IN :postIds
+    UNION ALL
+    SELECT r.post_id AS postId, 'repost' AS interaction
+    FROM reposts r
+    WHERE r.user_id = :userId AND r.post_id IN :postIds
     """, nativeQuery = true)
-    long countUserAndFriendsPosts(
+    List<PostInteractionView> findInteractions(
             @Param("userId") Long userId,
-            @Param("friendsIds") List<Long> friendsIds
+            @Param("postIds") Collection<Long> postIds
     );
+
+    @Modifying
+    @Query(value = "UPDATE posts SET likes_count = likes_count + :delta WHERE id = :postId", nativeQuery = true)
+    int adjustLikesCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    @Modifying
+    @Query(value = "UPDATE posts SET comments_count = comments_count + :delta WHERE id = :postId", nativeQuery = true)
+    int adjustCommentsCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    @Modifying
+    @Query(value = "UPDATE posts SET reposts_count = reposts_count + :delta WHERE id = :postId", nativeQuery = true)
+    int adjustRepostsCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    /**
+     * Recomputes the engagement score of a post from its counters, with comments and reposts weighing more than likes.
+     * Newer posts get a bonus growing by 1 every 12.5 hours of creation time, so the score decays relative
+     * to newer posts without ever being recomputed as the post ages.
+     */
+    @Modifying
+    @Query(value = """
+    UPDATE posts
+    SET rank_score = LN(1 + likes_count + 2 * comments_count + 3 * reposts_count) + UNIX_TIMESTAMP(created_at) / 45000.0
+    WHERE id = :postId
+    """, nativeQuery = true)
+    int refreshRankScore(@Param("postId") Long postId);
+
+    @Query("SELECT p.user.id FROM Post p WHERE p.id = :postId")
+    Optional<Long> findAuthorId(@Param("postId") Long postId);
+
+    @Query(value = "SELECT likes_count FROM posts WHERE id = :postId", nativeQuery = true)
+    int getLikesCount(@Param("postId") Long postId);
+
+    @Query(value = "SELECT id AS postId, likes_count AS likesCount FROM posts WHERE id IN (:postIds)", nativeQuery = true)
+    List<PostLikesView> findLikesCounts(@Param("postIds") Collection<Long> postIds);
+
+    @Query(value = "SELECT reposts_count FROM posts WHERE id = :postId", nativeQuery = true)
+    int getRepostsCount(@Param("postId") Long postId);
 }
@@ -0,0 +1,107 @@
+package com.facebook.repository;
+
+import com.facebook.model.TimelineEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface TimelineRepository extends JpaRepository<TimelineEntry, Long> {
+    // Pushes a new post into the timelines of its author and all accepted friends
+    @Modifying
+    @Query(value = """
+    INSERT INTO timeline_entries (owner_id, post_id, created_at)
+    SELECT p.user_id, p.id, p.created_at
+    FROM posts p
+    WHERE p.id = :postId
+    UNION
+    SELECT f.high_id, p.id, p.created_at
+    FROM posts p
+    JOIN friends f ON f.low_id = p.user_id AND f.status = 'ACCEPTED'
+    WHERE p.id = :postId
+    UNION
+    SELECT f.low_id, p.id, p.created_at
+    FROM posts p
+    JOIN friends f ON f.high_id = p.user_id AND f.status = 'ACCEPTED'
+    WHERE p.id = :postId
+    """, nativeQuery = true)
+    int fanOutPost(@Param("postId") Long postId);
+
+    // High-degree authors only get their own copy, their friends pull the post at read time
+    @Modifying
+    @Query(value = """
+    INSERT INTO timeline_entries (owner_id, post_id, created_at)
+    SELECT p.user_id, p.id, p.created_at
+    FROM posts p
+    WHERE p.id = :postId
+    """, nativeQuery = true)
+    int addToAuthorTimeline(@Param("postId") Long postId);
+
+    // Copies all posts of the author into the owner's timeline (new friendship)
+    @Modifying
+    @Query(value = """
+    INSERT INTO timeline_entries (owner_id, post_id, created_at)
+    SELECT u.id, p.id, p.created_at
+    FROM users u
+    JOIN posts p ON p.user_id = :authorId
+    WHERE u.id = :ownerId
+      AND NOT EXISTS (
+          SELECT 1
+          FROM timeline_entries t
+          WHERE t.owner_id = u.id AND t.post_id = p.id
+      )
+    """, nativeQuery = true)
+    int addAuthorPosts(@Param("ownerId") Long ownerId, @Param("authorId") Long authorId);
+
+    @Modifying
+    @Query(value = """
+    DELETE FROM timeline_entries
+    WHERE owner_id = :ownerId
+      AND post_id IN (SELECT p.id FROM posts p WHERE p.user_id = :authorId)
+    """, nativeQuery = true)
+    int removeAuthorPosts(@Param("ownerId") Long ownerId, @Param("authorId") Long authorId);
+
+    @Modifying
+    @Query(value = "DELETE FROM timeline_entries WHERE owner_id = :ownerId", nativeQuery = true)
+    int deleteAllByOwner(@Param("ownerId") Long ownerId);
+
+    @Modifying
+    @Query(value = """
+    INSERT INTO timeline_entries (owner_id, post_id, created_at)
+    SELECT p.user_id, p.id, p.created_at
+    FROM posts p
+    WHERE p.user_id = :ownerId
+    UNION
+    SELECT fr.owner_id, p.id, p.created_at
+    FROM (
+        SELECT f.low_id AS owner_id, f.high_id AS friend_id
+        FROM friends f
+        WHERE f.low_id = :ownerId AND f.status = 'ACCEPTED'
+        UNION ALL
+        SELECT f.high_id, f.low_id FROM friends f WHERE f.high_id = :ownerId AND f.status = 'ACCEPTED'
+    ) fr
+    JOIN users u ON u.id = fr.friend_id
+    JOIN posts p ON p.user_id = fr.friend_id
+    WHERE u.friends_count < :highDegreeThreshold
+    """, nativeQuery = true)
+    int fillTimeline(@Param("ownerId") Long ownerId, @Param("highDegreeThreshold") int highDegreeThreshold);
+
+    // Pushes the posts an author made while being pulled, once they drop below the high-degree threshold
+    @Modifying
+    @Query(value = """
+    INSERT INTO timeline_entries (owner_id, post_id, created_at)
+    SELECT fr.friend_id, p.id, p.created_at
+    FROM (
+        SELECT f.high_id AS friend_id FROM friends f WHERE f.low_id = :authorId AND f.status = 'ACCEPTED'
+        UNION ALL
+        SELECT f.low_id FROM friends f WHERE f.high_id = :authorId AND f.status = 'ACCEPTED'
+    ) fr
+    JOIN posts p ON p.user_id = :authorId
+    WHERE NOT EXISTS (
+          SELECT 1
+          FROM timeline_entries t
+          WHERE t.owner_id = fr.friend_id AND t.post_id = p.id
+      )
+    """, nativeQuery = true)
+    int pushAuthorPostsToFriends(@Param("authorId") Long authorId);
+}
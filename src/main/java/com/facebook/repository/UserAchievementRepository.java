@@ -4,6 +4,9 @@ import com.facebook.model.Achievement;
 import com.facebook.model.User;
 import com.facebook.model.UserAchievement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,4 +14,17 @@ import java.util.Optional;
 public interface UserAchievementRepository extends JpaRepository<UserAchievement, Long> {
     Optional<UserAchievement> findByUserAndAchievement(User user, Achievement achievement);
     Optional<List<UserAchievement>> findAllByUser(User user);
+
+    @Query("SELECT ua.achievement.id FROM UserAchievement ua WHERE ua.user.id = :userId")
+    List<Long> findAchievementIdsByUserId(@Param("userId") Long userId);
+
+    // Skips deleted users and awards the user already has by the unique (user_id, achievement_id) index
+    @Modifying
+    @Query(value = """
+            INSERT IGNORE INTO user_achievements (user_id, achievement_id, created_at)
+            SELECT u.id, :achievementId, CURRENT_TIMESTAMP
+            FROM users u
+            WHERE u.id = :userId
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("achievementId") Long achievementId);
 }
@@ -1,12 +1,16 @@
 package com.facebook.repository;
 
 import com.facebook.model.User;
+import com.facebook.repository.projection.UserShortView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,11 +19,37 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Page<User> findAllByIdNotOrderByCreatedDateDesc(Long excludedUserId, Pageable pageable);
 
+    Slice<User> findSliceByIdNotOrderByCreatedDateDesc(Long excludedUserId, Pageable pageable);
+
     List<User> findAllByIdNot(Long excludedUserId);
 
     List<User> findTop40ByIdNot(Long excludedUserId);
 
-    List<User> findTop40ByIdNotOrderByCreatedDateDesc(Long excludedUserId);
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("""
+    SELECT u.id AS id, u.firstName AS firstName, u.lastName AS lastName,
+           u.avatarUrl AS avatarUrl, u.birthdate AS birthdate
+    FROM User u
+    WHERE u.id IN :userIds
+    """)
+    List<UserShortView> findShortByIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Query(value = "SELECT friends_count FROM users WHERE id = :userId", nativeQuery = true)
+    int getFriendsCount(@Param("userId") long userId);
+
+    @Modifying
+    @Query(value = "UPDATE users SET friends_count = friends_count + :delta WHERE id IN :userIds", nativeQuery = true)
+    int adjustFriendsCount(@Param("userIds") List<Long> userIds, @Param("delta") int delta);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_affinities (user_id, author_id, score)
+            VALUES (:userId, :authorId, GREATEST(:delta, 0))
+            ON DUPLICATE KEY UPDATE score = GREATEST(score + :delta, 0)
+            """, nativeQuery = true)
+    int adjustAffinity(@Param("userId") long userId, @Param("authorId") long authorId, @Param("delta") double delta);
 
     @Query(value = """
                     SELECT u.*
@@ -28,8 +58,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
                     	AND NOT EXISTS (
                     		SELECT 1
                             FROM friends fr
-                            WHERE (fr.user_id = :userId AND fr.friend_id = u.id)
-                    			OR (fr.user_id = u.id AND fr.friend_id = :userId)
+                            WHERE fr.low_id = LEAST(:userId, u.id) AND fr.high_id = GREATEST(:userId, u.id)
                     	)
             """, nativeQuery = true)
     Optional<List<User>> searchByFullNamePrefix(@Param("userId") long userId, @Param("query") String query);
@@ -49,8 +78,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
                     	AND NOT EXISTS (
                     		SELECT 1
                     		FROM friends fr
-                    		WHERE (fr.user_id = :userId AND fr.friend_id = u.id)
-                    			OR (fr.user_id = u.id AND fr.friend_id = :userId)
+                    		WHERE fr.low_id = LEAST(:userId, u.id) AND fr.high_id = GREATEST(:userId, u.id)
                     	)
             """, nativeQuery = true)
     Optional<List<User>> searchByTwoWords(
@@ -66,8 +94,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
                     	AND NOT EXISTS (
                     		SELECT 1
                             FROM friends fr
-                            WHERE (fr.user_id = :userId AND fr.friend_id = u.id)
-                    			OR (fr.user_id = u.id AND fr.friend_id = :userId)
+                            WHERE fr.low_id = LEAST(:userId, u.id) AND fr.high_id = GREATEST(:userId, u.id)
                     	)
             """, nativeQuery = true)
     Optional<List<User>> searchByFullNameContains(@Param("userId") long userId, @Param("query") String query);
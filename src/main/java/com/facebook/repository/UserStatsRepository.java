@@ -0,0 +1,105 @@
+package com.facebook.repository;
+
+import com.facebook.model.UserStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Counters of {@code user_stats}, changed in the transaction of each write, so achievement thresholds
+ * are checked without counting the source tables. A missing row stands for a user without activity.
+ * New likes are counted in batches by {@link com.facebook.service.LikeBufferService} when they are flushed.
+ */
+public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_stats (user_id, posts_count, posts_with_images_count)
+            VALUES (:userId, GREATEST(:delta, 0), GREATEST(:withImagesDelta, 0))
+            ON DUPLICATE KEY UPDATE posts_count = posts_count + :delta,
+                                    posts_with_images_count = posts_with_images_count + :withImagesDelta
+            """, nativeQuery = true)
+    int adjustPostsCount(
+            @Param("userId") long userId,
+            @Param("delta") int delta,
+            @Param("withImagesDelta") int withImagesDelta
+    );
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_stats (user_id, comments_count)
+            VALUES (:userId, GREATEST(:delta, 0))
+            ON DUPLICATE KEY UPDATE comments_count = comments_count + :delta
+            """, nativeQuery = true)
+    int adjustCommentsCount(@Param("userId") long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_stats (user_id, likes_received_count)
+            VALUES (:userId, GREATEST(:delta, 0))
+            ON DUPLICATE KEY UPDATE likes_received_count = likes_received_count + :delta
+            """, nativeQuery = true)
+    int adjustLikesReceivedCount(@Param("userId") long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_stats (user_id, reposts_count)
+            VALUES (:userId, GREATEST(:delta, 0))
+            ON DUPLICATE KEY UPDATE reposts_count = reposts_count + :delta
+            """, nativeQuery = true)
+    int adjustRepostsCount(@Param("userId") long userId, @Param("delta") int delta);
+
+    // Comments and reposts of other users on a post that is about to be deleted with them
+    @Modifying
+    @Query(value = """
+            UPDATE user_stats
+            SET comments_count = comments_count
+                    - (SELECT COUNT(*) FROM comments c WHERE c.post_id = :postId AND c.user_id = user_stats.user_id),
+                reposts_count = reposts_count
+                    - (SELECT COUNT(*) FROM reposts r WHERE r.post_id = :postId AND r.user_id = user_stats.user_id)
+            WHERE user_id IN (SELECT c.user_id FROM comments c WHERE c.post_id = :postId)
+               OR user_id IN (SELECT r.user_id FROM reposts r WHERE r.post_id = :postId)
+            """, nativeQuery = true)
+    int subtractPostInteractions(@Param("postId") long postId);
+
+    // Users among the given ones whose counters differ from the source tables
+    @Query(value = """
+            SELECT u.id
+            FROM users u
+            LEFT JOIN user_stats s ON s.user_id = u.id
+            WHERE u.id IN (:userIds)
+              AND (COALESCE(s.posts_count, 0) <> (SELECT COUNT(*) FROM posts p WHERE p.user_id = u.id)
+                OR COALESCE(s.posts_with_images_count, 0) <> (
+                    SELECT COUNT(*) FROM posts p
+                    WHERE p.user_id = u.id AND EXISTS (SELECT 1 FROM post_images i WHERE i.post_id = p.id))
+                OR COALESCE(s.comments_count, 0) <> (SELECT COUNT(*) FROM comments c WHERE c.user_id = u.id)
+                OR COALESCE(s.likes_received_count, 0) <> (
+                    SELECT COUNT(*) FROM likes l JOIN posts p ON p.id = l.post_id WHERE p.user_id = u.id)
+                OR COALESCE(s.reposts_count, 0) <> (SELECT COUNT(*) FROM reposts r WHERE r.user_id = u.id))
+            """, nativeQuery = true)
+    List<Long> findDriftedUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_stats WHERE user_id IN (:userIds)", nativeQuery = true)
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // Recounts the users from the source tables, after their rows are deleted
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_stats (user_id, posts_count, posts_with_images_count, comments_count,
+                                    likes_received_count, reposts_count)
+            SELECT u.id,
+                   (SELECT COUNT(*) FROM posts p WHERE p.user_id = u.id),
+                   (SELECT COUNT(*) FROM posts p WHERE p.user_id = u.id
+                        AND EXISTS (SELECT 1 FROM post_images i WHERE i.post_id = p.id)),
+                   (SELECT COUNT(*) FROM comments c WHERE c.user_id = u.id),
+                   (SELECT COUNT(*) FROM likes l JOIN posts p ON p.id = l.post_id WHERE p.user_id = u.id),
+                   (SELECT COUNT(*) FROM reposts r WHERE r.user_id = u.id)
+            FROM users u
+            WHERE u.id IN (:userIds)
+            """, nativeQuery = true)
+    int insertRecounted(@Param("userIds") Collection<Long> userIds);
+}
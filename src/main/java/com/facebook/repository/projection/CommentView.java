@@ -0,0 +1,25 @@
+package com.facebook.repository.projection;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+// A comment with its author's short profile, selected without hydrating Comment or User entities
+public interface CommentView {
+    Long getId();
+
+    Long getPostId();
+
+    String getText();
+
+    LocalDateTime getCreatedDate();
+
+    Long getUserId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getAvatarUrl();
+
+    Date getBirthdate();
+}
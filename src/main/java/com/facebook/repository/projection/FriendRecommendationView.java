@@ -0,0 +1,6 @@
+package com.facebook.repository.projection;
+
+// A stored friend recommendation with the candidate's short profile
+public interface FriendRecommendationView extends UserShortView {
+    int getMutualFriendsCount();
+}
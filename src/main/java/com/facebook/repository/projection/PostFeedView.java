@@ -0,0 +1,32 @@
+package com.facebook.repository.projection;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * Read model of a feed row: the post, its counters and the author's short profile,
+ * selected in one query without hydrating {@code Post} or {@code User} entities.
+ */
+public interface PostFeedView {
+    Long getId();
+
+    String getText();
+
+    LocalDateTime getCreatedDate();
+
+    int getLikesCount();
+
+    int getCommentsCount();
+
+    int getRepostsCount();
+
+    Long getUserId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getAvatarUrl();
+
+    Date getBirthdate();
+}
@@ -0,0 +1,8 @@
+package com.facebook.repository.projection;
+
+public interface PostGroupView {
+    // Null for posts outside of groups
+    Long getGroupId();
+
+    Boolean getPrivateGroup();
+}
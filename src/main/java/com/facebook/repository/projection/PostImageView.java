@@ -0,0 +1,7 @@
+package com.facebook.repository.projection;
+
+public interface PostImageView {
+    Long getPostId();
+
+    String getUrl();
+}
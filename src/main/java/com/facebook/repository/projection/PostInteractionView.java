@@ -0,0 +1,8 @@
+package com.facebook.repository.projection;
+
+public interface PostInteractionView {
+    Long getPostId();
+
+    // "like" or "repost"
+    String getInteraction();
+}
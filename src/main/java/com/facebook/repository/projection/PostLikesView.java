@@ -0,0 +1,7 @@
+package com.facebook.repository.projection;
+
+public interface PostLikesView {
+    Long getPostId();
+
+    int getLikesCount();
+}
@@ -0,0 +1,15 @@
+package com.facebook.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Candidate of the ranked feed: the post's position in the chronological feed and its score for the reader.
+ * The page itself is read with {@link PostFeedView}s once the candidates are ranked.
+ */
+public interface RankedPostView {
+    Long getId();
+
+    LocalDateTime getCreatedDate();
+
+    double getScore();
+}
@@ -0,0 +1,16 @@
+package com.facebook.repository.projection;
+
+import java.util.Date;
+
+// A user's short profile, selected without hydrating the User entity
+public interface UserShortView {
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getAvatarUrl();
+
+    Date getBirthdate();
+}
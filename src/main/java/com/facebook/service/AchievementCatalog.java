@@ -0,0 +1,113 @@
+package com.facebook.service;
+
+import com.facebook.dto.AchievementResponseDto;
+import com.facebook.enums.AchievementCounter;
+import com.facebook.enums.Achievements;
+import com.facebook.model.Achievement;
+import com.facebook.repository.AchievementRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The static {@code achievements} table, loaded once on startup and indexed by {@link Achievements}.
+ * Each achievement is identified by the ordinal of its enum constant, which is its bit in a user's achievement set.
+ * The rules of the achievements in the table are indexed by the counter they compare.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AchievementCatalog {
+    private final AchievementRepository achievementRepository;
+    private final ModelMapper modelMapper;
+
+    private volatile Map<Achievements, Achievement> byAchievement = Map.of();
+    private volatile Map<Long, Achievements> byId = Map.of();
+    private volatile Map<Achievements, AchievementResponseDto> responses = Map.of();
+    private volatile Map<AchievementCounter, List<Achievements>> rulesByCounter = Map.of();
+
+    @PostConstruct
+    public void load() {
+        if (Achievements.values().length > Long.SIZE) {
+            throw new IllegalStateException("Achievement sets hold at most " + Long.SIZE + " achievements");
+        }
+
+        Map<String, Achievements> byName = new HashMap<>();
+        for (Achievements achievement : Achievements.values()) {
+            byName.put(achievement.toString(), achievement);
+        }
+
+        Map<Achievements, Achievement> achievements = new EnumMap<>(Achievements.class);
+        Map<Long, Achievements> ids = new HashMap<>();
+        Map<Achievements, AchievementResponseDto> dtos = new EnumMap<>(Achievements.class);
+
+        for (Achievement row : achievementRepository.findAll()) {
+            Achievements achievement = byName.get(row.getName());
+
+            if (achievement == null) {
+                log.warn("Achievement '{}' has no constant in Achievements and is ignored", row.getName());
+                continue;
+            }
+
+            achievements.put(achievement, row);
+            ids.put(row.getId(), achievement);
+            dtos.put(achievement, modelMapper.map(row, AchievementResponseDto.class));
+        }
+
+        // Rules of each counter, so an event evaluates only the rules of the counters it changes
+        Map<AchievementCounter, List<Achievements>> rules = new EnumMap<>(AchievementCounter.class);
+        achievements.keySet().stream()
+                .filter(achievement -> achievement.getRule() != null)
+                .forEach(achievement -> rules
+                        .computeIfAbsent(achievement.getRule().counter(), counter -> new ArrayList<>())
+                        .add(achievement));
+        rules.replaceAll((counter, counterRules) -> List.copyOf(counterRules));
+
+        byAchievement = Collections.unmodifiableMap(achievements);
+        byId = Map.copyOf(ids);
+        responses = Collections.unmodifiableMap(dtos);
+        rulesByCounter = Collections.unmodifiableMap(rules);
+    }
+
+    public Achievement get(Achievements achievement) {
+        Achievement row = byAchievement.get(achievement);
+
+        if (row == null) {
+            throw new IllegalArgumentException("Unknown achievement name: " + achievement);
+        }
+
+        return row;
+    }
+
+    // Null for ids that are not in the catalog
+    public Achievements findById(Long id) {
+        return byId.get(id);
+    }
+
+    // Achievements awarded by a rule over the counter, empty if none
+    public List<Achievements> getRules(AchievementCounter counter) {
+        return rulesByCounter.getOrDefault(counter, List.of());
+    }
+
+    public Set<AchievementCounter> getRuleCounters() {
+        return rulesByCounter.keySet();
+    }
+
+    public AchievementResponseDto toResponse(Achievements achievement) {
+        return responses.get(achievement);
+    }
+
+    public static long bit(Achievements achievement) {
+        return 1L << achievement.ordinal();
+    }
+}
@@ -0,0 +1,345 @@
+package com.facebook.service;
+
+import com.facebook.enums.AchievementCounter;
+import com.facebook.enums.AchievementEventType;
+import com.facebook.enums.Achievements;
+import com.facebook.event.PostCommentedEvent;
+import com.facebook.event.PostCreatedEvent;
+import com.facebook.event.PostLikedEvent;
+import com.facebook.event.ProfileUpdatedEvent;
+import com.facebook.model.AchievementEvent;
+import com.facebook.model.User;
+import com.facebook.model.UserStats;
+import com.facebook.repository.AchievementEventRepository;
+import com.facebook.repository.PostRepository;
+import com.facebook.repository.UserRepository;
+import com.facebook.repository.UserStatsRepository;
+import com.facebook.repository.projection.PostLikesView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Awards achievements off the request path, by the rules bound to {@link Achievements}. Post, like, comment
+ * and profile events are written to the {@code achievement_events} outbox in the transaction of their write,
+ * then handed to a worker thread through a bounded queue once committed. The worker evaluates them in batches
+ * and deletes them with the awards.
+ * Events that do not fit in the queue, or whose batch failed, stay in the outbox and are picked up by the sweep,
+ * so every committed event is evaluated at least once and awards are idempotent.
+ * Each event type names the counters it changes, and only the rules over those counters are evaluated for it.
+ * Exposes {@code achievements.queue.size}, {@code achievements.events} (tagged processed/deferred/failed)
+ * and {@code achievements.batch} meters.
+ */
+@Slf4j
+@Service
+public class AchievementEngine {
+    private final AchievementEventRepository achievementEventRepository;
+    private final UserStatsRepository userStatsRepository;
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final UserAchievementService userAchievementService;
+    private final AchievementCatalog achievementCatalog;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<AchievementEvent> queue;
+    private final int batchSize;
+    private final Duration sweepAfter;
+    private final Counter processed;
+    private final Counter deferred;
+    private final Counter failed;
+    private final Timer batchTimer;
+    private volatile boolean running;
+    private Thread worker;
+
+    public AchievementEngine(
+            AchievementEventRepository achievementEventRepository,
+            UserStatsRepository userStatsRepository,
+            PostRepository postRepository,
+            UserRepository userRepository,
+            UserAchievementService userAchievementService,
+            AchievementCatalog achievementCatalog,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.achievements.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.achievements.batch-size:200}") int batchSize,
+            @Value("${app.achievements.sweep-after:1m}") Duration sweepAfter
+    ) {
+        this.achievementEventRepository = achievementEventRepository;
+        this.userStatsRepository = userStatsRepository;
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.userAchievementService = userAchievementService;
+        this.achievementCatalog = achievementCatalog;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.sweepAfter = sweepAfter;
+
+        this.processed = Counter.builder("achievements.events").tag("result", "processed").register(meterRegistry);
+        this.deferred = Counter.builder("achievements.events").tag("result", "deferred").register(meterRegistry);
+        this.failed = Counter.builder("achievements.events").tag("result", "failed").register(meterRegistry);
+        this.batchTimer = Timer.builder("achievements.batch").register(meterRegistry);
+        Gauge.builder("achievements.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().name("achievement-engine").daemon().start(this::work);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onPostCreated(PostCreatedEvent event) {
+        record(AchievementEventType.POST_CREATED, event.getAuthorId(), event.getPostId());
+    }
+
+    // Published by the like buffer when it flushes, only likes of others count towards the author's achievements
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onPostLiked(PostLikedEvent event) {
+        if (event.isLiked() && !event.getAuthorId().equals(event.getUserId())) {
+            record(AchievementEventType.POST_LIKED, event.getAuthorId(), event.getPostId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onPostCommented(PostCommentedEvent event) {
+        if (event.isAdded()) {
+            record(AchievementEventType.COMMENT_ADDED, event.getUserId(), event.getPostId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onProfileUpdated(ProfileUpdatedEvent event) {
+        record(AchievementEventType.PROFILE_UPDATED, event.getUserId(), null);
+    }
+
+    // Evaluates the queued events on the calling thread
+    public int drain() {
+        int drained = 0;
+        List<AchievementEvent> batch = new ArrayList<>(batchSize);
+
+        while (queue.drainTo(batch, batchSize) > 0) {
+            process(batch);
+            drained += batch.size();
+            batch.clear();
+        }
+
+        return drained;
+    }
+
+    /**
+     * Evaluates the events left in the outbox for longer than {@code app.achievements.sweep-after}:
+     * deferred by a full queue, failed, or left unprocessed by a restart.
+     */
+    @Scheduled(
+            initialDelayString = "${app.achievements.sweep-interval-ms:60000}",
+            fixedDelayString = "${app.achievements.sweep-interval-ms:60000}"
+    )
+    public synchronized int sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(sweepAfter);
+        int swept = 0;
+        List<AchievementEvent> events;
+
+        do {
+            events = achievementEventRepository.findAllByCreatedDateBeforeOrderByIdAsc(
+                    cutoff, PageRequest.of(0, batchSize));
+
+            if (!events.isEmpty() && !process(events)) {
+                break;
+            }
+
+            swept += events.size();
+        } while (events.size() == batchSize);
+
+        if (swept > 0) {
+            log.info("Achievements: {} outbox events swept", swept);
+        }
+
+        return swept;
+    }
+
+    private void work() {
+        List<AchievementEvent> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            try {
+                AchievementEvent first = queue.poll(1, TimeUnit.SECONDS);
+
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    process(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void record(AchievementEventType type, Long userId, Long postId) {
+        AchievementEvent event = achievementEventRepository.save(
+                new AchievementEvent(null, type, userId, postId, LocalDateTime.now()));
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(event);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(event);
+            }
+        });
+    }
+
+    // Never blocks the writer, an event that does not fit waits in the outbox for the sweep
+    private void enqueue(AchievementEvent event) {
+        if (!queue.offer(event)) {
+            deferred.increment();
+        }
+    }
+
+    // A failed batch is left in the outbox and retried by the sweep
+    private boolean process(List<AchievementEvent> events) {
+        try {
+            batchTimer.record(() -> transactionTemplate.executeWithoutResult(status -> evaluate(events)));
+            processed.increment(events.size());
+
+            return true;
+        } catch (RuntimeException e) {
+            failed.increment(events.size());
+            log.error("Achievements: batch of {} events failed, left for the sweep", events.size(), e);
+
+            return false;
+        }
+    }
+
+    private void evaluate(List<AchievementEvent> events) {
+        Set<Long> statsUserIds = new HashSet<>();
+        Set<Long> postIds = new HashSet<>();
+        Set<Long> profileUserIds = new HashSet<>();
+
+        // Only the counters some rule depends on are read
+        for (AchievementEvent event : events) {
+            for (AchievementCounter counter : event.getType().getCounters()) {
+                if (achievementCatalog.getRules(counter).isEmpty()) {
+                    continue;
+                }
+
+                switch (counter.getScope()) {
+                    case USER_STATS -> statsUserIds.add(event.getUserId());
+                    case PROFILE -> profileUserIds.add(event.getUserId());
+                    case POST -> postIds.add(event.getPostId());
+                }
+            }
+        }
+
+        Counters counters = new Counters(
+                statsUserIds.isEmpty() ? Map.of() : userStatsRepository
+                        .findAllById(statsUserIds).stream()
+                        .collect(Collectors.toMap(UserStats::getUserId, Function.identity())),
+                postIds.isEmpty() ? Map.of() : postRepository
+                        .findLikesCounts(postIds).stream()
+                        .collect(Collectors.toMap(PostLikesView::getPostId, PostLikesView::getLikesCount)),
+                profileUserIds.isEmpty() ? Map.of() : userRepository
+                        .findAllById(profileUserIds).stream()
+                        .collect(Collectors.toMap(User::getId, Function.identity()))
+        );
+
+        Set<Award> awards = new LinkedHashSet<>();
+        for (AchievementEvent event : events) {
+            for (AchievementCounter counter : event.getType().getCounters()) {
+                List<Achievements> rules = achievementCatalog.getRules(counter);
+
+                if (rules.isEmpty()) {
+                    continue;
+                }
+
+                long value = counters.valueOf(counter, event);
+                rules.stream()
+                        .filter(achievement -> achievement.getRule().matches(value))
+                        .forEach(achievement -> awards.add(new Award(event.getUserId(), achievement)));
+            }
+        }
+
+        awards.forEach(award -> userAchievementService.awardAchievement(award.userId(), award.achievement()));
+        achievementEventRepository.deleteAllByIdInBatch(events.stream().map(AchievementEvent::getId).toList());
+    }
+
+    private static int filledProfileFields(User user) {
+        return (int) Stream.of(
+                user.getFirstName(),
+                user.getLastName(),
+                user.getPhone(),
+                user.getBirthdate(),
+                user.getAvatarUrl(),
+                user.getHeaderPhotoUrl(),
+                user.getHomeCity(),
+                user.getCurrentCity()
+        ).filter(Objects::nonNull).count();
+    }
+
+    // Counters read for a batch, missing rows count as zero
+    private record Counters(Map<Long, UserStats> stats, Map<Long, Integer> postLikes, Map<Long, User> users) {
+        long valueOf(AchievementCounter counter, AchievementEvent event) {
+            UserStats userStats = stats.getOrDefault(event.getUserId(), new UserStats());
+
+            return switch (counter) {
+                case POSTS -> userStats.getPostsCount();
+                case POSTS_WITH_IMAGES -> userStats.getPostsWithImagesCount();
+                case COMMENTS -> userStats.getCommentsCount();
+                case LIKES_RECEIVED -> userStats.getLikesReceivedCount();
+                case PROFILE_FIELDS -> users.containsKey(event.getUserId())
+                        ? filledProfileFields(users.get(event.getUserId()))
+                        : 0;
+                case POST_LIKES -> postLikes.getOrDefault(event.getPostId(), 0);
+            };
+        }
+    }
+
+    private record Award(Long userId, Achievements achievement) {
+    }
+}
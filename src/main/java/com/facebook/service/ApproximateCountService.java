@@ -0,0 +1,72 @@
+package com.facebook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * Cached totals for paged endpoints in the approximate count mode.
+ * A total is counted once, then served from the cache and recounted in the background
+ * when older than {@code app.pagination.approximate-count.refresh-after}.
+ */
+@Slf4j
+@Service
+public class ApproximateCountService {
+    private final Cache<String, CachedCount> counts;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Executor executor;
+    private final long refreshAfterNanos;
+
+    public ApproximateCountService(
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor,
+            @Value("${app.pagination.approximate-count.refresh-after:5m}") Duration refreshAfter,
+            @Value("${app.pagination.approximate-count.max-entries:10000}") long maxEntries
+    ) {
+        this.executor = executor;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    public long getCount(String key, LongSupplier counter) {
+        CachedCount cached = counts.getIfPresent(key);
+
+        if (cached == null) {
+            long count = counter.getAsLong();
+            counts.put(key, new CachedCount(count, System.nanoTime()));
+
+            return count;
+        }
+
+        // Only one recount per key at a time, readers keep getting the previous total meanwhile
+        if (System.nanoTime() - cached.countedAt() >= refreshAfterNanos && refreshing.add(key)) {
+            executor.execute(() -> refresh(key, counter));
+        }
+
+        return cached.count();
+    }
+
+    private void refresh(String key, LongSupplier counter) {
+        try {
+            counts.put(key, new CachedCount(counter.getAsLong(), System.nanoTime()));
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh approximate count {}: {}", key, e.getMessage());
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    private record CachedCount(long count, long countedAt) {
+    }
+}
@@ -1,8 +1,10 @@
 package com.facebook.service;
 
 import com.facebook.dto.CommentResponseDto;
+import com.facebook.dto.CursorPageResponseDto;
 import com.facebook.dto.UserShortDto;
-import com.facebook.enums.Achievements;
+import com.facebook.event.PostCommentedEvent;
+import com.facebook.event.PostUpdatedEvent;
 import com.facebook.exception.NotFoundException;
 import com.facebook.model.Comment;
 import com.facebook.model.Post;
@@ -10,12 +12,20 @@ import com.facebook.model.User;
 import com.facebook.repository.CommentRepository;
 import com.facebook.repository.PostRepository;
 import com.facebook.repository.UserRepository;
+import com.facebook.repository.UserStatsRepository;
+import com.facebook.repository.projection.CommentView;
+import com.facebook.util.FeedCursor;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,9 +33,11 @@ public class CommentService {
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
+    private final UserStatsRepository userStatsRepository;
     private final ModelMapper modelMapper;
-    private final UserAchievementService userAchievementService;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Transactional
     public CommentResponseDto addComment(Long postId, Long userId, String text) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new NotFoundException("Not found post with ID: " + postId));
@@ -38,18 +50,10 @@ public class CommentService {
         comment.setUser(user);
         comment.setText(text);
 
-        post.getComments().add(comment);
-        postRepository.save(post);
-
-        int userComments = post.getComments().stream()
-                .filter(c -> c.getUser().getId().equals(user.getId()))
-                .toList().size();
-
-        if (userComments == 25 &&
-                !userAchievementService.userHaveAchievement(user, Achievements.COMMENT_KING.toString())
-        ) {
-            userAchievementService.awardAchievement(user, Achievements.COMMENT_KING.toString());
-        }
+        commentRepository.save(comment);
+        postRepository.adjustCommentsCount(postId, 1);
+        userStatsRepository.adjustCommentsCount(userId, 1);
+        eventPublisher.publishEvent(new PostCommentedEvent(postId, post.getUser().getId(), userId, true));
 
         return new CommentResponseDto(
                 comment.getId(),
@@ -69,30 +73,53 @@ public class CommentService {
 
         comment.setText(newText);
         commentRepository.save(comment);
+        // Feeds show the latest comments of a post
+        Post post = comment.getPost();
+        eventPublisher.publishEvent(new PostUpdatedEvent(post.getId(), post.getUser().getId()));
     }
 
-    public List<CommentResponseDto> getPostComments(Long postId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new NotFoundException("Not found post with ID: " + postId));
+    public CursorPageResponseDto<CommentResponseDto> getPostComments(Long postId, String cursor, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+
+        if (!postRepository.existsById(postId)) {
+            throw new NotFoundException("Not found post with ID: " + postId);
+        }
+
+        FeedCursor position = FeedCursor.decode(cursor);
+
+        // One extra row tells whether there is a next page without counting the comments
+        List<CommentView> comments = commentRepository.getPostCommentsBefore(
+                postId, position.getCreatedDate(), position.getId(), PageRequest.of(0, size + 1));
+
+        boolean hasNext = comments.size() > size;
+        List<CommentView> pageComments = hasNext ? comments.subList(0, size) : comments;
 
-        if (post.getComments().isEmpty()) {
-            return new ArrayList<>();
+        String nextCursor = null;
+        if (hasNext) {
+            CommentView lastComment = pageComments.getLast();
+            nextCursor = FeedCursor.encode(lastComment.getCreatedDate(), lastComment.getId());
         }
 
-        return post.getComments().stream()
-                .map(comment -> {
-                    User user = comment.getUser();
-
-                    return new CommentResponseDto(
-                            comment.getId(),
-                            modelMapper.map(user, UserShortDto.class),
-                            comment.getText(),
-                            comment.getCreatedDate()
-                    );
-                })
-                .toList();
+        return new CursorPageResponseDto<>(pageComments.stream().map(this::mapToResponse).toList(),
+                size, nextCursor, hasNext, null);
     }
 
+    // Newest comments of each post, newest first, for previews on pages of posts
+    public Map<Long, List<CommentResponseDto>> getLatestComments(Collection<Long> postIds, int limit) {
+        if (postIds.isEmpty() || limit <= 0) {
+            return Map.of();
+        }
+
+        return commentRepository.findLatestByPostIds(postIds, limit).stream()
+                .collect(Collectors.groupingBy(
+                        CommentView::getPostId,
+                        Collectors.mapping(this::mapToResponse, Collectors.toList())
+                ));
+    }
+
+    @Transactional
     public void deleteComment(Long commentId, Long userId) {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new NotFoundException("Not found comment with ID: " + commentId));
@@ -102,5 +129,24 @@ public class CommentService {
         }
 
         commentRepository.delete(comment);
+        Post post = comment.getPost();
+        postRepository.adjustCommentsCount(post.getId(), -1);
+        userStatsRepository.adjustCommentsCount(userId, -1);
+        eventPublisher.publishEvent(new PostCommentedEvent(post.getId(), post.getUser().getId(), userId, false));
+    }
+
+    private CommentResponseDto mapToResponse(CommentView comment) {
+        return new CommentResponseDto(
+                comment.getId(),
+                new UserShortDto(
+                        comment.getUserId(),
+                        comment.getFirstName(),
+                        comment.getLastName(),
+                        comment.getAvatarUrl(),
+                        comment.getBirthdate()
+                ),
+                comment.getText(),
+                comment.getCreatedDate()
+        );
     }
 }
@@ -0,0 +1,221 @@
+package com.facebook.service;
+
+import com.facebook.dto.CursorPageResponseDto;
+import com.facebook.dto.PostResponseDto;
+import com.facebook.event.FriendshipChangedEvent;
+import com.facebook.event.PostEvent;
+import com.facebook.event.PostLikedEvent;
+import com.facebook.event.PostRepostedEvent;
+import com.facebook.event.ProfileUpdatedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of the first home feed pages of each user.
+ * Bounded by the total number of cached posts and by a TTL, and invalidated by post, profile and friendship events.
+ * Each user's feed also has a version that changes on every invalidation and serves as the feed ETag.
+ * Exposes {@code feed.cache.gets} (tagged hit/miss), {@code feed.cache.posts}, {@code feed.cache.users}
+ * and {@code feed.cache.evictions} meters.
+ */
+@Service
+public class FeedCacheService {
+    private final FriendGraph friendGraph;
+    private final Cache<Long, UserPages> pages;
+    private final Cache<Long, Long> versions;
+    // Seeded from the clock so versions handed out before a restart are not reused
+    private final AtomicLong nextVersion = new AtomicLong(System.currentTimeMillis());
+    private final int pagesPerUser;
+    private final Counter hits;
+    private final Counter misses;
+
+    public FeedCacheService(
+            FriendGraph friendGraph,
+            MeterRegistry meterRegistry,
+            @Value("${app.feed.cache.max-posts:20000}") long maxPosts,
+            @Value("${app.feed.cache.pages-per-user:3}") int pagesPerUser,
+            @Value("${app.feed.cache.ttl:30s}") Duration ttl,
+            @Value("${app.feed.cache.max-versions:100000}") long maxVersions
+    ) {
+        this.friendGraph = friendGraph;
+        this.pagesPerUser = pagesPerUser;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxPosts)
+                .weigher((Long userId, UserPages userPages) -> userPages.weight())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxVersions)
+                .build();
+
+        this.hits = Counter.builder("feed.cache.gets").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("feed.cache.gets").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("feed.cache.users", pages, Cache::estimatedSize).register(meterRegistry);
+        Gauge.builder("feed.cache.posts", pages, cache -> cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L)).register(meterRegistry);
+        FunctionCounter.builder("feed.cache.evictions", pages, cache -> cache.stats().evictionCount())
+                .register(meterRegistry);
+    }
+
+    public long getVersion(Long userId) {
+        return versions.get(userId, id -> nextVersion.incrementAndGet());
+    }
+
+    public CursorPageResponseDto<PostResponseDto> getPage(
+            Long userId,
+            String cursor,
+            int size,
+            Supplier<CursorPageResponseDto<PostResponseDto>> loader
+    ) {
+        String pageKey = size + ":" + (cursor == null ? "" : cursor);
+        long version = getVersion(userId);
+
+        UserPages userPages = pages.getIfPresent(userId);
+        CursorPageResponseDto<PostResponseDto> page =
+                userPages == null || userPages.version() != version ? null : userPages.pages().get(pageKey);
+
+        if (page != null) {
+            hits.increment();
+            return page;
+        }
+
+        misses.increment();
+        CursorPageResponseDto<PostResponseDto> loadedPage = loader.get();
+
+        pages.asMap().compute(userId, (id, cachedPages) -> {
+            // The feed changed while loading, the page may already be stale
+            if (!Objects.equals(versions.getIfPresent(userId), version)) {
+                return cachedPages;
+            }
+
+            Map<String, CursorPageResponseDto<PostResponseDto>> currentPages =
+                    cachedPages == null || cachedPages.version() != version ? Map.of() : cachedPages.pages();
+
+            // Users page from the top, so only keeping the first pages per user keeps the cache to the hot part of feeds
+            if (currentPages.size() >= pagesPerUser) {
+                return cachedPages;
+            }
+
+            Map<String, CursorPageResponseDto<PostResponseDto>> updatedPages = new HashMap<>(currentPages);
+            updatedPages.put(pageKey, loadedPage);
+
+            return new UserPages(version, Map.copyOf(updatedPages));
+        });
+
+        return loadedPage;
+    }
+
+    /**
+     * A post shows up only in its author's and their friends' feeds. The feeds are invalidated once the transaction
+     * commits, together for all events it published, so a like flush looks up and clears each author's friends once
+     * however many likes it applied.
+     */
+    @EventListener
+    public void onPostEvent(PostEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingInvalidation invalidation = new PendingInvalidation();
+            invalidation.add(event);
+            invalidation.run();
+            return;
+        }
+
+        PendingInvalidation invalidation = (PendingInvalidation) TransactionSynchronizationManager.getResource(this);
+        if (invalidation == null) {
+            PendingInvalidation newInvalidation = new PendingInvalidation();
+            TransactionSynchronizationManager.bindResource(this, newInvalidation);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(FeedCacheService.this);
+
+                    if (status == STATUS_COMMITTED) {
+                        newInvalidation.run();
+                    }
+                }
+            });
+            invalidation = newInvalidation;
+        }
+
+        invalidation.add(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        invalidate(List.of(event.getUserId(), event.getFriendId()));
+    }
+
+    // The author's name and avatar are shown on their posts in their own and their friends' feeds
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProfileUpdated(ProfileUpdatedEvent event) {
+        Set<Long> userIds = new HashSet<>();
+        userIds.add(event.getUserId());
+        for (long friendId : friendGraph.getFriendIds(event.getUserId())) {
+            userIds.add(friendId);
+        }
+
+        invalidate(userIds);
+    }
+
+    // Changes the versions of the users' feeds and drops their cached pages
+    public void invalidate(Collection<Long> userIds) {
+        versions.invalidateAll(userIds);
+        pages.invalidateAll(userIds);
+    }
+
+    // Authors whose friends' feeds show the changed posts, and users whose own state on a post changed
+    private final class PendingInvalidation {
+        private final Set<Long> authorIds = new HashSet<>();
+        private final Set<Long> userIds = new HashSet<>();
+
+        void add(PostEvent event) {
+            authorIds.add(event.getAuthorId());
+
+            // Likes and reposts also change the likedByMe and repostedByMe state of the user, wherever they see the post
+            if (event instanceof PostLikedEvent liked) {
+                userIds.add(liked.getUserId());
+            } else if (event instanceof PostRepostedEvent reposted) {
+                userIds.add(reposted.getUserId());
+            }
+        }
+
+        void run() {
+            for (Long authorId : authorIds) {
+                userIds.add(authorId);
+
+                for (long friendId : friendGraph.getFriendIds(authorId)) {
+                    userIds.add(friendId);
+                }
+            }
+
+            invalidate(userIds);
+        }
+    }
+
+    private record UserPages(long version, Map<String, CursorPageResponseDto<PostResponseDto>> pages) {
+        int weight() {
+            return pages.values().stream().mapToInt(page -> page.getContent().size()).sum();
+        }
+    }
+}
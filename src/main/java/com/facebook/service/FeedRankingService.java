@@ -0,0 +1,60 @@
+package com.facebook.service;
+
+import com.facebook.event.PostCommentedEvent;
+import com.facebook.event.PostCreatedEvent;
+import com.facebook.event.PostLikedEvent;
+import com.facebook.event.PostRepostedEvent;
+import com.facebook.repository.PostRepository;
+import com.facebook.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps the scores of the ranked feed up to date as engagement happens, so ranking a feed needs no aggregation.
+ * Runs in the transaction of the change, after the post counters are adjusted.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class FeedRankingService {
+    // Affinity of a reader to an author, by interaction, same weights as in the post score
+    static final double LIKE_AFFINITY = 1;
+    static final double COMMENT_AFFINITY = 2;
+    static final double REPOST_AFFINITY = 3;
+
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+
+    @EventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        postRepository.refreshRankScore(event.getPostId());
+    }
+
+    @EventListener
+    public void onPostLiked(PostLikedEvent event) {
+        onEngagement(event.getPostId(), event.getAuthorId(), event.getUserId(),
+                event.isLiked() ? LIKE_AFFINITY : -LIKE_AFFINITY);
+    }
+
+    @EventListener
+    public void onPostCommented(PostCommentedEvent event) {
+        onEngagement(event.getPostId(), event.getAuthorId(), event.getUserId(),
+                event.isAdded() ? COMMENT_AFFINITY : -COMMENT_AFFINITY);
+    }
+
+    @EventListener
+    public void onPostReposted(PostRepostedEvent event) {
+        onEngagement(event.getPostId(), event.getAuthorId(), event.getUserId(),
+                event.isReposted() ? REPOST_AFFINITY : -REPOST_AFFINITY);
+    }
+
+    private void onEngagement(Long postId, Long authorId, Long userId, double affinityDelta) {
+        postRepository.refreshRankScore(postId);
+
+        if (!authorId.equals(userId)) {
+            userRepository.adjustAffinity(userId, authorId, affinityDelta);
+        }
+    }
+}
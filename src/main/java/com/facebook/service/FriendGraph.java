@@ -0,0 +1,281 @@
+package com.facebook.service;
+
+import com.facebook.enums.FriendScoring;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code friends} table held in memory: for each user, the sorted ids of their accepted friends, of the users
+ * who sent them a pending request and of the users they sent one to. Loaded on startup and kept in sync by
+ * {@link FriendService} after each friend write commits, so it assumes a single application instance.
+ * Arrays are replaced on write and never modified, so reads take no lock. Callers must not modify returned arrays.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FriendGraph {
+    private static final long[] NONE = new long[0];
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, long[]> friends = new ConcurrentHashMap<>();
+    // Pending requests by recipient, and by requester
+    private final Map<Long, long[]> receivedRequests = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> sentRequests = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void load() {
+        Map<Long, Builder> friendIds = new HashMap<>();
+        Map<Long, Builder> requesterIds = new HashMap<>();
+        Map<Long, Builder> recipientIds = new HashMap<>();
+        long[] rows = new long[1];
+
+        // One row per pair, the requester is one of its two users
+        jdbcTemplate.query("SELECT low_id, high_id, requester_id, status FROM friends", resultSet -> {
+            long lowId = resultSet.getLong(1);
+            long highId = resultSet.getLong(2);
+            long requesterId = resultSet.getLong(3);
+            long recipientId = requesterId == lowId ? highId : lowId;
+            String status = resultSet.getString(4);
+
+            if ("ACCEPTED".equals(status)) {
+                friendIds.computeIfAbsent(lowId, id -> new Builder()).add(highId);
+                friendIds.computeIfAbsent(highId, id -> new Builder()).add(lowId);
+            } else if ("PENDING".equals(status)) {
+                requesterIds.computeIfAbsent(recipientId, id -> new Builder()).add(requesterId);
+                recipientIds.computeIfAbsent(requesterId, id -> new Builder()).add(recipientId);
+            }
+
+            rows[0]++;
+        });
+
+        replace(friends, friendIds);
+        replace(receivedRequests, requesterIds);
+        replace(sentRequests, recipientIds);
+
+        log.info("Friend graph loaded: {} edges, {} users with friends", rows[0], friends.size());
+    }
+
+    public long[] getFriendIds(long userId) {
+        return friends.getOrDefault(userId, NONE);
+    }
+
+    // Users who sent the user a request
+    public long[] getReceivedRequestIds(long userId) {
+        return receivedRequests.getOrDefault(userId, NONE);
+    }
+
+    // Users the user sent a request to
+    public long[] getSentRequestIds(long userId) {
+        return sentRequests.getOrDefault(userId, NONE);
+    }
+
+    public boolean areFriends(long userId, long friendId) {
+        return Arrays.binarySearch(getFriendIds(userId), friendId) >= 0;
+    }
+
+    // Friends, or a request pending either way
+    public boolean isConnected(long userId, long otherId) {
+        return areFriends(userId, otherId)
+                || Arrays.binarySearch(getReceivedRequestIds(userId), otherId) >= 0
+                || Arrays.binarySearch(getSentRequestIds(userId), otherId) >= 0;
+    }
+
+    public long[] getMutualFriendIds(long userId, long otherId) {
+        return intersect(getFriendIds(userId), getFriendIds(otherId));
+    }
+
+    /**
+     * Friends of the user's friends, ranked by their mutual friends with the user, best first. Users the user is
+     * connected to are skipped during the traversal. Ties go to the lower id.
+     */
+    public List<Suggestion> suggestFriends(long userId, int limit, FriendScoring scoring) {
+        Map<Long, Suggestion> candidates = new HashMap<>();
+
+        for (long friendId : getFriendIds(userId)) {
+            long[] friendsOfFriend = getFriendIds(friendId);
+
+            // The friend's only friend is the user
+            if (friendsOfFriend.length < 2) {
+                continue;
+            }
+
+            double weight = scoring == FriendScoring.ADAMIC_ADAR ? 1 / Math.log(friendsOfFriend.length) : 1;
+
+            for (long candidateId : friendsOfFriend) {
+                if (candidateId != userId && !isConnected(userId, candidateId)) {
+                    candidates.merge(candidateId, new Suggestion(candidateId, 1, weight), Suggestion::plus);
+                }
+            }
+        }
+
+        // Keeps the best suggestions, the worst of them on top
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(Suggestion.RANKING.reversed());
+        for (Suggestion candidate : candidates.values()) {
+            best.add(candidate);
+
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Suggestion> ranked = new ArrayList<>(best);
+        ranked.sort(Suggestion.RANKING);
+
+        return ranked;
+    }
+
+    public synchronized void addRequest(long requesterId, long recipientId) {
+        add(receivedRequests, recipientId, requesterId);
+        add(sentRequests, requesterId, recipientId);
+    }
+
+    public synchronized void removeRequest(long requesterId, long recipientId) {
+        remove(receivedRequests, recipientId, requesterId);
+        remove(sentRequests, requesterId, recipientId);
+    }
+
+    // Accepting a request replaces it, whichever way it was sent
+    public synchronized void link(long userId, long friendId) {
+        removeRequest(userId, friendId);
+        removeRequest(friendId, userId);
+        add(friends, userId, friendId);
+        add(friends, friendId, userId);
+    }
+
+    public synchronized void unlink(long userId, long friendId) {
+        removeRequest(userId, friendId);
+        removeRequest(friendId, userId);
+        remove(friends, userId, friendId);
+        remove(friends, friendId, userId);
+    }
+
+    // Ids in both sorted arrays, by a linear merge
+    public static long[] intersect(long[] first, long[] second) {
+        long[] result = new long[Math.min(first.length, second.length)];
+        int size = 0;
+
+        for (int i = 0, j = 0; i < first.length && j < second.length; ) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    // Ids of the first sorted array that are not in the second
+    public static long[] difference(long[] first, long[] second) {
+        long[] result = new long[first.length];
+        int size = 0;
+
+        for (int i = 0, j = 0; i < first.length; i++) {
+            while (j < second.length && second[j] < first[i]) {
+                j++;
+            }
+
+            if (j == second.length || second[j] != first[i]) {
+                result[size++] = first[i];
+            }
+        }
+
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static void add(Map<Long, long[]> adjacency, long userId, long otherId) {
+        long[] ids = adjacency.getOrDefault(userId, NONE);
+        int index = Arrays.binarySearch(ids, otherId);
+
+        if (index >= 0) {
+            return;
+        }
+
+        int insertAt = -index - 1;
+        long[] updated = new long[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, insertAt);
+        updated[insertAt] = otherId;
+        System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+        adjacency.put(userId, updated);
+    }
+
+    private static void remove(Map<Long, long[]> adjacency, long userId, long otherId) {
+        long[] ids = adjacency.getOrDefault(userId, NONE);
+        int index = Arrays.binarySearch(ids, otherId);
+
+        if (index < 0) {
+            return;
+        }
+
+        if (ids.length == 1) {
+            adjacency.remove(userId);
+            return;
+        }
+
+        long[] updated = new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, index);
+        System.arraycopy(ids, index + 1, updated, index, ids.length - index - 1);
+        adjacency.put(userId, updated);
+    }
+
+    private static void replace(Map<Long, long[]> adjacency, Map<Long, Builder> loaded) {
+        adjacency.clear();
+        loaded.forEach((userId, builder) -> adjacency.put(userId, builder.build()));
+    }
+
+    public record Suggestion(long userId, int mutualFriends, double score) {
+        // Best first
+        static final Comparator<Suggestion> RANKING = Comparator.comparingDouble(Suggestion::score).reversed()
+                .thenComparing(Comparator.comparingInt(Suggestion::mutualFriends).reversed())
+                .thenComparingLong(Suggestion::userId);
+
+        Suggestion plus(Suggestion other) {
+            return new Suggestion(userId, mutualFriends + other.mutualFriends, score + other.score);
+        }
+    }
+
+    // Growable array of ids, sorted and deduplicated once loaded
+    private static final class Builder {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+
+            ids[size++] = id;
+        }
+
+        long[] build() {
+            long[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+
+            return distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.facebook.service;
+
+import com.facebook.dto.FriendRecommendationDto;
+import com.facebook.dto.UserShortDto;
+import com.facebook.enums.FriendScoring;
+import com.facebook.model.User;
+import com.facebook.repository.FriendRepository;
+import com.facebook.repository.UserRepository;
+import com.facebook.repository.projection.FriendRecommendationView;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * "People you may know": friends of the user's friends ranked by mutual friends, padded with the newest users when
+ * the user has too few of them. Read from the recommendations stored by {@code FriendRecommendationJob}, and computed
+ * in one traversal of the {@link FriendGraph} for users the job has not stored any for yet.
+ */
+@Service
+public class FriendRecommendationService {
+    private final FriendGraph friendGraph;
+    private final FriendService friendService;
+    private final FriendRepository friendRepository;
+    private final UserRepository userRepository;
+    private final ModelMapper modelMapper;
+    private final int limit;
+    private final FriendScoring scoring;
+
+    public FriendRecommendationService(
+            FriendGraph friendGraph,
+            FriendService friendService,
+            FriendRepository friendRepository,
+            UserRepository userRepository,
+            ModelMapper modelMapper,
+            @Value("${app.friends.recommendations.limit:40}") int limit,
+            @Value("${app.friends.recommendations.scoring:MUTUAL_FRIENDS}") FriendScoring scoring
+    ) {
+        this.friendGraph = friendGraph;
+        this.friendService = friendService;
+        this.friendRepository = friendRepository;
+        this.userRepository = userRepository;
+        this.modelMapper = modelMapper;
+        this.limit = limit;
+        this.scoring = scoring;
+    }
+
+    public List<FriendRecommendationDto> getRecommendedFriends(long userId) {
+        List<FriendRecommendationView> stored = friendRepository.findRecommendations(userId);
+        List<FriendRecommendationDto> result;
+
+        if (stored.isEmpty()) {
+            result = computeRecommendedFriends(userId);
+        } else {
+            result = stored.stream()
+                    // Stored before the user sent or accepted a request
+                    .filter(recommendation -> !friendGraph.isConnected(userId, recommendation.getId()))
+                    .map(recommendation -> new FriendRecommendationDto(
+                            new UserShortDto(
+                                    recommendation.getId(),
+                                    recommendation.getFirstName(),
+                                    recommendation.getLastName(),
+                                    recommendation.getAvatarUrl(),
+                                    recommendation.getBirthdate()
+                            ),
+                            recommendation.getMutualFriendsCount()
+                    ))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        if (result.size() < limit) {
+            addNewestUsers(userId, result);
+        }
+
+        return result;
+    }
+
+    private List<FriendRecommendationDto> computeRecommendedFriends(long userId) {
+        List<FriendGraph.Suggestion> suggestions = friendGraph.suggestFriends(userId, limit, scoring);
+
+        List<FriendRecommendationDto> result = new ArrayList<>(suggestions.size());
+        List<UserShortDto> users = friendService.getUsers(suggestions.stream()
+                .mapToLong(FriendGraph.Suggestion::userId)
+                .toArray());
+
+        // Both in rank order, a deleted user is missing from the profiles
+        int index = 0;
+        for (UserShortDto user : users) {
+            while (suggestions.get(index).userId() != user.getId()) {
+                index++;
+            }
+
+            result.add(new FriendRecommendationDto(user, suggestions.get(index).mutualFriends()));
+        }
+
+        return result;
+    }
+
+    private void addNewestUsers(long userId, List<FriendRecommendationDto> result) {
+        Set<Long> recommendedIds = new HashSet<>();
+        result.forEach(recommendation -> recommendedIds.add(recommendation.getId()));
+
+        // Enough newest users to fill the list even when all the user's connections are among them
+        int connections = friendGraph.getFriendIds(userId).length
+                + friendGraph.getReceivedRequestIds(userId).length
+                + friendGraph.getSentRequestIds(userId).length;
+        Pageable newest = PageRequest.of(0, limit + connections);
+
+        for (User user : userRepository.findSliceByIdNotOrderByCreatedDateDesc(userId, newest)) {
+            if (result.size() == limit) {
+                break;
+            }
+
+            if (!friendGraph.isConnected(userId, user.getId()) && recommendedIds.add(user.getId())) {
+                result.add(new FriendRecommendationDto(modelMapper.map(user, UserShortDto.class), 0));
+            }
+        }
+    }
+}
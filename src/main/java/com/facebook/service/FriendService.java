@@ -2,156 +2,168 @@ package com.facebook.service;
 
 import com.facebook.dto.UserShortDto;
 import com.facebook.enums.FriendStatus;
+import com.facebook.event.FriendshipChangedEvent;
 import com.facebook.exception.NotFoundException;
-import com.facebook.model.Friend;
-import com.facebook.model.User;
 import com.facebook.repository.FriendRepository;
 import com.facebook.repository.UserRepository;
+import com.facebook.repository.projection.UserShortView;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @AllArgsConstructor
 public class FriendService {
     private final FriendRepository friendRepository;
+    private final FriendGraph friendGraph;
     private final UserRepository userRepository;
-    private final ModelMapper modelMapper;
+    private final TimelineService timelineService;
+    private final ApplicationEventPublisher eventPublisher;
 
+    // Friends, or a request pending either way
     public boolean isFriend(Long userId, Long friendId) {
-        if (friendRepository.findByUserIdAndFriendId(userId, friendId).isPresent())
-            return true;
-        else
-            return friendRepository.findByUserIdAndFriendId(friendId, userId).isPresent();
+        return friendGraph.isConnected(userId, friendId);
     }
 
     // Get all friends
     public List<UserShortDto> getAllFriendUsers(Long userId) {
-        return friendRepository.findByStatusAndUserId(FriendStatus.ACCEPTED, userId)
-                .stream()
-                .map(friend -> modelMapper.map(friend.getFriend(), UserShortDto.class))
-                .toList();
+        return getUsers(friendGraph.getFriendIds(userId));
     }
 
     // Get all friend requests
     public List<UserShortDto> getAllUsersWhoSentRequest(Long userId) {
-        return friendRepository.findByStatusAndUserId(FriendStatus.PENDING, userId)
-                .stream()
-                .map(friend -> modelMapper.map(friend.getFriend(), UserShortDto.class))
-                .toList();
+        return getUsers(friendGraph.getReceivedRequestIds(userId));
     }
 
     public List<UserShortDto> getAllUsersWhomSentRequest(Long userId) {
-        return friendRepository.findByStatusAndFriendId(FriendStatus.PENDING, userId)
-                .stream()
-                .map(friend -> modelMapper.map(friend.getFriend(), UserShortDto.class))
-                .toList();
+        return getUsers(friendGraph.getSentRequestIds(userId));
     }
 
-    private List<UserShortDto> filterRecommendedFriends(List<UserShortDto> recommendedFriends, Long userId) {
-        return recommendedFriends.stream()
-                .filter(friend -> !(friendRepository.findByUserIdAndFriendId(userId, friend.getId()).isPresent() ||
-                        friendRepository.findByUserIdAndFriendId(friend.getId(), userId).isPresent())) // Exclude the current user
+    // Short profiles of the users in the order of their ids, in one query
+    public List<UserShortDto> getUsers(long[] userIds) {
+        if (userIds.length == 0) {
+            return List.of();
+        }
+
+        Map<Long, UserShortView> users = userRepository
+                .findShortByIdIn(Arrays.stream(userIds).boxed().toList())
+                .stream()
+                .collect(Collectors.toMap(UserShortView::getId, Function.identity()));
+
+        return Arrays.stream(userIds)
+                .filter(users::containsKey)
+                .mapToObj(users::get)
+                .map(user -> new UserShortDto(
+                        user.getId(),
+                        user.getFirstName(),
+                        user.getLastName(),
+                        user.getAvatarUrl(),
+                        user.getBirthdate()
+                ))
                 .toList();
     }
 
-    public List<UserShortDto> getRecommendedFriends(Long userId) {
-        List<UserShortDto> currentUserFriends = getAllFriendUsers(userId);
-
-        if (currentUserFriends.isEmpty()) {
-            List<User> topUsers = userRepository.findTop40ByIdNotOrderByCreatedDateDesc(userId);
-            List<UserShortDto> topUsersShort = topUsers.stream()
-                    .map(user -> modelMapper.map(user, UserShortDto.class))
-                    .toList();
-
-            return filterRecommendedFriends(topUsersShort, userId);
+    @Transactional
+    public void addFriendRequest(Long userId, Long friendId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found");
         }
 
-        List<UserShortDto> result = new ArrayList<>();
-
-        for (UserShortDto friend : currentUserFriends) {
-            List<UserShortDto> friendsOfFriend = new ArrayList<>(getAllFriendUsers(friend.getId()));
-
-            List<UserShortDto> mutualFriends = friendsOfFriend.stream()
-                    .filter(currentUserFriends::contains)
-                    .toList();
-
-            friendsOfFriend.removeAll(mutualFriends); // Remove mutual friends
-
-            result.addAll(friendsOfFriend);
-
-            if (result.size() >= 40) {
-                break; // Limit to 40 recommendations
-            }
+        if (!userRepository.existsById(friendId)) {
+            throw new NotFoundException("Friend not found");
         }
 
-        if (result.size() < 40) {
-            List<User> topUsers = userRepository.findTop40ByIdNotOrderByCreatedDateDesc(userId);
-            List<UserShortDto> topUsersShort = topUsers.stream()
-                    .map(user -> modelMapper.map(user, UserShortDto.class))
-                    .toList();
-
-            result.addAll(topUsersShort);
+        if (userId.equals(friendId)) {
+            throw new IllegalArgumentException("Can't send a friend request to yourself");
         }
 
-        return filterRecommendedFriends(result, userId);
-    }
-
-    public void addFriendRequest(Long userId, Long friendId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("User not found"));
-
-        User friend = userRepository.findById(friendId)
-                .orElseThrow(() -> new NotFoundException("Friend not found"));
-
-        if (friendRepository.findByUserIdAndFriendId(userId, friendId).isPresent() ||
-                friendRepository.findByUserIdAndFriendId(friendId, userId).isPresent()) {
+        if (friendRepository.insertRequest(Math.min(userId, friendId), Math.max(userId, friendId), userId) == 0) {
             throw new IllegalArgumentException("Friend request already exists");
         }
 
-        friendRepository.save(new Friend(FriendStatus.PENDING, friend, user, null));
+        markGraphChanged(userId, friendId);
+        afterCommit(() -> friendGraph.addRequest(userId, friendId));
     }
 
+    // The user is the recipient of the request sent by the friend
+    @Transactional
     public void responseToFriendRequest(Long userId, Long friendId, FriendStatus status) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("User not found"));
-
-        User friend = userRepository.findById(friendId)
-                .orElseThrow(() -> new NotFoundException("Friend not found"));
-
-        Optional<Friend> friendRequest = friendRepository.findByUserIdAndFriendId(userId, friendId);
-
-        if (friendRequest.isEmpty()) {
-            throw new IllegalArgumentException("Friend request doesn't exist");
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found");
         }
 
-        if (status.equals(FriendStatus.ACCEPTED)) {
-            friendRequest.get().setStatus(FriendStatus.ACCEPTED);
-            friendRepository.save(friendRequest.get());
+        if (!userRepository.existsById(friendId)) {
+            throw new NotFoundException("Friend not found");
+        }
 
-            Optional<Friend> friends = friendRepository.findByUserIdAndFriendId(friendId, userId);
-            if (friends.isEmpty()) {
-                friendRepository.save(new Friend(FriendStatus.ACCEPTED, friend, user, null));
-            } else {
-                friends.get().setStatus(FriendStatus.ACCEPTED);
-                friendRepository.save(friends.get());
+        if (status == FriendStatus.ACCEPTED) {
+            if (friendRepository.acceptRequest(Math.min(userId, friendId), Math.max(userId, friendId), friendId) == 1) {
+                markGraphChanged(userId, friendId);
+                afterCommit(() -> friendGraph.link(userId, friendId));
+                userRepository.adjustFriendsCount(List.of(userId, friendId), 1);
+                timelineService.linkFriends(userId, friendId);
+                eventPublisher.publishEvent(new FriendshipChangedEvent(userId, friendId, true));
+            } else if (!friendGraph.areFriends(userId, friendId)) {
+                throw new IllegalArgumentException("Friend request doesn't exist");
             }
         } else if (status == FriendStatus.DECLINED) {
-            friendRepository.delete(friendRequest.get());
+            if (friendRepository.deleteRequest(Math.min(userId, friendId), Math.max(userId, friendId), friendId) == 1) {
+                markGraphChanged(userId, friendId);
+                afterCommit(() -> friendGraph.removeRequest(friendId, userId));
+            } else if (!friendGraph.areFriends(userId, friendId)) {
+                throw new IllegalArgumentException("Friend request doesn't exist");
+            }
         }
     }
 
+    // Removes the friendship, or a request sent either way
+    @Transactional
     public void deleteFriend(Long userId, Long friendId) {
-        Optional<Friend> firstExistingRequest = friendRepository.findByUserIdAndFriendId(userId, friendId);
-        Optional<Friend> secondExistingRequest = friendRepository.findByUserIdAndFriendId(friendId, userId);
+        // The edge holds one or the other, the graph tells which without reading it
+        boolean wereFriends = friendGraph.areFriends(userId, friendId);
 
-        firstExistingRequest.ifPresent(friendRepository::delete);
-        secondExistingRequest.ifPresent(friendRepository::delete);
+        if (friendRepository.deleteEdge(Math.min(userId, friendId), Math.max(userId, friendId)) == 0) {
+            return;
+        }
+
+        markGraphChanged(userId, friendId);
+        afterCommit(() -> friendGraph.unlink(userId, friendId));
+
+        if (wereFriends) {
+            userRepository.adjustFriendsCount(List.of(userId, friendId), -1);
+            timelineService.unlinkFriends(userId, friendId);
+            eventPublisher.publishEvent(new FriendshipChangedEvent(userId, friendId, false));
+        }
+    }
+
+    // Stored recommendations of both users and of their friends are recomputed by the next refresh
+    private void markGraphChanged(long userId, long friendId) {
+        friendRepository.markGraphChanged(userId);
+        friendRepository.markGraphChanged(friendId);
+    }
+
+    // The friend graph only shows committed writes, writes outside a transaction are already committed
+    private static void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,9 +4,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import com.facebook.dto.*;
 import com.facebook.enums.GroupJoinStatus;
 import com.facebook.enums.GroupRole;
+import com.facebook.enums.PageCount;
 import com.facebook.exception.NotFoundException;
 import com.facebook.model.Group;
 import com.facebook.model.GroupJoinRequest;
@@ -35,6 +37,7 @@ public class GroupService {
     private final UserRepository userRepository;
     private final GroupMemberRepository groupMemberRepository;
     private final GroupJoinRequestRepository groupJoinRequestRepository;
+    private final ApproximateCountService approximateCountService;
 
     public GroupResponse create(long userId, GroupCreateRequest groupCreateRequest) {
         modelMapper.typeMap(GroupCreateRequest.class, Group.class)
@@ -221,4 +224,24 @@ public class GroupService {
         // Повертаємо нову сторінку з мутабельним списком
         return new PageImpl<>(groupResponses, pageable, groupPage.getTotalElements());
     }
+
+    public PageResponseDto<GroupResponse> getAll(int page, int size, long userId, PageCount count) {
+        if (count == PageCount.EXACT) {
+            return new PageResponseDto<>(getAll(page, size, userId));
+        }
+
+        Slice<GroupResponse> groups = groupRepository.findSlice(PageRequest.of(page, size))
+                .map(group -> {
+                    GroupResponse groupResponse = modelMapper.map(group, GroupResponse.class);
+                    groupResponse.setMember(groupMemberRepository.findByGroupIdAndUserId(group.getId(), userId).isPresent());
+
+                    return groupResponse;
+                });
+
+        if (count == PageCount.NONE) {
+            return new PageResponseDto<>(groups);
+        }
+
+        return new PageResponseDto<>(groups, approximateCountService.getCount("groups", groupRepository::count));
+    }
 }
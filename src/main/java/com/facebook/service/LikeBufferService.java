@@ -0,0 +1,290 @@
+package com.facebook.service;
+
+import com.facebook.event.PostLikedEvent;
+import com.facebook.model.LikeToggle;
+import com.facebook.repository.LikeRepository;
+import com.facebook.repository.LikeToggleRepository;
+import com.facebook.repository.PostRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind buffer of likes. A toggle is acknowledged against in-memory state and appended to the
+ * {@code like_toggles} journal, and a scheduled flush applies the journal to likes, the post counters and the authors'
+ * likes received in JDBC batches, so a popular post takes one counter update per flush instead of one per click.
+ * Toggles of a user on a post are serialized by a lock stripe, so the journal keeps them in order.
+ * A flush applies and deletes its toggles in one transaction and unflushed toggles are reloaded on startup,
+ * so each toggle is counted exactly once. Assumes a single application instance.
+ */
+@Slf4j
+@Service
+public class LikeBufferService {
+    // Skips likes of deleted users or posts, and likes that already exist by the unique (user_id, post_id) index
+    private static final String INSERT_LIKE = """
+            INSERT IGNORE INTO likes (user_id, post_id, created_at)
+            SELECT u.id, p.id, ?
+            FROM users u
+            JOIN posts p ON p.id = ?
+            WHERE u.id = ?
+            """;
+    private static final String DELETE_LIKE = "DELETE FROM likes WHERE user_id = ? AND post_id = ?";
+    private static final String ADJUST_LIKES_COUNT = "UPDATE posts SET likes_count = likes_count + ? WHERE id = ?";
+    private static final String ADJUST_LIKES_RECEIVED = """
+            INSERT INTO user_stats (user_id, likes_received_count)
+            VALUES (?, GREATEST(?, 0))
+            ON DUPLICATE KEY UPDATE likes_received_count = likes_received_count + ?
+            """;
+
+    private final LikeRepository likeRepository;
+    private final LikeToggleRepository likeToggleRepository;
+    private final PostRepository postRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate flushTransaction;
+    private final TransactionTemplate journalTransaction;
+    private final ReentrantLock[] stripes;
+    private final int batchSize;
+    // Latest unflushed toggle of each user on each post
+    private final Map<LikeKey, PendingToggle> pending = new ConcurrentHashMap<>();
+    // Likes count change of each post that is not flushed yet
+    private final Map<Long, Integer> pendingDeltas = new ConcurrentHashMap<>();
+    // Held for writing from the commit of a flushed batch until its deltas are released, so no reader of the likes
+    // count sees the batch both in the database and in the buffer
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    public LikeBufferService(
+            LikeRepository likeRepository,
+            LikeToggleRepository likeToggleRepository,
+            PostRepository postRepository,
+            JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.likes.lock-stripes:64}") int lockStripes,
+            @Value("${app.likes.flush-batch-size:1000}") int batchSize
+    ) {
+        this.likeRepository = likeRepository;
+        this.likeToggleRepository = likeToggleRepository;
+        this.postRepository = postRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        // The journal entry must be committed before the toggle is acknowledged, even when called in a transaction
+        this.journalTransaction = new TransactionTemplate(transactionManager);
+        this.journalTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.stripes = new ReentrantLock[lockStripes];
+
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void recover() {
+        List<LikeToggle> toggles = likeToggleRepository.findAllByOrderByIdAsc(Pageable.unpaged());
+        toggles.forEach(this::remember);
+
+        if (!toggles.isEmpty()) {
+            log.info("Like buffer: {} unflushed toggles recovered", toggles.size());
+        }
+    }
+
+    /**
+     * Likes the post for the user, or removes the like if there is one.
+     *
+     * @return whether the post is liked by the user after the toggle
+     */
+    public boolean toggle(Long postId, Long authorId, Long userId) {
+        LikeKey key = new LikeKey(userId, postId);
+        ReentrantLock lock = stripeOf(key);
+        lock.lock();
+
+        try {
+            PendingToggle latest = pending.get(key);
+            boolean liked = latest == null
+                    ? !likeRepository.existsByUserIdAndPostId(userId, postId)
+                    : !latest.liked();
+
+            LikeToggle toggle = journalTransaction.execute(status -> likeToggleRepository.save(
+                    new LikeToggle(null, userId, postId, authorId, liked, LocalDateTime.now())));
+            remember(toggle);
+
+            return liked;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Whether the user likes the post, given whether the like is already in the database
+    public boolean isLiked(Long userId, Long postId, boolean flushed) {
+        PendingToggle latest = pending.get(new LikeKey(userId, postId));
+
+        return latest == null ? flushed : latest.liked();
+    }
+
+    // Flushed counter plus the toggles still in the buffer
+    public int getLikesCount(Long postId) {
+        flushLock.readLock().lock();
+
+        try {
+            return postRepository.getLikesCount(postId) + pendingDeltas.getOrDefault(postId, 0);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.likes.flush-interval-ms:1000}")
+    public synchronized int flush() {
+        int flushed = 0;
+        List<LikeToggle> toggles;
+
+        do {
+            try {
+                toggles = flushTransaction.execute(status -> applyBatch());
+                release(toggles);
+            } finally {
+                if (flushLock.isWriteLockedByCurrentThread()) {
+                    flushLock.writeLock().unlock();
+                }
+            }
+
+            flushed += toggles.size();
+        } while (toggles.size() == batchSize);
+
+        return flushed;
+    }
+
+    private List<LikeToggle> applyBatch() {
+        List<LikeToggle> toggles = likeToggleRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+
+        if (toggles.isEmpty()) {
+            return toggles;
+        }
+
+        // Only the latest toggle of a user on a post decides whether the like exists
+        Map<LikeKey, LikeToggle> latest = new LinkedHashMap<>();
+        toggles.forEach(toggle -> latest.put(LikeKey.of(toggle), toggle));
+
+        List<LikeToggle> likes = latest.values().stream().filter(LikeToggle::isLiked).toList();
+        List<LikeToggle> unlikes = latest.values().stream().filter(toggle -> !toggle.isLiked()).toList();
+
+        int[] inserted = jdbcTemplate.batchUpdate(INSERT_LIKE, likes.stream()
+                .map(toggle -> new Object[]{toggle.getCreatedDate(), toggle.getPostId(), toggle.getUserId()})
+                .toList());
+        int[] deleted = jdbcTemplate.batchUpdate(DELETE_LIKE, unlikes.stream()
+                .map(toggle -> new Object[]{toggle.getUserId(), toggle.getPostId()})
+                .toList());
+
+        // Counters follow the rows actually changed, so replaying a toggle never counts it twice
+        Map<Long, Integer> deltas = new HashMap<>();
+        List<LikeToggle> applied = new ArrayList<>();
+        collectApplied(likes, inserted, 1, deltas, applied);
+        collectApplied(unlikes, deleted, -1, deltas, applied);
+
+        jdbcTemplate.batchUpdate(ADJUST_LIKES_COUNT, deltas.entrySet().stream()
+                .filter(delta -> delta.getValue() != 0)
+                .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                .toList());
+
+        Map<Long, Integer> receivedDeltas = new HashMap<>();
+        applied.forEach(toggle -> receivedDeltas.merge(toggle.getAuthorId(), deltaOf(toggle), Integer::sum));
+        jdbcTemplate.batchUpdate(ADJUST_LIKES_RECEIVED, receivedDeltas.entrySet().stream()
+                .filter(delta -> delta.getValue() != 0)
+                .map(delta -> new Object[]{delta.getKey(), delta.getValue(), delta.getValue()})
+                .toList());
+
+        applied.forEach(toggle -> eventPublisher.publishEvent(
+                new PostLikedEvent(toggle.getPostId(), toggle.getAuthorId(), toggle.getUserId(), toggle.isLiked())));
+
+        likeToggleRepository.deleteAllByIdInBatch(toggles.stream().map(LikeToggle::getId).toList());
+
+        // Right before the commit, released by flush once the batch left the buffer
+        flushLock.writeLock().lock();
+
+        return toggles;
+    }
+
+    private void collectApplied(
+            List<LikeToggle> toggles,
+            int[] rowCounts,
+            int sign,
+            Map<Long, Integer> deltas,
+            List<LikeToggle> applied
+    ) {
+        for (int i = 0; i < toggles.size(); i++) {
+            if (rowCounts[i] > 0) {
+                deltas.merge(toggles.get(i).getPostId(), sign * rowCounts[i], Integer::sum);
+                applied.add(toggles.get(i));
+            }
+        }
+    }
+
+    // Flushed toggles leave the buffer, unless a newer toggle of the same user on the post came in meanwhile
+    private void release(List<LikeToggle> toggles) {
+        Map<LikeKey, List<LikeToggle>> togglesByKey = new LinkedHashMap<>();
+        toggles.forEach(toggle -> togglesByKey.computeIfAbsent(LikeKey.of(toggle), key -> new ArrayList<>()).add(toggle));
+
+        togglesByKey.forEach((key, keyToggles) -> {
+            ReentrantLock lock = stripeOf(key);
+            lock.lock();
+
+            try {
+                long lastId = keyToggles.getLast().getId();
+                pending.computeIfPresent(key, (k, latest) -> latest.toggleId() == lastId ? null : latest);
+                pendingDeltas.merge(key.postId(),
+                        -keyToggles.stream().mapToInt(LikeBufferService::deltaOf).sum(),
+                        LikeBufferService::sumOrRemove);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private void remember(LikeToggle toggle) {
+        pending.put(LikeKey.of(toggle), new PendingToggle(toggle.getId(), toggle.isLiked()));
+        pendingDeltas.merge(toggle.getPostId(), deltaOf(toggle), LikeBufferService::sumOrRemove);
+    }
+
+    private ReentrantLock stripeOf(LikeKey key) {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    private static int deltaOf(LikeToggle toggle) {
+        return toggle.isLiked() ? 1 : -1;
+    }
+
+    private static Integer sumOrRemove(Integer current, Integer delta) {
+        int sum = current + delta;
+
+        return sum == 0 ? null : sum;
+    }
+
+    private record LikeKey(Long userId, Long postId) {
+        static LikeKey of(LikeToggle toggle) {
+            return new LikeKey(toggle.getUserId(), toggle.getPostId());
+        }
+    }
+
+    private record PendingToggle(long toggleId, boolean liked) {
+    }
+}
@@ -3,7 +3,9 @@ package com.facebook.service;
 import com.facebook.dto.MessageCreateRequest;
 import com.facebook.dto.MessageResponse;
 import com.facebook.dto.MessageUpdateRequest;
+import com.facebook.dto.PageResponseDto;
 import com.facebook.dto.UserShortDto;
+import com.facebook.enums.PageCount;
 import com.facebook.exception.NotFoundException;
 import com.facebook.model.Message;
 import com.facebook.model.User;
@@ -13,6 +15,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -24,6 +27,7 @@ public class MessageService {
 
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final ApproximateCountService approximateCountService;
 
     public MessageResponse create(Long senderId, MessageCreateRequest request) {
         User sender = userRepository.findById(senderId)
@@ -79,6 +83,39 @@ public class MessageService {
         return messagesPage.map(this::mapToResponse);
     }
 
+    public PageResponseDto<MessageResponse> getMessagesWithFriend(
+            Long userId,
+            Long friendId,
+            int page,
+            int size,
+            PageCount count
+    ) {
+        if (count == PageCount.EXACT) {
+            return new PageResponseDto<>(getMessagesWithFriend(userId, friendId, page, size));
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+
+        User friend = userRepository.findById(friendId)
+                .orElseThrow(() -> new NotFoundException("Friend not found"));
+
+        Slice<MessageResponse> messages = messageRepository
+                .findConversationSliceBetweenUsers(user.getId(), friend.getId(), PageRequest.of(page, size))
+                .map(this::mapToResponse);
+
+        if (count == PageCount.NONE) {
+            return new PageResponseDto<>(messages);
+        }
+
+        // Both participants share the count of their conversation
+        String key = "messages:" + Math.min(user.getId(), friend.getId()) + ":" + Math.max(user.getId(), friend.getId());
+        long total = approximateCountService.getCount(
+                key, () -> messageRepository.countConversationBetweenUsers(user.getId(), friend.getId()));
+
+        return new PageResponseDto<>(messages, total);
+    }
+
     public MessageResponse read(long id) {
         Message message = messageRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Message not found"));
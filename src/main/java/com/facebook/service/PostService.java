@@ -1,27 +1,66 @@
 package com.facebook.service;
 
 import com.facebook.dto.*;
-import com.facebook.enums.Achievements;
+import com.facebook.enums.PageCount;
+import com.facebook.event.*;
 import com.facebook.exception.NotFoundException;
 import com.facebook.model.*;
 import com.facebook.repository.*;
+import com.facebook.repository.projection.PostFeedView;
+import com.facebook.repository.projection.PostImageView;
+import com.facebook.repository.projection.PostInteractionView;
+import com.facebook.util.FeedCursor;
+import com.facebook.util.RankCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class PostService {
+    // Keeps ranked pages apart from chronological ones in the feed cache
+    private static final String RANKED_PAGE_PREFIX = "ranked:";
+    private static final int MAX_TRENDING_SIZE = 50;
+    private static final int MAX_LATEST_COMMENTS = 10;
+
     private final PostRepository postRepository;
     private final UserRepository userRepository;
-    private final LikeRepository likeRepository;
+    private final LikeBufferService likeBufferService;
     private final RepostRepository repostRepository;
     private final FriendService friendService;
-    private final UserAchievementService userAchievementService;
-
+    private final TimelineService timelineService;
+    private final FeedCacheService feedCacheService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApproximateCountService approximateCountService;
+    private final TrendingService trendingService;
+    private final GroupRepository groupRepository;
+    private final GroupMemberRepository groupMemberRepository;
+    private final CommentService commentService;
+    private final UserStatsRepository userStatsRepository;
+
+    @Transactional
     public PostResponseDto createPost(Long userId, PostCreateRequestDto request) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("User not found"));
@@ -37,25 +76,11 @@ public class PostService {
         });
 
         Post savedPost = postRepository.save(post);
-        Optional<List<Post>> optionalPosts = postRepository.findAllByUserId(userId);
-        List<Post> posts = optionalPosts.orElse(List.of());
-        int postCount = posts.size();
-
-        String firstPostAchievement = "Buzz Started";
-        String fivePostsWithPhotosAchievement = "Aesthetic Drop";
-
-        if (postCount == 1 && !userAchievementService.userHaveAchievement(user, firstPostAchievement)) {
-            userAchievementService.awardAchievement(user, firstPostAchievement);
-        }
-
-        if (postCount >= 1) {
-            long postsWithImages = posts.stream().filter(somePost-> somePost.getImages()!= null && !post.getImages().isEmpty())
-                    .count();
-            if (postsWithImages == 5  && !userAchievementService.userHaveAchievement(user, fivePostsWithPhotosAchievement)) {
-                userAchievementService.awardAchievement(user, fivePostsWithPhotosAchievement);
-            }
-        }
+        timelineService.distributePost(savedPost.getId(), user.getId());
+        eventPublisher.publishEvent(new PostCreatedEvent(savedPost.getId(), user.getId()));
 
+        boolean withImages = !savedPost.getImages().isEmpty();
+        userStatsRepository.adjustPostsCount(user.getId(), 1, withImages ? 1 : 0);
 
         UserShortDto userDTO = new UserShortDto(
                 user.getId(),
@@ -96,6 +121,7 @@ public class PostService {
         });
 
         Post updatedPost = postRepository.save(post);
+        eventPublisher.publishEvent(new PostUpdatedEvent(updatedPost.getId(), updatedPost.getUser().getId()));
 
         User user = updatedPost.getUser();
         UserShortDto userDTO = new UserShortDto(
@@ -115,12 +141,13 @@ public class PostService {
                 updatedPost.getText(),
                 images,
                 updatedPost.getCreatedDate(),
-                updatedPost.getLikes().size(),
-                updatedPost.getComments().size(),
-                updatedPost.getReposts().size()
+                updatedPost.getLikesCount(),
+                updatedPost.getCommentsCount(),
+                updatedPost.getRepostsCount()
         );
     }
 
+    @Transactional
     public void deletePost(Long postId, Long userId) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new NotFoundException("Not found post with ID: " + postId));
@@ -128,65 +155,44 @@ public class PostService {
         User user = post.getUser();
 
         if (!user.getId().equals(userId)) {
-            repostRepository.findByUserIdAndPostId(userId, postId).ifPresent(repostRepository::delete);
+            repostRepository.findByUserIdAndPostId(userId, postId).ifPresent(repost -> {
+                repostRepository.delete(repost);
+                postRepository.adjustRepostsCount(postId, -1);
+                userStatsRepository.adjustRepostsCount(userId, -1);
+                eventPublisher.publishEvent(new PostRepostedEvent(postId, user.getId(), userId, false));
+            });
 
             return;
         }
 
+        // Comments, likes and reposts of the post go with it
+        userStatsRepository.subtractPostInteractions(postId);
+        if (post.getLikesCount() > 0) {
+            userStatsRepository.adjustLikesReceivedCount(user.getId(), -post.getLikesCount());
+        }
+        userStatsRepository.adjustPostsCount(user.getId(), -1, post.getImages().isEmpty() ? 0 : -1);
+
         postRepository.delete(post);
+        eventPublisher.publishEvent(new PostDeletedEvent(postId, user.getId()));
     }
 
     public int likePost(Long postId, Long userId) {
-        Post post = postRepository.findById(postId)
+        Long authorId = postRepository.findAuthorId(postId)
                 .orElseThrow(() -> new NotFoundException("Not found post with ID: " + postId));
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("User not found"));
-
-        Like like = likeRepository.findByUserIdAndPostId(userId, postId)
-                .orElse(null);
-
-        User postUser = post.getUser();
-        boolean isOwnPost = postUser.getId().equals(userId);
-
-        if (like != null) {
-            post.getLikes().remove(like);
-        } else {
-            Like likeNew = new Like();
-            likeNew.setPost(post);
-            likeNew.setUser(user);
-
-            post.getLikes().add(likeNew);
-
-            int likesCount = post.getLikes().size();
-
-            if (likesCount == 1
-                    && !isOwnPost
-                    && !userAchievementService.userHaveAchievement(postUser, Achievements.FIRST_HEARTBEAT.toString())
-            ) {
-                userAchievementService.awardAchievement(postUser, Achievements.FIRST_HEARTBEAT.toString());
-            }
-
-            if (likesCount == 10
-                    && !isOwnPost
-                    && !userAchievementService.userHaveAchievement(postUser, Achievements.VIBE_CREATOR.toString())
-            ) {
-                userAchievementService.awardAchievement(postUser, Achievements.VIBE_CREATOR.toString());
-            }
-
-            if (likesCount == 100
-                    && !isOwnPost
-                    && !userAchievementService.userHaveAchievement(postUser, Achievements.BUZZLIGHT_STAR.toString())
-            ) {
-                userAchievementService.awardAchievement(postUser, Achievements.BUZZLIGHT_STAR.toString());
-            }
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found");
         }
 
-        postRepository.save(post);
+        // Achievements of the author are awarded by AchievementEngine once the like is flushed
+        likeBufferService.toggle(postId, authorId, userId);
+        // The likedByMe and count the user sees change now, so their feed ETag must not wait for the flush
+        feedCacheService.invalidate(List.of(userId));
 
-        return post.getLikes().size();
+        return likeBufferService.getLikesCount(postId);
     }
 
+    @Transactional
     public int repost(Long postId, Long userId) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new NotFoundException("Not found post with ID: " + postId));
@@ -198,23 +204,20 @@ public class PostService {
             throw new IllegalArgumentException("User cannot repost their own post");
         }
 
-        Repost repost = repostRepository.findByUserIdAndPostId(userId, postId)
-                .orElse(null);
-
-        if (repost != null) {
+        if (repostRepository.findByUserIdAndPostId(userId, postId).isPresent()) {
             throw new IllegalArgumentException("User has already reposted this post");
-        } else {
-            repost = new Repost();
-
-            repost.setPost(post);
-            repost.setUser(user);
-
-            post.getReposts().add(repost);
         }
 
-        postRepository.save(post);
+        Repost repost = new Repost();
+        repost.setPost(post);
+        repost.setUser(user);
+
+        repostRepository.save(repost);
+        postRepository.adjustRepostsCount(postId, 1);
+        userStatsRepository.adjustRepostsCount(userId, 1);
+        eventPublisher.publishEvent(new PostRepostedEvent(postId, post.getUser().getId(), userId, true));
 
-        return post.getReposts().size();
+        return postRepository.getRepostsCount(postId);
     }
 
     public List<PostResponseDto> getUserPosts(long userId) {
@@ -247,9 +250,9 @@ public class PostService {
                             post.getText(),
                             images,
                             post.getCreatedDate(),
-                            post.getLikes().size(),
-                            post.getComments().size(),
-                            post.getReposts().size()
+                            post.getLikesCount(),
+                            post.getCommentsCount(),
+                            post.getRepostsCount()
                     );
                 })
                 .toList();
@@ -261,36 +264,12 @@ public class PostService {
 
         int offset = page * size;
 
-        List<Post> posts = postRepository.getCombinedPosts(userId, size, offset);
+        List<PostFeedView> posts = postRepository.getCombinedPosts(userId, size, offset);
         long totalElements = postRepository.countCombinedPosts(userId);
         int totalPages = (int) Math.ceil((double) totalElements / size);
         boolean last = page >= totalPages - 1;
 
-        List<PostResponseDto> postsResponse = posts.stream()
-                .map(post -> {
-                    User userPost = post.getUser();
-                    List<String> images = post.getImages().stream()
-                            .map(PostImage::getUrl)
-                            .toList();
-
-                    return new PostResponseDto(
-                            post.getId(),
-                            new UserShortDto(
-                                    userPost.getId(),
-                                    userPost.getFirstName(),
-                                    userPost.getLastName(),
-                                    userPost.getAvatarUrl(),
-                                    userPost.getBirthdate()
-                            ),
-                            post.getText(),
-                            images,
-                            post.getCreatedDate(),
-                            post.getLikes().size(),
-                            post.getComments().size(),
-                            post.getReposts().size()
-                    );
-                })
-                .toList();
+        List<PostResponseDto> postsResponse = mapToResponse(posts);
 
         PageResponseDto<PostResponseDto> response = new PageResponseDto<>();
         response.setContent(postsResponse);
@@ -303,6 +282,65 @@ public class PostService {
         return response;
     }
 
+    public PageResponseDto<PostResponseDto> getUserPosts(long userId, int page, int size, PageCount count) {
+        if (count == PageCount.EXACT) {
+            return getUserPosts(userId, page, size);
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("User not found with ID: " + userId));
+
+        // One extra row tells whether this is the last page without counting
+        List<PostFeedView> posts = postRepository.getCombinedPosts(user.getId(), size + 1, page * size);
+        boolean hasNext = posts.size() > size;
+
+        Slice<PostResponseDto> postsSlice = new SliceImpl<>(
+                mapToResponse(hasNext ? posts.subList(0, size) : posts), PageRequest.of(page, size), hasNext);
+
+        if (count == PageCount.NONE) {
+            return new PageResponseDto<>(postsSlice);
+        }
+
+        long total = approximateCountService.getCount(
+                "posts:" + user.getId(), () -> postRepository.countCombinedPosts(user.getId()));
+
+        return new PageResponseDto<>(postsSlice, total);
+    }
+
+    // Whole post history as NDJSON, one post per line, newest first
+    public StreamingResponseBody exportUserPosts(long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("User not found with ID: " + userId);
+        }
+
+        // The body is written after the controller returns, so the cursor needs a transaction of its own
+        return out -> transactionTemplate.executeWithoutResult(status -> writeUserPosts(userId, out));
+    }
+
+    // Holds at most one fetch of rows at a time, whatever the length of the history
+    private void writeUserPosts(long userId, OutputStream out) {
+        try (Stream<PostFeedView> rows = postRepository.streamCombinedPosts(userId)) {
+            List<PostFeedView> chunk = new ArrayList<>(PostRepository.STREAM_FETCH_SIZE);
+            Iterator<PostFeedView> iterator = rows.iterator();
+
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+
+                if (chunk.size() == PostRepository.STREAM_FETCH_SIZE || !iterator.hasNext()) {
+                    for (PostResponseDto post : mapToResponse(chunk)) {
+                        out.write(objectMapper.writeValueAsBytes(post));
+                        out.write('\n');
+                    }
+
+                    out.flush();
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public List<PostResponseDto> getUserAndFriendsPosts(long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("User not found with ID: " + userId));
@@ -337,66 +375,268 @@ public class PostService {
                             post.getText(),
                             images,
                             post.getCreatedDate(),
-                            post.getLikes().size(),
-                            post.getComments().size(),
-                            post.getReposts().size()
+                            post.getLikesCount(),
+                            post.getCommentsCount(),
+                            post.getRepostsCount()
                     );
                 })
                 .toList();
     }
 
-    public PageResponseDto<PostResponseDto> getUserAndFriendsPosts(long userId, int page, int size) {
+    public CursorPageResponseDto<PostResponseDto> getUserAndFriendsPosts(
+            long userId,
+            long viewerId,
+            String cursor,
+            int size,
+            int latestComments
+    ) {
+        validatePage(size, latestComments);
+
+        return completePage(viewerId, latestComments,
+                feedCacheService.getPage(userId, cursor, size, () -> loadUserAndFriendsPosts(userId, cursor, size)));
+    }
+
+    private CursorPageResponseDto<PostResponseDto> loadUserAndFriendsPosts(long userId, String cursor, int size) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("User not found with ID: " + userId));
 
-        List<UserShortDto> friends = friendService.getAllFriendUsers(userId);
-        List<Long> friendsIds = friends.stream().map(UserShortDto::getId).toList();
+        FeedCursor position = FeedCursor.decode(cursor);
+
+        // One extra row tells whether there is a next page without counting the whole feed
+        List<PostFeedView> posts = timelineService.getFeedPage(user.getId(), position, size + 1);
 
-        if (friendsIds.isEmpty()) {
-            friendsIds = List.of(-1L); // ID, якого точно немає в базі
+        boolean hasNext = posts.size() > size;
+        List<PostFeedView> pagePosts = hasNext ? posts.subList(0, size) : posts;
+
+        String nextCursor = null;
+        if (hasNext) {
+            PostFeedView lastPost = pagePosts.getLast();
+            nextCursor = FeedCursor.encode(lastPost.getCreatedDate(), lastPost.getId());
         }
 
-        int offset = page * size;
+        String headCursor = null;
+        if (!pagePosts.isEmpty()) {
+            PostFeedView firstPost = pagePosts.getFirst();
+            headCursor = FeedCursor.encode(firstPost.getCreatedDate(), firstPost.getId());
+        }
 
-        List<Post> posts = postRepository.getUserAndFriendsPosts(userId, friendsIds, size, offset);
-        long totalElements = postRepository.countUserAndFriendsPosts(userId, friendsIds);
-        int totalPages = (int) Math.ceil((double) totalElements / size);
-        boolean last = page >= totalPages - 1;
+        List<PostResponseDto> postsResponse = mapToResponse(pagePosts);
 
-        List<PostResponseDto> postsResponse = posts.stream()
-                .map(post -> {
-                    User postUser = post.getUser();
-                    List<String> images = post.getImages().stream()
-                            .map(PostImage::getUrl)
-                            .toList();
+        return new CursorPageResponseDto<>(postsResponse, size, nextCursor, hasNext, headCursor);
+    }
 
-                    return new PostResponseDto(
-                            post.getId(),
-                            new UserShortDto(
-                                    postUser.getId(),
-                                    postUser.getFirstName(),
-                                    postUser.getLastName(),
-                                    postUser.getAvatarUrl(),
-                                    postUser.getBirthdate()
-                            ),
-                            post.getText(),
-                            images,
-                            post.getCreatedDate(),
-                            post.getLikes().size(),
-                            post.getComments().size(),
-                            post.getReposts().size()
-                    );
-                })
+    public CursorPageResponseDto<PostResponseDto> getRankedUserAndFriendsPosts(
+            long userId,
+            long viewerId,
+            String cursor,
+            int size,
+            int latestComments
+    ) {
+        validatePage(size, latestComments);
+
+        return completePage(viewerId, latestComments, feedCacheService.getPage(
+                userId, RANKED_PAGE_PREFIX + (cursor == null ? "" : cursor), size,
+                () -> loadRankedUserAndFriendsPosts(userId, cursor, size)));
+    }
+
+    private CursorPageResponseDto<PostResponseDto> loadRankedUserAndFriendsPosts(long userId, String cursor, int size) {
+        // Past the ranked snapshot the feed goes on chronologically, with the chronological feed's cursors
+        if (!RankCursor.isRanked(cursor)) {
+            CursorPageResponseDto<PostResponseDto> page = loadUserAndFriendsPosts(userId, cursor, size);
+
+            return new CursorPageResponseDto<>(page.getContent(), size, page.getNextCursor(), page.isHasNext(), null);
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("User not found with ID: " + userId));
+
+        RankCursor position = RankCursor.decode(cursor);
+        TimelineService.RankedFeed feed = timelineService.getRankedFeed(user.getId(), position);
+
+        long[] postIds = feed.postIds();
+        int from = Math.min(position.getOffset(), postIds.length);
+        int to = Math.min(from + size, postIds.length);
+
+        String nextCursor = null;
+        if (to < postIds.length) {
+            // Later pages stay on the snapshot the session started with
+            nextCursor = position.isFirstPage()
+                    ? RankCursor.encode(feed.headDate(), feed.headId(), to)
+                    : RankCursor.encode(position.getHeadDate(), position.getHeadId(), to);
+        } else if (feed.tail() != null) {
+            nextCursor = FeedCursor.encode(feed.tail().getCreatedDate(), feed.tail().getId());
+        }
+
+        List<PostFeedView> pagePosts = findFeedViewsInOrder(Arrays.stream(postIds, from, to).boxed().toList());
+
+        // Polling with "since" follows the chronological feed, so a ranked page has no head cursor
+        return new CursorPageResponseDto<>(mapToResponse(pagePosts), size, nextCursor, nextCursor != null, null);
+    }
+
+    public FeedDeltaResponseDto getUserAndFriendsPostsSince(
+            long userId,
+            long viewerId,
+            String since,
+            int size,
+            int latestComments
+    ) {
+        FeedCursor head = FeedCursor.decode(since);
+
+        // New posts are at the top of the feed, so the (usually cached) first page holds the whole delta
+        CursorPageResponseDto<PostResponseDto> firstPage =
+                getUserAndFriendsPosts(userId, viewerId, null, size, latestComments);
+        List<PostResponseDto> posts = firstPage.getContent();
+
+        List<PostResponseDto> newPosts = posts.stream()
+                .takeWhile(post -> head.isOlderThan(post.getCreatedDate(), post.getId()))
+                .toList();
+        List<PostCountersDto> counters = posts.subList(newPosts.size(), posts.size()).stream()
+                .map(post -> new PostCountersDto(
+                        post.getId(),
+                        post.getLikesCount(),
+                        post.getCommentsCount(),
+                        post.getRepostsCount()
+                ))
                 .toList();
 
-        PageResponseDto<PostResponseDto> response = new PageResponseDto<>();
-        response.setContent(postsResponse);
-        response.setNumber(page);
-        response.setSize(size);
-        response.setTotalElements(totalElements);
-        response.setTotalPages(totalPages);
-        response.setLast(last);
+        boolean truncated = newPosts.size() == posts.size() && firstPage.isHasNext();
+        String headCursor = newPosts.isEmpty() ? since : firstPage.getHeadCursor();
 
-        return response;
+        return new FeedDeltaResponseDto(newPosts, counters, headCursor, truncated);
+    }
+
+    // Top posts of the trending board, globally or in a group the viewer can see
+    public List<PostResponseDto> getTrendingPosts(long viewerId, Long groupId, int size) {
+        if (size <= 0 || size > MAX_TRENDING_SIZE) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_TRENDING_SIZE);
+        }
+
+        if (groupId != null) {
+            Group group = groupRepository.findById(groupId)
+                    .orElseThrow(() -> new NotFoundException("Group isn't found"));
+
+            if (group.isPrivate() && groupMemberRepository.findByGroupIdAndUserId(groupId, viewerId).isEmpty()) {
+                throw new NotFoundException("Group isn't found");
+            }
+        }
+
+        List<Long> postIds = trendingService.getTopPostIds(groupId, size);
+        if (postIds.isEmpty()) {
+            return List.of();
+        }
+
+        return withViewerState(viewerId, mapToResponse(findFeedViewsInOrder(postIds)));
+    }
+
+    public long getFeedVersion(long userId) {
+        return feedCacheService.getVersion(userId);
+    }
+
+    private void validatePage(int size, int latestComments) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+
+        if (latestComments < 0 || latestComments > MAX_LATEST_COMMENTS) {
+            throw new IllegalArgumentException("Latest comments must be between 0 and " + MAX_LATEST_COMMENTS);
+        }
+    }
+
+    // Adds what is not cached with the page: the viewer's state and the comment previews
+    private CursorPageResponseDto<PostResponseDto> completePage(
+            long viewerId,
+            int latestComments,
+            CursorPageResponseDto<PostResponseDto> page
+    ) {
+        List<PostResponseDto> posts = withLatestComments(latestComments, withViewerState(viewerId, page.getContent()));
+
+        return new CursorPageResponseDto<>(posts,
+                page.getSize(), page.getNextCursor(), page.isHasNext(), page.getHeadCursor());
+    }
+
+    // Copies the posts of a page with their newest comments, found with one query for the whole page
+    private List<PostResponseDto> withLatestComments(int latestComments, List<PostResponseDto> posts) {
+        if (latestComments == 0 || posts.isEmpty()) {
+            return posts;
+        }
+
+        Map<Long, List<CommentResponseDto>> commentsByPost = commentService.getLatestComments(
+                posts.stream().map(PostResponseDto::getId).toList(), latestComments);
+
+        return posts.stream()
+                .map(post -> post.withLatestComments(commentsByPost.getOrDefault(post.getId(), List.of())))
+                .toList();
+    }
+
+    // Copies the posts of a page with the likes and reposts of the viewer, found with one query for the whole page
+    private List<PostResponseDto> withViewerState(long viewerId, List<PostResponseDto> posts) {
+        if (posts.isEmpty()) {
+            return posts;
+        }
+
+        Map<String, Set<Long>> postIdsByInteraction = postRepository.findInteractions(
+                        viewerId, posts.stream().map(PostResponseDto::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(
+                        PostInteractionView::getInteraction,
+                        Collectors.mapping(PostInteractionView::getPostId, Collectors.toSet())
+                ));
+        Set<Long> liked = postIdsByInteraction.getOrDefault("like", Set.of());
+        Set<Long> reposted = postIdsByInteraction.getOrDefault("repost", Set.of());
+
+        return posts.stream()
+                .map(post -> post
+                        .withLikedByMe(likeBufferService.isLiked(viewerId, post.getId(), liked.contains(post.getId())))
+                        .withRepostedByMe(reposted.contains(post.getId())))
+                .toList();
+    }
+
+    // Keeps the order of the ids, posts deleted meanwhile are skipped
+    private List<PostFeedView> findFeedViewsInOrder(List<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, PostFeedView> postsById = postRepository.findFeedViewsByIds(postIds).stream()
+                .collect(Collectors.toMap(PostFeedView::getId, post -> post));
+
+        return postIds.stream()
+                .map(postsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    // Builds a page of responses with one extra query for the images of all its posts
+    private List<PostResponseDto> mapToResponse(List<? extends PostFeedView> posts) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<String>> imagesByPost = postRepository.findImagesByPostIds(
+                        posts.stream().map(PostFeedView::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(
+                        PostImageView::getPostId,
+                        Collectors.mapping(PostImageView::getUrl, Collectors.toList())
+                ));
+
+        return posts.stream()
+                .map(post -> new PostResponseDto(
+                        post.getId(),
+                        new UserShortDto(
+                                post.getUserId(),
+                                post.getFirstName(),
+                                post.getLastName(),
+                                post.getAvatarUrl(),
+                                post.getBirthdate()
+                        ),
+                        post.getText(),
+                        imagesByPost.getOrDefault(post.getId(), List.of()),
+                        post.getCreatedDate(),
+                        post.getLikesCount(),
+                        post.getCommentsCount(),
+                        post.getRepostsCount()
+                ))
+                .toList();
     }
 }
@@ -0,0 +1,201 @@
+package com.facebook.service;
+
+import com.facebook.repository.FriendRepository;
+import com.facebook.repository.PostRepository;
+import com.facebook.repository.TimelineRepository;
+import com.facebook.repository.UserRepository;
+import com.facebook.repository.projection.PostFeedView;
+import com.facebook.repository.projection.RankedPostView;
+import com.facebook.util.FeedCursor;
+import com.facebook.util.KWayMerge;
+import com.facebook.util.RankCursor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hybrid push/pull feed. Posts of regular authors are pushed into their friends' timelines on write,
+ * posts of authors with at least {@code app.feed.high-degree-threshold} friends are pulled
+ * and merged into the reader's timeline at read time.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class TimelineService {
+    private static final Comparator<PostFeedView> NEWEST_FIRST = Comparator
+            .comparing(PostFeedView::getCreatedDate, Comparator.reverseOrder())
+            .thenComparing(PostFeedView::getId, Comparator.reverseOrder());
+    private static final Comparator<RankedPostView> NEWEST_CANDIDATE_FIRST = Comparator
+            .comparing(RankedPostView::getCreatedDate, Comparator.reverseOrder())
+            .thenComparing(RankedPostView::getId, Comparator.reverseOrder());
+    private static final Comparator<RankedPostView> BEST_FIRST = Comparator
+            .<RankedPostView>comparingDouble(RankedPostView::getScore).reversed()
+            .thenComparing(RankedPostView::getId, Comparator.reverseOrder());
+
+    // Rankings of open paging sessions, by reader and snapshot head
+    private static final int MAX_RANKINGS = 10_000;
+    private static final Duration RANKING_IDLE_TTL = Duration.ofMinutes(30);
+
+    private final Cache<RankingKey, RankedFeed> rankings = Caffeine.newBuilder()
+            .maximumSize(MAX_RANKINGS)
+            .expireAfterAccess(RANKING_IDLE_TTL)
+            .build();
+
+    private final TimelineRepository timelineRepository;
+    private final PostRepository postRepository;
+    private final FriendRepository friendRepository;
+    private final UserRepository userRepository;
+
+    @Value("${app.feed.high-degree-threshold:1000}")
+    private int highDegreeThreshold;
+
+    @Value("${app.feed.ranked.candidates:200}")
+    private int rankedCandidates;
+
+    @Value("${app.feed.ranked.affinity-weight:1.0}")
+    private double affinityWeight;
+
+    public void distributePost(Long postId, Long authorId) {
+        if (isHighDegree(authorId)) {
+            timelineRepository.addToAuthorTimeline(postId);
+        } else {
+            timelineRepository.fanOutPost(postId);
+        }
+    }
+
+    public void linkFriends(Long userId, Long friendId) {
+        if (!isHighDegree(friendId)) {
+            timelineRepository.addAuthorPosts(userId, friendId);
+        }
+
+        if (!isHighDegree(userId)) {
+            timelineRepository.addAuthorPosts(friendId, userId);
+        }
+    }
+
+    // Expects friend counts to be already decremented
+    public void unlinkFriends(Long userId, Long friendId) {
+        timelineRepository.removeAuthorPosts(userId, friendId);
+        timelineRepository.removeAuthorPosts(friendId, userId);
+
+        for (Long authorId : List.of(userId, friendId)) {
+            if (userRepository.getFriendsCount(authorId) == highDegreeThreshold - 1) {
+                timelineRepository.pushAuthorPostsToFriends(authorId);
+            }
+        }
+    }
+
+    public int rebuildTimeline(Long ownerId) {
+        timelineRepository.deleteAllByOwner(ownerId);
+
+        return timelineRepository.fillTimeline(ownerId, highDegreeThreshold);
+    }
+
+    @Transactional(readOnly = true)
+    public List<PostFeedView> getFeedPage(Long ownerId, FeedCursor position, int limit) {
+        Pageable firstRows = PageRequest.of(0, limit);
+        List<PostFeedView> pushed = postRepository.getTimelinePostsBefore(
+                ownerId, position.getCreatedDate(), position.getId(), firstRows);
+
+        List<Long> pulledAuthorIds = friendRepository.findHighDegreeFriendIds(ownerId, highDegreeThreshold);
+        if (pulledAuthorIds.isEmpty()) {
+            return pushed;
+        }
+
+        // All pulled authors in one query, however many of them the owner has
+        List<PostFeedView> pulled = postRepository.getAuthorsPostsBefore(
+                pulledAuthorIds, position.getCreatedDate(), position.getId(), firstRows);
+
+        // Pulled authors may still have older entries pushed before they crossed the threshold
+        return KWayMerge.merge(List.of(pushed, pulled), NEWEST_FIRST, PostFeedView::getId, limit);
+    }
+
+    /**
+     * Ranked snapshot of a paging session: the newest {@code app.feed.ranked.candidates} posts of the feed up to
+     * the newest one when the session started, best first. The ranking is kept while the session pages through it,
+     * so scores changing meanwhile don't move posts between pages. An evicted session is ranked again over the same
+     * posts.
+     */
+    @Transactional(readOnly = true)
+    public RankedFeed getRankedFeed(Long ownerId, RankCursor position) {
+        if (!position.isFirstPage()) {
+            return rankings.get(new RankingKey(ownerId, position.getHeadDate(), position.getHeadId()),
+                    key -> rankFeed(ownerId, key.headDate(), key.headId()));
+        }
+
+        FeedCursor newest = FeedCursor.FIRST_PAGE;
+        RankedFeed feed = rankFeed(ownerId, newest.getCreatedDate(), newest.getId());
+        if (feed.postIds().length > 0) {
+            rankings.put(new RankingKey(ownerId, feed.headDate(), feed.headId()), feed);
+        }
+
+        return feed;
+    }
+
+    private RankedFeed rankFeed(Long ownerId, LocalDateTime headDate, long headId) {
+        // One extra candidate per source tells whether the feed goes on past the snapshot
+        Map<Long, RankedPostView> candidates = new HashMap<>();
+        postRepository.getRankedTimelineCandidates(ownerId, headDate, headId, affinityWeight, rankedCandidates + 1)
+                .forEach(post -> candidates.put(post.getId(), post));
+
+        List<Long> pulledAuthorIds = friendRepository.findHighDegreeFriendIds(ownerId, highDegreeThreshold);
+        if (!pulledAuthorIds.isEmpty()) {
+            postRepository.getRankedAuthorCandidates(
+                            ownerId, pulledAuthorIds, headDate, headId, affinityWeight, rankedCandidates + 1)
+                    .forEach(post -> candidates.putIfAbsent(post.getId(), post));
+        }
+
+        List<RankedPostView> snapshot = candidates.values().stream()
+                .sorted(NEWEST_CANDIDATE_FIRST)
+                .limit(rankedCandidates + 1L)
+                .toList();
+        if (snapshot.isEmpty()) {
+            return new RankedFeed(null, 0, new long[0], null);
+        }
+
+        boolean hasOlder = snapshot.size() > rankedCandidates;
+        if (hasOlder) {
+            snapshot = snapshot.subList(0, rankedCandidates);
+        }
+
+        RankedPostView head = snapshot.getFirst();
+        RankedPostView oldest = snapshot.getLast();
+        long[] postIds = snapshot.stream()
+                .sorted(BEST_FIRST)
+                .mapToLong(RankedPostView::getId)
+                .toArray();
+
+        return new RankedFeed(
+                head.getCreatedDate(),
+                head.getId(),
+                postIds,
+                hasOlder ? new FeedCursor(oldest.getCreatedDate(), oldest.getId()) : null
+        );
+    }
+
+    private boolean isHighDegree(Long authorId) {
+        return userRepository.getFriendsCount(authorId) >= highDegreeThreshold;
+    }
+
+    /**
+     * Posts of a ranked snapshot best first, between its newest post {@code headDate/headId} and {@code tail},
+     * where the feed continues chronologically. No tail when the snapshot holds the whole feed.
+     */
+    public record RankedFeed(LocalDateTime headDate, long headId, long[] postIds, FeedCursor tail) {
+    }
+
+    private record RankingKey(Long ownerId, LocalDateTime headDate, long headId) {
+    }
+}
@@ -0,0 +1,216 @@
+package com.facebook.service;
+
+import com.facebook.event.PostCommentedEvent;
+import com.facebook.event.PostDeletedEvent;
+import com.facebook.event.PostLikedEvent;
+import com.facebook.event.PostRepostedEvent;
+import com.facebook.repository.PostRepository;
+import com.facebook.util.Leaderboard;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Trending posts, globally and per group, ranked in memory from likes, comments and reposts as they happen.
+ * An interaction adds its weight, halved every {@code app.trending.half-life}. Instead of decaying every score,
+ * weights grow with the time bucket of the interaction relative to a reference time, which keeps the order
+ * without touching the other posts. Scores are brought back to the current time at each checkpoint
+ * to {@code trending_scores}, which is reloaded on startup.
+ * Posts of private groups are ranked only on their group's board.
+ */
+@Slf4j
+@Service
+public class TrendingService {
+    // Same weights as in the post score
+    static final double LIKE_WEIGHT = 1;
+    static final double COMMENT_WEIGHT = 2;
+    static final double REPOST_WEIGHT = 3;
+    // Posts decayed below this at a checkpoint leave the boards
+    static final double MIN_SCORE = 0.01;
+
+    private static final String INSERT_SCORE =
+            "INSERT INTO trending_scores (group_id, post_id, score, scored_at) VALUES (?, ?, ?, ?)";
+
+    private final PostRepository postRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long halfLifeMillis;
+    private final long bucketMillis;
+    private final int maxPosts;
+    private final Leaderboard global;
+    private final Map<Long, Leaderboard> groups = new ConcurrentHashMap<>();
+    // Boards of each post, looked up on its first interaction
+    private final Cache<Long, PostBoards> postBoards;
+    // Interactions share the lock, bringing every score to the current time takes it alone
+    private final ReadWriteLock rescaleLock = new ReentrantReadWriteLock();
+    private LongSupplier clock = System::currentTimeMillis;
+    private volatile long epochMillis;
+
+    public TrendingService(
+            PostRepository postRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.trending.half-life:6h}") Duration halfLife,
+            @Value("${app.trending.bucket:1m}") Duration bucket,
+            @Value("${app.trending.max-posts:10000}") int maxPosts
+    ) {
+        this.postRepository = postRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.halfLifeMillis = halfLife.toMillis();
+        this.bucketMillis = bucket.toMillis();
+        this.maxPosts = maxPosts;
+        this.global = new Leaderboard(maxPosts);
+        this.postBoards = Caffeine.newBuilder()
+                .maximumSize(maxPosts)
+                .build();
+    }
+
+    @PostConstruct
+    public void restore() {
+        long now = clock.getAsLong();
+        epochMillis = now;
+
+        List<ScoreRow> rows = jdbcTemplate.query(
+                "SELECT group_id, post_id, score, scored_at FROM trending_scores",
+                (resultSet, rowNum) -> new ScoreRow(
+                        resultSet.getObject("group_id", Long.class),
+                        resultSet.getLong("post_id"),
+                        resultSet.getDouble("score"),
+                        resultSet.getTimestamp("scored_at").getTime()
+                ));
+
+        for (ScoreRow row : rows) {
+            board(row.groupId()).add(row.postId(), row.score() * decay(now - row.scoredAt()));
+        }
+
+        if (!rows.isEmpty()) {
+            log.info("Trending: {} scores restored", rows.size());
+        }
+    }
+
+    public List<Long> getTopPostIds(Long groupId, int limit) {
+        Leaderboard board = groupId == null ? global : groups.get(groupId);
+
+        return board == null ? List.of() : board.top(limit);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostLiked(PostLikedEvent event) {
+        onInteraction(event.getPostId(), event.isLiked() ? LIKE_WEIGHT : -LIKE_WEIGHT);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostCommented(PostCommentedEvent event) {
+        onInteraction(event.getPostId(), event.isAdded() ? COMMENT_WEIGHT : -COMMENT_WEIGHT);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostReposted(PostRepostedEvent event) {
+        onInteraction(event.getPostId(), event.isReposted() ? REPOST_WEIGHT : -REPOST_WEIGHT);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        global.remove(event.getPostId());
+        groups.values().forEach(board -> board.remove(event.getPostId()));
+        postBoards.invalidate(event.getPostId());
+    }
+
+    /**
+     * Brings every score to the current time, drops the posts that decayed below {@link #MIN_SCORE}
+     * and replaces the checkpoint with the current boards.
+     */
+    @Scheduled(
+            initialDelayString = "${app.trending.checkpoint-interval-ms:60000}",
+            fixedDelayString = "${app.trending.checkpoint-interval-ms:60000}"
+    )
+    public synchronized int checkpoint() {
+        long now = clock.getAsLong();
+        List<Object[]> rows = new ArrayList<>();
+
+        rescaleLock.writeLock().lock();
+        try {
+            double factor = decay(now - epochMillis);
+            global.scale(factor, MIN_SCORE);
+            groups.values().forEach(board -> board.scale(factor, MIN_SCORE));
+            groups.values().removeIf(board -> board.size() == 0);
+            epochMillis = now;
+
+            Timestamp scoredAt = new Timestamp(now);
+            global.scores().forEach((postId, score) -> rows.add(new Object[]{null, postId, score, scoredAt}));
+            groups.forEach((groupId, board) -> board.scores()
+                    .forEach((postId, score) -> rows.add(new Object[]{groupId, postId, score, scoredAt})));
+        } finally {
+            rescaleLock.writeLock().unlock();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM trending_scores");
+            jdbcTemplate.batchUpdate(INSERT_SCORE, rows);
+        });
+
+        return rows.size();
+    }
+
+    // An undone interaction takes its weight back at the current time, which can only underrate the post
+    private void onInteraction(Long postId, double weight) {
+        PostBoards boards = postBoards.get(postId, id -> postRepository.findGroup(id)
+                .map(group -> new PostBoards(group.getGroupId(), !Boolean.TRUE.equals(group.getPrivateGroup())))
+                .orElse(null));
+
+        // Deleted meanwhile
+        if (boards == null) {
+            return;
+        }
+
+        rescaleLock.readLock().lock();
+        try {
+            long now = clock.getAsLong();
+            double delta = weight / decay(now - now % bucketMillis - epochMillis);
+
+            if (boards.global()) {
+                global.add(postId, delta);
+            }
+
+            if (boards.groupId() != null) {
+                board(boards.groupId()).add(postId, delta);
+            }
+        } finally {
+            rescaleLock.readLock().unlock();
+        }
+    }
+
+    private Leaderboard board(Long groupId) {
+        return groupId == null ? global : groups.computeIfAbsent(groupId, id -> new Leaderboard(maxPosts));
+    }
+
+    // Share of a score left after the given time
+    private double decay(long elapsedMillis) {
+        return Math.pow(2, -(double) elapsedMillis / halfLifeMillis);
+    }
+
+    private record PostBoards(Long groupId, boolean global) {
+    }
+
+    private record ScoreRow(Long groupId, long postId, double score, long scoredAt) {
+    }
+}
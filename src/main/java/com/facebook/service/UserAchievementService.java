@@ -1,63 +1,113 @@
 package com.facebook.service;
 
 import com.facebook.dto.AchievementResponseDto;
+import com.facebook.enums.Achievements;
 import com.facebook.model.Achievement;
 import com.facebook.model.User;
-import com.facebook.model.UserAchievement;
-import com.facebook.repository.AchievementRepository;
 import com.facebook.repository.UserAchievementRepository;
-import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
+/**
+ * Achievements earned by users. Each user's achievements are cached as a bitset over {@link AchievementCatalog},
+ * loaded with one query and invalidated when the user is awarded one, so checks cost no queries.
+ */
 @Service
-@RequiredArgsConstructor
 public class UserAchievementService {
     private final UserAchievementRepository userAchievementRepository;
-    private final AchievementRepository achievementRepository;
-    private final ModelMapper modelMapper;
+    private final AchievementCatalog achievementCatalog;
+    private final Cache<Long, Long> earned;
 
+    public UserAchievementService(
+            UserAchievementRepository userAchievementRepository,
+            AchievementCatalog achievementCatalog,
+            @Value("${app.achievements.cache.max-users:100000}") long maxUsers,
+            @Value("${app.achievements.cache.ttl:1h}") Duration ttl
+    ) {
+        this.userAchievementRepository = userAchievementRepository;
+        this.achievementCatalog = achievementCatalog;
+        this.earned = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(ttl)
+                .build();
+    }
 
-    public void awardAchievement(User user, String achievementName) {
-        Optional<Achievement> achievementOpt = achievementRepository.findByName(achievementName);
+    /**
+     * Awards the achievement to the user unless they already have it, so repeating an award is harmless.
+     *
+     * @return whether the achievement was awarded now
+     */
+    public boolean awardAchievement(Long userId, Achievements achievementName) {
+        Achievement achievement = achievementCatalog.get(achievementName);
 
-        if (achievementOpt.isEmpty()) {
-            throw new IllegalArgumentException("Unknown achievement name: " + achievementName);
+        if (userHaveAchievement(userId, achievementName)
+                || userAchievementRepository.insertIfAbsent(userId, achievement.getId()) == 0) {
+            return false;
         }
 
-        Achievement achievement = achievementOpt.get();
+        invalidate(userId);
 
-        Optional<UserAchievement> alreadyAwarded = userAchievementRepository
-                .findByUserAndAchievement(user, achievement);
+        return true;
+    }
 
-        if (alreadyAwarded.isEmpty()) {
-            UserAchievement ua = new UserAchievement();
-            ua.setUser(user);
-            ua.setAchievement(achievement);
-            userAchievementRepository.save(ua);
+    public List<AchievementResponseDto> getAllAchievementsOfUser(User user) {
+        long bits = getEarned(user.getId());
+        List<AchievementResponseDto> achievements = new ArrayList<>();
+
+        for (Achievements achievement : Achievements.values()) {
+            if ((bits & AchievementCatalog.bit(achievement)) != 0) {
+                achievements.add(achievementCatalog.toResponse(achievement));
+            }
         }
+
+        return achievements;
     }
 
-    public List<AchievementResponseDto> getAllAchievementsOfUser(User user) {
-        Optional<List<UserAchievement>> userAchievementsOpt = userAchievementRepository.findAllByUser(user);
+    public boolean userHaveAchievement(Long userId, Achievements achievementName) {
+        return (getEarned(userId) & AchievementCatalog.bit(achievementName)) != 0;
+    }
+
+    // For awards written around this service, e.g. by the backfill
+    public void evict(Collection<Long> userIds) {
+        earned.invalidateAll(userIds);
+    }
 
-        List<Long> achievementIds = userAchievementsOpt
-                .orElse(List.of())
-                .stream()
-                .map(ua -> ua.getAchievement().getId())
-                .toList();
+    private long getEarned(Long userId) {
+        return earned.get(userId, id -> {
+            long bits = 0;
 
-        List<Achievement> achievements = achievementRepository.findAllById(achievementIds);
+            for (Long achievementId : userAchievementRepository.findAchievementIdsByUserId(id)) {
+                Achievements achievement = achievementCatalog.findById(achievementId);
 
-        return achievements.stream()
-                .map(achievement -> modelMapper.map(achievement, AchievementResponseDto.class))
-                .toList();
+                if (achievement != null) {
+                    bits |= AchievementCatalog.bit(achievement);
+                }
+            }
+
+            return bits;
+        });
     }
 
-    public boolean userHaveAchievement(User user, String achievementName) {
-        return getAllAchievementsOfUser(user).stream()
-                .anyMatch(achievement -> achievement.getName().equals(achievementName));
+    // Again after commit, in case another request cached the set before the award was visible
+    private void invalidate(Long userId) {
+        earned.invalidate(userId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    earned.invalidate(userId);
+                }
+            });
+        }
     }
 }
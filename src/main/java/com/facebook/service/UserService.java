@@ -1,31 +1,40 @@
 package com.facebook.service;
 
+import com.facebook.dto.PageResponseDto;
 import com.facebook.dto.UserDetailsDto;
 import com.facebook.dto.UserShortDto;
 import com.facebook.dto.UserUpdateRequestDto;
-import com.facebook.enums.FriendStatus;
+import com.facebook.enums.PageCount;
+import com.facebook.event.ProfileUpdatedEvent;
 import com.facebook.exception.NotFoundException;
 import com.facebook.model.User;
-import com.facebook.repository.FriendRepository;
 import com.facebook.repository.UserRepository;
 import lombok.AllArgsConstructor;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class UserService {
+    // The details show the first friends and mutual friends, the rest are paged by their own endpoints
+    private static final int DETAILS_FRIENDS_PAGE_SIZE = 20;
+
     private final UserRepository userRepository;
-    private final FriendRepository friendRepository;
-    private final UserAchievementService userAchievementService;
+    private final FriendService friendService;
+    private final FriendGraph friendGraph;
+    private final ApplicationEventPublisher eventPublisher;
     private final ModelMapper modelMapper;
+    private final ApproximateCountService approximateCountService;
 
     public UserDetailsDto getCurrentUserDetails(long userId) {
         User user = userRepository.findById(userId)
@@ -33,14 +42,8 @@ public class UserService {
 
         UserDetailsDto userCurrentDetailsDto = modelMapper.map(user, UserDetailsDto.class);
 
-        List<UserShortDto> friends = friendRepository.findByStatusAndUserId(FriendStatus.ACCEPTED, userId)
-                .stream()
-                .map(friend -> modelMapper.map(friend.getFriend(), UserShortDto.class))
-                .toList();
-        List<UserShortDto> friendsRequests = friendRepository.findByStatusAndFriendId(FriendStatus.PENDING, userId)
-                .stream()
-                .map(friend -> modelMapper.map(friend.getFriend(), UserShortDto.class))
-                .toList();
+        List<UserShortDto> friends = friendService.getAllFriendUsers(userId);
+        List<UserShortDto> friendsRequests = friendService.getAllUsersWhomSentRequest(userId);
 
         userCurrentDetailsDto.setFriends(friends);
         userCurrentDetailsDto.setFriendsRequests(friendsRequests);
@@ -55,6 +58,23 @@ public class UserService {
         return usersPage.map(user -> modelMapper.map(user, UserShortDto.class));
     }
 
+    public PageResponseDto<UserShortDto> getAllUsersExceptCurrent(long currentUserId, int page, int size, PageCount count) {
+        if (count == PageCount.EXACT) {
+            return new PageResponseDto<>(getAllUsersExceptCurrent(currentUserId, page, size));
+        }
+
+        Slice<UserShortDto> users = userRepository
+                .findSliceByIdNotOrderByCreatedDateDesc(currentUserId, PageRequest.of(page, size))
+                .map(user -> modelMapper.map(user, UserShortDto.class));
+
+        if (count == PageCount.NONE) {
+            return new PageResponseDto<>(users);
+        }
+
+        // One shared count of all users, minus the current one
+        return new PageResponseDto<>(users, approximateCountService.getCount("users", userRepository::count) - 1);
+    }
+
     public UserDetailsDto getUserDetails(long userId, long currentUserId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Not found user with ID: " + userId));
@@ -63,34 +83,74 @@ public class UserService {
 
         UserDetailsDto friendDetailsDto = modelMapper.map(user, UserDetailsDto.class);
 
-        List<UserShortDto> friends = friendRepository.findByStatusAndUserId(FriendStatus.ACCEPTED, userId)
-                .stream()
-                .map(friend -> modelMapper.map(friend.getFriend(), UserShortDto.class))
-                .collect(Collectors.toList());
-        List<UserShortDto> friendsRequests = friendRepository.findByStatusAndFriendId(FriendStatus.PENDING, userId)
-                .stream()
-                .map(friend -> modelMapper.map(friend.getFriend(), UserShortDto.class))
-                .toList();
-        List<UserShortDto> currentUserFriends = friendRepository.findByStatusAndUserId(FriendStatus.ACCEPTED, currentUserId)
-                .stream()
-                .map(friend -> modelMapper.map(friend.getFriend(), UserShortDto.class))
-                .toList();
-
-        // Find mutual friends (not show add button)
-        List<UserShortDto> mutualFriends = friends.stream()
-                .filter(currentUserFriends::contains)
-                .toList();
+        // Mutual friends (not show add button) and the other friends (show add button), the first page of each
+        long[] mutualFriendIds = friendGraph.getMutualFriendIds(userId, currentUserId);
+        long[] otherFriendIds = FriendGraph.difference(friendGraph.getFriendIds(userId), mutualFriendIds);
+        Pageable firstPage = PageRequest.of(0, DETAILS_FRIENDS_PAGE_SIZE);
+        long[] mutualPageIds = page(mutualFriendIds, firstPage);
+        long[] otherPageIds = page(otherFriendIds, firstPage);
+
+        // Both pages loaded in one query
+        long[] pageIds = Arrays.copyOf(mutualPageIds, mutualPageIds.length + otherPageIds.length);
+        System.arraycopy(otherPageIds, 0, pageIds, mutualPageIds.length, otherPageIds.length);
+
+        List<UserShortDto> friends = new ArrayList<>();
+        List<UserShortDto> mutualFriends = new ArrayList<>();
+        for (UserShortDto friend : friendService.getUsers(pageIds)) {
+            if (Arrays.binarySearch(mutualPageIds, friend.getId()) >= 0) {
+                mutualFriends.add(friend);
+            } else {
+                friends.add(friend);
+            }
+        }
 
-        // Remove mutuals from original friends (show add button)
-        friends.removeAll(mutualFriends);
+        List<UserShortDto> friendsRequests = friendService.getAllUsersWhomSentRequest(userId);
 
         friendDetailsDto.setFriends(friends);
         friendDetailsDto.setFriendsRequests(friendsRequests);
         friendDetailsDto.setMutualFriends(mutualFriends);
+        friendDetailsDto.setMutualFriendsCount(mutualFriendIds.length);
+        friendDetailsDto.setFriendsCount(otherFriendIds.length);
 
         return friendDetailsDto;
     }
 
+    // Only the requested page of mutual friends is loaded, the total is their count
+    public PageResponseDto<UserShortDto> getMutualFriends(long userId, long currentUserId, int page, int size) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("Not found user with ID: " + userId);
+        }
+
+        Pageable pageable = PageRequest.of(page, size);
+        long[] mutualFriendIds = friendGraph.getMutualFriendIds(userId, currentUserId);
+
+        List<UserShortDto> content = friendService.getUsers(page(mutualFriendIds, pageable));
+
+        return new PageResponseDto<>(new PageImpl<>(content, pageable, mutualFriendIds.length));
+    }
+
+    // The user's friends not shared with the current user, the rest of the friends of the user details
+    public PageResponseDto<UserShortDto> getOtherFriends(long userId, long currentUserId, int page, int size) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("Not found user with ID: " + userId);
+        }
+
+        Pageable pageable = PageRequest.of(page, size);
+        long[] otherFriendIds = FriendGraph.difference(
+                friendGraph.getFriendIds(userId), friendGraph.getMutualFriendIds(userId, currentUserId));
+
+        List<UserShortDto> content = friendService.getUsers(page(otherFriendIds, pageable));
+
+        return new PageResponseDto<>(new PageImpl<>(content, pageable, otherFriendIds.length));
+    }
+
+    private static long[] page(long[] ids, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), ids.length);
+        int to = Math.min(from + pageable.getPageSize(), ids.length);
+
+        return Arrays.copyOfRange(ids, from, to);
+    }
+
     public UserDetailsDto updateUser(long userId, UserUpdateRequestDto updatedData) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Not found user with ID: " + userId));
@@ -128,25 +188,11 @@ public class UserService {
         }
 
         User savedUser = userRepository.save(user);
-        String achievementName = "Pink Profile";
-        if (allFieldsAreFilled(user) && !userAchievementService.userHaveAchievement(user, achievementName)) {
-            userAchievementService.awardAchievement(user, achievementName);
-        }
+        eventPublisher.publishEvent(new ProfileUpdatedEvent(userId));
 
         return modelMapper.map(savedUser, UserDetailsDto.class);
     }
 
-    private boolean allFieldsAreFilled(User user) {
-        return user.getFirstName() != null &&
-                user.getLastName() != null &&
-                user.getPhone() != null &&
-                user.getBirthdate() != null &&
-                user.getAvatarUrl() != null &&
-                user.getHeaderPhotoUrl() != null &&
-                user.getHomeCity() != null &&
-                user.getCurrentCity() != null;
-    }
-
     public User findUserById(long userId) {
         return userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Not found user with ID: " + userId));
     }
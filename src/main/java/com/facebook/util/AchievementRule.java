@@ -0,0 +1,17 @@
+package com.facebook.util;
+
+import com.facebook.enums.AchievementCounter;
+
+/**
+ * Condition for awarding an achievement: a counter reaching a threshold.
+ * Counters are evaluated after batches of changes and can step over a value, so rules never test equality.
+ */
+public record AchievementRule(AchievementCounter counter, long threshold) {
+    public static AchievementRule atLeast(AchievementCounter counter, long threshold) {
+        return new AchievementRule(counter, threshold);
+    }
+
+    public boolean matches(long value) {
+        return value >= threshold;
+    }
+}
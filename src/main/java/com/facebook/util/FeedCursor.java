@@ -0,0 +1,55 @@
+package com.facebook.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in a feed, or in the comments of a post, ordered by {@code (created_at DESC, id DESC)}.
+ * Clients get it as {@code nextCursor} and send it back to fetch the next page.
+ */
+@Getter
+@AllArgsConstructor
+public class FeedCursor {
+    // Position before the newest possible post, used when the client sends no cursor
+    public static final FeedCursor FIRST_PAGE = new FeedCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime createdDate;
+    private final long id;
+
+    // Whether a post with this position sorts above the cursor, i.e. is newer
+    public boolean isOlderThan(LocalDateTime postCreatedDate, long postId) {
+        int byDate = postCreatedDate.compareTo(createdDate);
+
+        return byDate > 0 || (byDate == 0 && postId > id);
+    }
+
+    public static String encode(LocalDateTime createdDate, long id) {
+        String raw = createdDate + SEPARATOR + id;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static FeedCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST_PAGE;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+
+            return new FeedCursor(
+                    LocalDateTime.parse(raw.substring(0, separatorIndex)),
+                    Long.parseLong(raw.substring(separatorIndex + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.facebook.util;
+
+import java.util.*;
+import java.util.function.Function;
+
+public class KWayMerge {
+    private KWayMerge() {
+    }
+
+    /**
+     * Merges lists that are each already sorted by {@code order} and stops after {@code limit} items,
+     * so the work is O(limit * log k) no matter how long the sources are.
+     * Items whose key was already taken from another source are skipped.
+     */
+    public static <T> List<T> merge(List<List<T>> sources, Comparator<? super T> order,
+                                    Function<? super T, ?> key, int limit) {
+        PriorityQueue<SourceCursor<T>> heads = new PriorityQueue<>(
+                Math.max(1, sources.size()),
+                (a, b) -> order.compare(a.current(), b.current())
+        );
+
+        for (List<T> source : sources) {
+            if (!source.isEmpty()) {
+                heads.add(new SourceCursor<>(source));
+            }
+        }
+
+        List<T> result = new ArrayList<>(limit);
+        Set<Object> seenKeys = new HashSet<>();
+
+        while (result.size() < limit && !heads.isEmpty()) {
+            SourceCursor<T> head = heads.poll();
+            T item = head.current();
+
+            if (seenKeys.add(key.apply(item))) {
+                result.add(item);
+            }
+
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+
+        return result;
+    }
+
+    private static class SourceCursor<T> {
+        private final List<T> source;
+        private int position;
+
+        SourceCursor(List<T> source) {
+            this.source = source;
+        }
+
+        T current() {
+            return source.get(position);
+        }
+
+        boolean advance() {
+            position++;
+            return position < source.size();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.facebook.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Scores of ids kept sorted, so the top k are read in O(k) and a score changes in O(log n).
+ * Holds at most {@code maxSize} ids, the lowest scores are dropped first. Thread-safe.
+ */
+public class Leaderboard {
+    private static final Comparator<Entry> HIGHEST_FIRST = Comparator
+            .<Entry>comparingDouble(Entry::score).reversed()
+            .thenComparing(Entry::id, Comparator.reverseOrder());
+
+    private final int maxSize;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(HIGHEST_FIRST);
+
+    public Leaderboard(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // Ids whose score drops to zero or below leave the board
+    public synchronized void add(long id, double delta) {
+        Entry current = entries.get(id);
+        double score = (current == null ? 0 : current.score()) + delta;
+
+        if (current != null) {
+            ranking.remove(current);
+        }
+
+        if (score <= 0) {
+            entries.remove(id);
+            return;
+        }
+
+        put(new Entry(id, score));
+
+        if (ranking.size() > maxSize) {
+            entries.remove(ranking.pollLast().id());
+        }
+    }
+
+    public synchronized void remove(long id) {
+        Entry current = entries.remove(id);
+
+        if (current != null) {
+            ranking.remove(current);
+        }
+    }
+
+    public synchronized List<Long> top(int limit) {
+        List<Long> ids = new ArrayList<>(Math.min(limit, ranking.size()));
+        Iterator<Entry> iterator = ranking.iterator();
+
+        while (ids.size() < limit && iterator.hasNext()) {
+            ids.add(iterator.next().id());
+        }
+
+        return ids;
+    }
+
+    public synchronized double getScore(long id) {
+        Entry current = entries.get(id);
+
+        return current == null ? 0 : current.score();
+    }
+
+    // Multiplies every score by the factor, then drops the ids scored below the minimum
+    public synchronized void scale(double factor, double minScore) {
+        List<Entry> scaled = ranking.stream()
+                .map(entry -> new Entry(entry.id(), entry.score() * factor))
+                .filter(entry -> entry.score() >= minScore)
+                .toList();
+
+        entries.clear();
+        ranking.clear();
+        scaled.forEach(this::put);
+    }
+
+    public synchronized Map<Long, Double> scores() {
+        Map<Long, Double> scores = new HashMap<>();
+        entries.forEach((id, entry) -> scores.put(id, entry.score()));
+
+        return scores;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void put(Entry entry) {
+        entries.put(entry.id(), entry);
+        ranking.add(entry);
+    }
+
+    private record Entry(long id, double score) {
+    }
+}
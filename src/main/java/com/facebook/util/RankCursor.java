@@ -0,0 +1,73 @@
+package com.facebook.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque position in a ranked feed: the newest post of the ranked snapshot, which pins the candidates
+ * of the paging session, and the number of ranked posts already served.
+ * Past the snapshot the feed continues chronologically with {@link FeedCursor}s.
+ */
+@Getter
+@AllArgsConstructor
+public class RankCursor {
+    // No snapshot yet, used when the client sends no cursor
+    public static final RankCursor FIRST_PAGE = new RankCursor(null, 0, 0);
+
+    private static final String PREFIX = "rank|";
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime headDate;
+    private final long headId;
+    private final int offset;
+
+    public boolean isFirstPage() {
+        return headDate == null;
+    }
+
+    public static String encode(LocalDateTime headDate, long headId, int offset) {
+        String raw = PREFIX + headDate + SEPARATOR + headId + SEPARATOR + offset;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Whether the cursor points into the ranked snapshot rather than the chronological rest of the feed
+    public static boolean isRanked(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return true;
+        }
+
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).startsWith(PREFIX);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public static RankCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST_PAGE;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.substring(PREFIX.length()).split("\\" + SEPARATOR);
+            if (!raw.startsWith(PREFIX) || parts.length != 3) {
+                throw new IllegalArgumentException();
+            }
+
+            int offset = Integer.parseInt(parts[2]);
+            if (offset < 0) {
+                throw new IllegalArgumentException();
+            }
+
+            return new RankCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]), offset);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
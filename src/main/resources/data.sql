@@ -15,6 +15,7 @@ CREATE TABLE IF NOT EXISTS users (
   created_at timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
   updated_at timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   provider varchar(20) NOT NULL DEFAULT('LOCAL'),
+  friends_count int NOT NULL DEFAULT 0,
   PRIMARY KEY (id)
 );
 
@@ -90,6 +91,10 @@ CREATE TABLE IF NOT EXISTS posts (
   text text,
   user_id bigint NOT NULL,
   group_id bigint,
+  likes_count int NOT NULL DEFAULT 0,
+  comments_count int NOT NULL DEFAULT 0,
+  reposts_count int NOT NULL DEFAULT 0,
+  rank_score double NOT NULL DEFAULT 0,
   created_at timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
   updated_at timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   PRIMARY KEY (id)
@@ -103,6 +108,8 @@ ALTER TABLE posts
 ADD CONSTRAINT FK_posts_group_id FOREIGN KEY (group_id)
 REFERENCES user_groups (id) ON DELETE CASCADE ON UPDATE NO ACTION;
 
+CREATE INDEX idx_posts_user_id_created_at ON posts (user_id, created_at, id);
+
 CREATE TABLE IF NOT EXISTS post_images (
   id bigint NOT NULL AUTO_INCREMENT,
   post_id bigint NOT NULL,
@@ -122,6 +129,9 @@ CREATE TABLE IF NOT EXISTS likes (
   PRIMARY KEY (id)
 );
 
+ALTER TABLE likes
+ADD CONSTRAINT UK_likes_user_post UNIQUE (user_id, post_id);
+
 ALTER TABLE likes
 ADD CONSTRAINT FK_likes_user_id FOREIGN KEY (user_id)
 REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
@@ -130,6 +140,16 @@ ALTER TABLE likes
 ADD CONSTRAINT FK_likes_post_id FOREIGN KEY (post_id)
 REFERENCES posts (id) ON DELETE CASCADE ON UPDATE NO ACTION;
 
+CREATE TABLE IF NOT EXISTS like_toggles (
+  id bigint NOT NULL AUTO_INCREMENT,
+  user_id bigint NOT NULL,
+  post_id bigint NOT NULL,
+  author_id bigint NOT NULL,
+  liked boolean NOT NULL,
+  created_at timestamp NOT NULL,
+  PRIMARY KEY (id)
+);
+
 CREATE TABLE IF NOT EXISTS comments (
   id bigint NOT NULL AUTO_INCREMENT,
   user_id bigint NOT NULL,
@@ -148,6 +168,8 @@ ALTER TABLE comments
 ADD CONSTRAINT FK_comments_post_id FOREIGN KEY (post_id)
 REFERENCES posts (id) ON DELETE CASCADE ON UPDATE NO ACTION;
 
+CREATE INDEX idx_comments_post_id_created_at ON comments (post_id, created_at, id);
+
 CREATE TABLE IF NOT EXISTS reposts (
   id bigint NOT NULL AUTO_INCREMENT,
   user_id bigint NOT NULL,
@@ -166,20 +188,31 @@ REFERENCES posts (id) ON DELETE CASCADE ON UPDATE NO ACTION;
 
 CREATE TABLE IF NOT EXISTS friends (
   id bigint NOT NULL AUTO_INCREMENT,
-  user_id bigint NOT NULL,
-  friend_id bigint NOT NULL,
-  status ENUM ('PENDING', 'ACCEPTED', 'DECLINED') DEFAULT ('PENDING'),
+  low_id bigint NOT NULL,
+  high_id bigint NOT NULL,
+  requester_id bigint NOT NULL COMMENT 'The one who sent the request, low_id or high_id',
+  status ENUM ('PENDING', 'ACCEPTED') NOT NULL DEFAULT 'PENDING',
   created_at timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
-  accepted_at timestamp,
-  PRIMARY KEY (id)
+  accepted_at timestamp NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT CK_friends_low_high CHECK (low_id < high_id)
 );
 
 ALTER TABLE friends
-ADD CONSTRAINT FK_friends_user_id FOREIGN KEY (user_id)
+ADD CONSTRAINT UK_friends_low_high UNIQUE (low_id, high_id);
+
+CREATE INDEX idx_friends_high_low ON friends (high_id, low_id);
+
+ALTER TABLE friends
+ADD CONSTRAINT FK_friends_low_id FOREIGN KEY (low_id)
+REFERENCES users (id);
+
+ALTER TABLE friends
+ADD CONSTRAINT FK_friends_high_id FOREIGN KEY (high_id)
 REFERENCES users (id);
 
 ALTER TABLE friends
-ADD CONSTRAINT FK_friends_friend_id FOREIGN KEY (friend_id)
+ADD CONSTRAINT FK_friends_requester_id FOREIGN KEY (requester_id)
 REFERENCES users (id);
 
 CREATE TABLE IF NOT EXISTS followers (
@@ -240,6 +273,65 @@ ALTER TABLE notifications
 ADD CONSTRAINT FK_notifications_related_post_id FOREIGN KEY (related_post_id)
 REFERENCES posts (id);
 
+CREATE TABLE IF NOT EXISTS timeline_entries (
+  id bigint NOT NULL AUTO_INCREMENT,
+  owner_id bigint NOT NULL,
+  post_id bigint NOT NULL,
+  created_at timestamp NOT NULL,
+  PRIMARY KEY (id)
+);
+
+ALTER TABLE timeline_entries
+ADD CONSTRAINT UK_timeline_entries_owner_post UNIQUE (owner_id, post_id);
+
+CREATE INDEX idx_timeline_entries_owner_created_at ON timeline_entries (owner_id, created_at, post_id);
+
+ALTER TABLE timeline_entries
+ADD CONSTRAINT FK_timeline_entries_owner_id FOREIGN KEY (owner_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+ALTER TABLE timeline_entries
+ADD CONSTRAINT FK_timeline_entries_post_id FOREIGN KEY (post_id)
+REFERENCES posts (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+CREATE TABLE IF NOT EXISTS user_affinities (
+  user_id bigint NOT NULL,
+  author_id bigint NOT NULL,
+  score double NOT NULL DEFAULT 0,
+  PRIMARY KEY (user_id, author_id)
+);
+
+ALTER TABLE user_affinities
+ADD CONSTRAINT FK_user_affinities_user_id FOREIGN KEY (user_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+ALTER TABLE user_affinities
+ADD CONSTRAINT FK_user_affinities_author_id FOREIGN KEY (author_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+CREATE TABLE IF NOT EXISTS trending_scores (
+  id bigint NOT NULL AUTO_INCREMENT,
+  group_id bigint,
+  post_id bigint NOT NULL,
+  score double NOT NULL,
+  scored_at timestamp NOT NULL,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS user_stats (
+  user_id bigint NOT NULL,
+  posts_count int NOT NULL DEFAULT 0,
+  posts_with_images_count int NOT NULL DEFAULT 0,
+  comments_count int NOT NULL DEFAULT 0,
+  likes_received_count int NOT NULL DEFAULT 0,
+  reposts_count int NOT NULL DEFAULT 0,
+  PRIMARY KEY (user_id)
+);
+
+ALTER TABLE user_stats
+ADD CONSTRAINT FK_user_stats_user_id FOREIGN KEY (user_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
 CREATE TABLE IF NOT EXISTS achievements (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(255) NOT NULL UNIQUE,
@@ -264,6 +356,59 @@ ALTER TABLE user_achievements
 ADD CONSTRAINT FK_user_achievements_achievement_id FOREIGN KEY (achievement_id)
 REFERENCES achievements (id) ON DELETE CASCADE ON UPDATE NO ACTION;
 
+ALTER TABLE user_achievements
+ADD CONSTRAINT UK_user_achievements_user_achievement UNIQUE (user_id, achievement_id);
+
+CREATE TABLE IF NOT EXISTS achievement_events (
+  id bigint NOT NULL AUTO_INCREMENT,
+  type varchar(32) NOT NULL,
+  user_id bigint NOT NULL,
+  post_id bigint DEFAULT NULL,
+  created_at timestamp NOT NULL,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS achievement_backfills (
+  id bigint NOT NULL AUTO_INCREMENT,
+  rules_hash varchar(64) NOT NULL,
+  last_user_id bigint NOT NULL DEFAULT 0,
+  users_count bigint NOT NULL DEFAULT 0,
+  awards_count bigint NOT NULL DEFAULT 0,
+  started_at timestamp NOT NULL,
+  updated_at timestamp NOT NULL,
+  finished_at timestamp NULL DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS friend_recommendations (
+  user_id bigint NOT NULL,
+  position int NOT NULL,
+  candidate_id bigint NOT NULL,
+  mutual_friends_count int NOT NULL,
+  score double NOT NULL,
+  computed_at timestamp NOT NULL,
+  PRIMARY KEY (user_id, position)
+);
+
+ALTER TABLE friend_recommendations
+ADD CONSTRAINT FK_friend_recommendations_user_id FOREIGN KEY (user_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+ALTER TABLE friend_recommendations
+ADD CONSTRAINT FK_friend_recommendations_candidate_id FOREIGN KEY (candidate_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+CREATE TABLE IF NOT EXISTS friend_graph_changes (
+  user_id bigint NOT NULL,
+  version bigint NOT NULL DEFAULT 1,
+  changed_at timestamp NOT NULL,
+  PRIMARY KEY (user_id)
+);
+
+ALTER TABLE friend_graph_changes
+ADD CONSTRAINT FK_friend_graph_changes_user_id FOREIGN KEY (user_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
 INSERT INTO achievements (name, description, is_premium) VALUES
  ('Sweet & Signed In', 'First login', false),
  ('Pink Profile', 'Completed your profile + added avatar', false),
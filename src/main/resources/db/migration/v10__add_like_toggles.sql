@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS like_toggles (
+  id bigint NOT NULL AUTO_INCREMENT COMMENT 'Order of the toggles of a user on a post',
+  user_id bigint NOT NULL,
+  post_id bigint NOT NULL,
+  author_id bigint NOT NULL COMMENT 'Author of the post, for the events published on flush',
+  liked boolean NOT NULL COMMENT 'State of the like after the toggle',
+  created_at timestamp NOT NULL,
+  PRIMARY KEY (id)
+) COMMENT 'Like toggles acknowledged but not yet applied to likes, see LikeBufferService';
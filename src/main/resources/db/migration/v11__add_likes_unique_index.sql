@@ -0,0 +1,13 @@
+-- Keeps the oldest like of each user on each post
+DELETE l
+FROM likes l
+JOIN likes older ON older.user_id = l.user_id AND older.post_id = l.post_id AND older.id < l.id;
+
+UPDATE posts p
+SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.post_id = p.id);
+
+UPDATE posts
+SET rank_score = LN(1 + likes_count + 2 * comments_count + 3 * reposts_count) + UNIX_TIMESTAMP(created_at) / 45000.0;
+
+ALTER TABLE likes
+ADD CONSTRAINT UK_likes_user_post UNIQUE (user_id, post_id);
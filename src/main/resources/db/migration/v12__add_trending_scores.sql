@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS trending_scores (
+  id bigint NOT NULL AUTO_INCREMENT,
+  group_id bigint COMMENT 'Board of the group, NULL for the global board',
+  post_id bigint NOT NULL,
+  score double NOT NULL COMMENT 'Decayed score at scored_at',
+  scored_at timestamp NOT NULL,
+  PRIMARY KEY (id)
+) COMMENT 'Checkpoint of the in-memory trending boards, see TrendingService';
@@ -0,0 +1,23 @@
+CREATE TABLE IF NOT EXISTS user_stats (
+  user_id bigint NOT NULL,
+  posts_count int NOT NULL DEFAULT 0,
+  posts_with_images_count int NOT NULL DEFAULT 0,
+  comments_count int NOT NULL DEFAULT 0 COMMENT 'Comments written by the user',
+  likes_received_count int NOT NULL DEFAULT 0 COMMENT 'Likes on the user''s posts',
+  reposts_count int NOT NULL DEFAULT 0 COMMENT 'Reposts made by the user',
+  PRIMARY KEY (user_id)
+) COMMENT 'Activity counters kept in step with each write, see UserStatsRepository';
+
+ALTER TABLE user_stats
+ADD CONSTRAINT FK_user_stats_user_id FOREIGN KEY (user_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+INSERT INTO user_stats (user_id, posts_count, posts_with_images_count, comments_count, likes_received_count, reposts_count)
+SELECT u.id,
+       (SELECT COUNT(*) FROM posts p WHERE p.user_id = u.id),
+       (SELECT COUNT(*) FROM posts p WHERE p.user_id = u.id
+            AND EXISTS (SELECT 1 FROM post_images i WHERE i.post_id = p.id)),
+       (SELECT COUNT(*) FROM comments c WHERE c.user_id = u.id),
+       (SELECT COUNT(*) FROM likes l JOIN posts p ON p.id = l.post_id WHERE p.user_id = u.id),
+       (SELECT COUNT(*) FROM reposts r WHERE r.user_id = u.id)
+FROM users u;
@@ -0,0 +1,17 @@
+-- Keeps the first award of each achievement to each user
+DELETE ua
+FROM user_achievements ua
+JOIN user_achievements older
+  ON older.user_id = ua.user_id AND older.achievement_id = ua.achievement_id AND older.id < ua.id;
+
+ALTER TABLE user_achievements
+ADD CONSTRAINT UK_user_achievements_user_achievement UNIQUE (user_id, achievement_id);
+
+CREATE TABLE IF NOT EXISTS achievement_events (
+  id bigint NOT NULL AUTO_INCREMENT,
+  type varchar(32) NOT NULL,
+  user_id bigint NOT NULL COMMENT 'User whose achievements the event may change',
+  post_id bigint DEFAULT NULL,
+  created_at timestamp NOT NULL,
+  PRIMARY KEY (id)
+) COMMENT 'Events committed with their write and not yet evaluated, see AchievementEngine';
@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS achievement_backfills (
+  id bigint NOT NULL AUTO_INCREMENT,
+  rules_hash varchar(64) NOT NULL COMMENT 'Hash of the achievement rules the run evaluates',
+  last_user_id bigint NOT NULL DEFAULT 0 COMMENT 'Every user up to this id is evaluated',
+  users_count bigint NOT NULL DEFAULT 0,
+  awards_count bigint NOT NULL DEFAULT 0,
+  started_at timestamp NOT NULL,
+  updated_at timestamp NOT NULL,
+  finished_at timestamp NULL DEFAULT NULL,
+  PRIMARY KEY (id)
+) COMMENT 'Progress of achievement backfill runs, see AchievementBackfillJob';
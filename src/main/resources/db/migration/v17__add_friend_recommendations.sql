@@ -0,0 +1,28 @@
+CREATE TABLE IF NOT EXISTS friend_recommendations (
+  user_id bigint NOT NULL,
+  position int NOT NULL COMMENT 'Rank of the candidate, 0 is the best',
+  candidate_id bigint NOT NULL,
+  mutual_friends_count int NOT NULL,
+  score double NOT NULL,
+  computed_at timestamp NOT NULL,
+  PRIMARY KEY (user_id, position)
+) COMMENT 'Top friend recommendations of each user, see FriendRecommendationJob';
+
+ALTER TABLE friend_recommendations
+ADD CONSTRAINT FK_friend_recommendations_user_id FOREIGN KEY (user_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+ALTER TABLE friend_recommendations
+ADD CONSTRAINT FK_friend_recommendations_candidate_id FOREIGN KEY (candidate_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+CREATE TABLE IF NOT EXISTS friend_graph_changes (
+  user_id bigint NOT NULL,
+  version bigint NOT NULL DEFAULT 1 COMMENT 'Bumped on each change, a refresh only clears the version it read',
+  changed_at timestamp NOT NULL,
+  PRIMARY KEY (user_id)
+) COMMENT 'Users whose friends or requests changed since their recommendations were computed';
+
+ALTER TABLE friend_graph_changes
+ADD CONSTRAINT FK_friend_graph_changes_user_id FOREIGN KEY (user_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
@@ -0,0 +1,44 @@
+-- One row per pair of users instead of one per direction, the lower user id first
+CREATE TABLE IF NOT EXISTS friend_edges (
+  id bigint NOT NULL AUTO_INCREMENT,
+  low_id bigint NOT NULL,
+  high_id bigint NOT NULL,
+  requester_id bigint NOT NULL COMMENT 'The one who sent the request, low_id or high_id',
+  status ENUM ('PENDING', 'ACCEPTED') NOT NULL DEFAULT 'PENDING',
+  created_at timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  accepted_at timestamp NULL,
+  PRIMARY KEY (id),
+  UNIQUE KEY UK_friends_low_high (low_id, high_id),
+  KEY idx_friends_high_low (high_id, low_id),
+  CONSTRAINT CK_friends_low_high CHECK (low_id < high_id)
+);
+
+-- A pending row is (recipient, requester), the oldest row of a pair is the request
+INSERT INTO friend_edges (low_id, high_id, requester_id, status, created_at, accepted_at)
+SELECT e.low_id, e.high_id, f.friend_id,
+       IF(e.accepted, 'ACCEPTED', 'PENDING'), e.created_at, IF(e.accepted, e.accepted_at, NULL)
+FROM (
+    SELECT LEAST(user_id, friend_id) AS low_id, GREATEST(user_id, friend_id) AS high_id,
+           MIN(id) AS first_id, MAX(status = 'ACCEPTED') AS accepted,
+           MIN(created_at) AS created_at, MAX(accepted_at) AS accepted_at
+    FROM friends
+    WHERE status IN ('PENDING', 'ACCEPTED') AND user_id <> friend_id
+    GROUP BY LEAST(user_id, friend_id), GREATEST(user_id, friend_id)
+) e
+JOIN friends f ON f.id = e.first_id;
+
+DROP TABLE friends;
+
+RENAME TABLE friend_edges TO friends;
+
+ALTER TABLE friends
+ADD CONSTRAINT FK_friends_low_id FOREIGN KEY (low_id)
+REFERENCES users (id);
+
+ALTER TABLE friends
+ADD CONSTRAINT FK_friends_high_id FOREIGN KEY (high_id)
+REFERENCES users (id);
+
+ALTER TABLE friends
+ADD CONSTRAINT FK_friends_requester_id FOREIGN KEY (requester_id)
+REFERENCES users (id);
@@ -0,0 +1,17 @@
+CREATE TABLE IF NOT EXISTS timeline_entries (
+  id bigint NOT NULL AUTO_INCREMENT,
+  owner_id bigint NOT NULL COMMENT 'User whose home feed contains the post',
+  post_id bigint NOT NULL,
+  created_at timestamp NOT NULL COMMENT 'Copy of posts.created_at to keep the feed scan on this table',
+  PRIMARY KEY (id),
+  UNIQUE KEY UK_timeline_entries_owner_post (owner_id, post_id),
+  KEY idx_timeline_entries_owner_created_at (owner_id, created_at, post_id)
+);
+
+ALTER TABLE timeline_entries
+ADD CONSTRAINT FK_timeline_entries_owner_id FOREIGN KEY (owner_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+ALTER TABLE timeline_entries
+ADD CONSTRAINT FK_timeline_entries_post_id FOREIGN KEY (post_id)
+REFERENCES posts (id) ON DELETE CASCADE ON UPDATE NO ACTION;
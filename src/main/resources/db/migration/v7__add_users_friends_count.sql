@@ -0,0 +1,8 @@
+ALTER TABLE users ADD COLUMN friends_count INT NOT NULL DEFAULT 0;
+
+UPDATE users u
+SET friends_count = (
+    SELECT COUNT(*)
+    FROM friends f
+    WHERE f.user_id = u.id AND f.status = 'ACCEPTED'
+);
@@ -0,0 +1,9 @@
+ALTER TABLE posts
+    ADD COLUMN likes_count INT NOT NULL DEFAULT 0,
+    ADD COLUMN comments_count INT NOT NULL DEFAULT 0,
+    ADD COLUMN reposts_count INT NOT NULL DEFAULT 0;
+
+UPDATE posts p
+SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.post_id = p.id),
+    comments_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id),
+    reposts_count = (SELECT COUNT(*) FROM reposts r WHERE r.post_id = p.id);
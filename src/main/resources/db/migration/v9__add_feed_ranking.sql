@@ -0,0 +1,39 @@
+ALTER TABLE posts
+    ADD COLUMN rank_score DOUBLE NOT NULL DEFAULT 0 COMMENT 'Time-decayed engagement, see PostRepository.refreshRankScore';
+
+UPDATE posts
+SET rank_score = LN(1 + likes_count + 2 * comments_count + 3 * reposts_count) + UNIX_TIMESTAMP(created_at) / 45000.0;
+
+CREATE TABLE IF NOT EXISTS user_affinities (
+  user_id bigint NOT NULL COMMENT 'Reader',
+  author_id bigint NOT NULL,
+  score double NOT NULL DEFAULT 0 COMMENT 'Weighted likes, comments and reposts of the reader on the author''s posts',
+  PRIMARY KEY (user_id, author_id)
+);
+
+ALTER TABLE user_affinities
+ADD CONSTRAINT FK_user_affinities_user_id FOREIGN KEY (user_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+ALTER TABLE user_affinities
+ADD CONSTRAINT FK_user_affinities_author_id FOREIGN KEY (author_id)
+REFERENCES users (id) ON DELETE CASCADE ON UPDATE NO ACTION;
+
+INSERT INTO user_affinities (user_id, author_id, score)
+SELECT interactions.user_id, interactions.author_id, SUM(interactions.weight)
+FROM (
+    SELECT l.user_id, p.user_id AS author_id, 1 AS weight
+    FROM likes l
+    JOIN posts p ON p.id = l.post_id
+    WHERE l.user_id <> p.user_id
+    UNION ALL
+    SELECT c.user_id, p.user_id AS author_id, 2 AS weight
+    FROM comments c
+    JOIN posts p ON p.id = c.post_id
+    WHERE c.user_id <> p.user_id
+    UNION ALL
+    SELECT r.user_id, p.user_id AS author_id, 3 AS weight
+    FROM reposts r
+    JOIN posts p ON p.id = r.post_id
+) interactions
+GROUP BY interactions.user_id, interactions.author_id;
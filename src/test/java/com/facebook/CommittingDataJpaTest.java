@@ -0,0 +1,37 @@
+package com.facebook;
+
+import com.facebook.model.User;
+import com.facebook.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Base of the database tests whose code commits, e.g. for after-commit listeners, locks or worker threads.
+ * Tests run outside a test transaction, so the users they save are deleted after each test. Subclasses delete
+ * the rest of their rows in an {@code @AfterEach} of their own, which runs first, and import
+ * {@code JdbcTemplateAutoConfiguration}. Their database and settings go in {@code @TestPropertySource}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public abstract class CommittingDataJpaTest {
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void deleteUsers() {
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    protected User saveUser(String email) {
+        return userRepository.save(TestUsers.newUser(email));
+    }
+}
@@ -0,0 +1,27 @@
+package com.facebook;
+
+import com.facebook.enums.Gender;
+import com.facebook.enums.Provider;
+import com.facebook.model.User;
+
+// Minimal valid users for the database tests
+public final class TestUsers {
+    private TestUsers() {
+    }
+
+    public static User newUser(String email) {
+        return newUser(email, "Test");
+    }
+
+    public static User newUser(String email, String firstName) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName(firstName);
+        user.setLastName("Test");
+        user.setPassword("password");
+        user.setGender(Gender.MALE);
+        user.setProvider(Provider.LOCAL);
+
+        return user;
+    }
+}
@@ -1,12 +1,14 @@
 package com.facebook.controller;
 
 import com.facebook.config.GlobalExceptionHandler;
+import com.facebook.dto.FriendRecommendationDto;
 import com.facebook.dto.UserAuthDto;
 import com.facebook.dto.UserShortDto;
 import com.facebook.enums.FriendStatus;
 import com.facebook.enums.Provider;
 import com.facebook.middleware.CurrentUserArgumentResolver;
 import com.facebook.model.User;
+import com.facebook.service.FriendRecommendationService;
 import com.facebook.service.FriendService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -39,6 +41,9 @@ public class FriendControllerTest {
     @Mock
     private FriendService friendService;
 
+    @Mock
+    private FriendRecommendationService friendRecommendationService;
+
     @Mock
     private SecurityContext securityContext;
 
@@ -183,13 +188,14 @@ public class FriendControllerTest {
 
     @Test
     void getRecommendedFriends_shouldReturnRecommendedList() throws Exception {
-        List<UserShortDto> recommended = Arrays.asList(testFriend);
-        when(friendService.getRecommendedFriends(anyLong())).thenReturn(recommended);
+        List<FriendRecommendationDto> recommended = List.of(new FriendRecommendationDto(testFriend, 3));
+        when(friendRecommendationService.getRecommendedFriends(anyLong())).thenReturn(recommended);
 
         mockMvc.perform(get("/api/friends/recommended"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.data[0].id").value(friendId))
-                .andExpect(jsonPath("$.data[0].firstName").value("Test Friend"));
+                .andExpect(jsonPath("$.data[0].firstName").value("Test Friend"))
+                .andExpect(jsonPath("$.data[0].mutualFriendsCount").value(3));
 
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.facebook.controller;
 
 import com.facebook.dto.*;
 import com.facebook.enums.GroupJoinStatus;
+import com.facebook.enums.PageCount;
 import com.facebook.enums.Provider;
 import com.facebook.middleware.CurrentUserArgumentResolver;
 import com.facebook.model.Group;
@@ -226,7 +227,7 @@ public class GroupControllerTest {
 
         Page<GroupResponse> groupPage = new PageImpl<>(new ArrayList<>(List.of(group1, group2)));
 
-        when(groupService.getAll(0, 10, userId)).thenReturn(groupPage);
+        when(groupService.getAll(0, 10, userId, PageCount.EXACT)).thenReturn(new PageResponseDto<>(groupPage));
 
         mockMvc.perform(get("/api/groups?page=0&size=10"))
                 .andDo(print())
@@ -1,6 +1,7 @@
 package com.facebook.controller;
 
 import com.facebook.config.GlobalExceptionHandler;
+import com.facebook.enums.PageCount;
 import com.facebook.enums.Provider;
 import com.facebook.exception.NotFoundException;
 import com.facebook.middleware.CurrentUserArgumentResolver;
@@ -162,7 +163,8 @@ public class MessageControllerTest {
 
         Page<MessageResponse> messagePage = new PageImpl<>(messageList);
 
-        when(messageService.getMessagesWithFriend(1L, 2L, 0, 20)).thenReturn(messagePage);
+        when(messageService.getMessagesWithFriend(1L, 2L, 0, 20, PageCount.EXACT))
+                .thenReturn(new PageResponseDto<>(messagePage));
 
         mockMvc.perform(get("/api/messages/{friendId}", 2L)
                         .param("page", "0")
@@ -176,6 +178,6 @@ public class MessageControllerTest {
                 .andExpect(jsonPath("$.data.content[1].id").value(102))
                 .andExpect(jsonPath("$.data.content[1].text").value("Hi there"));
 
-        verify(messageService).getMessagesWithFriend(1L, 2L, 0, 20);
+        verify(messageService).getMessagesWithFriend(1L, 2L, 0, 20, PageCount.EXACT);
     }
 }
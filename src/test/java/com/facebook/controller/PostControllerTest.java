@@ -1,12 +1,17 @@
 package com.facebook.controller;
 
 import com.facebook.dto.*;
+import com.facebook.enums.PageCount;
 import com.facebook.enums.Provider;
 import com.facebook.middleware.CurrentUserArgumentResolver;
+import com.facebook.event.PostUpdatedEvent;
 import com.facebook.service.CommentService;
+import com.facebook.service.FeedCacheService;
+import com.facebook.service.FriendGraph;
 import com.facebook.service.PostService;
 import com.facebook.service.UserAchievementService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,13 +28,16 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.test.web.servlet.setup.StandaloneMockMvcBuilder;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -216,17 +224,20 @@ public class PostControllerTest {
         mockMvc = buildMockMvc(false);
         Long postId = 1L;
 
-        List<CommentResponseDto> comments = List.of(
+        CursorPageResponseDto<CommentResponseDto> comments = new CursorPageResponseDto<>(List.of(
                 new CommentResponseDto(1L, new UserShortDto(userId, "John", "Doe", null, null), "Nice!", null)
-        );
+        ), 5, "next", true, null);
 
-        when(commentService.getPostComments(postId)).thenReturn(comments);
+        when(commentService.getPostComments(postId, "cursor", 5)).thenReturn(comments);
 
-        mockMvc.perform(get("/api/posts/{id}/comments", postId))
+        mockMvc.perform(get("/api/posts/{id}/comments", postId)
+                        .param("cursor", "cursor")
+                        .param("size", "5"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.message").value("Comments retrieved successfully"))
                 .andExpect(jsonPath("$.error").value(false))
-                .andExpect(jsonPath("$.data[0].text").value("Nice!"));
+                .andExpect(jsonPath("$.data.content[0].text").value("Nice!"))
+                .andExpect(jsonPath("$.data.nextCursor").value("next"));
     }
 
     @Test
@@ -242,7 +253,7 @@ public class PostControllerTest {
         post.setUser(new UserShortDto(userId, "John", "Doe", null, null));
         posts.setContent(List.of(post));
 
-        when(postService.getUserPosts(userId, 0, 10)).thenReturn(posts);
+        when(postService.getUserPosts(userId, 0, 10, PageCount.EXACT)).thenReturn(posts);
 
         mockMvc.perform(get("/api/posts/my-posts")
                         .param("page", "0")
@@ -252,4 +263,180 @@ public class PostControllerTest {
                 .andExpect(jsonPath("$.error").value(false))
                 .andExpect(jsonPath("$.data.content[0].text").value("Test post"));
     }
+
+    @Test
+    void getPostsWithFriends_shouldPassCursor() throws Exception {
+        mockMvc = buildMockMvc(true);
+
+        PostResponseDto post = new PostResponseDto();
+        post.setId(1L);
+        post.setText("Friend post");
+        post.setUser(new UserShortDto(2L, "Jane", "Doe", null, null));
+
+        CursorPageResponseDto<PostResponseDto> posts =
+                new CursorPageResponseDto<>(List.of(post), 10, "next-cursor", true, "head-cursor");
+
+        when(postService.getUserAndFriendsPosts(userId, userId, "cursor", 10, 0)).thenReturn(posts);
+
+        mockMvc.perform(get("/api/posts/my-posts/with-friends")
+                        .param("cursor", "cursor")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].text").value("Friend post"))
+                .andExpect(jsonPath("$.data.nextCursor").value("next-cursor"))
+                .andExpect(jsonPath("$.data.hasNext").value(true));
+    }
+
+    @Test
+    void getPostsWithFriends_shouldReturnNotModifiedWhenFeedUnchanged() throws Exception {
+        mockMvc = buildMockMvc(true);
+
+        when(postService.getFeedVersion(userId)).thenReturn(42L);
+
+        mockMvc.perform(get("/api/posts/my-posts/with-friends")
+                        .header("If-None-Match", "\"42\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"42\""));
+
+        Mockito.verify(postService, Mockito.never()).getUserAndFriendsPosts(anyLong(), anyLong(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getPostsWithFriends_shouldReturnPageForOldETagAfterPostIsEdited() throws Exception {
+        mockMvc = buildMockMvc(true);
+
+        // Feed versions of a real cache, changed by the event the post edit publishes
+        FeedCacheService feedCacheService = new FeedCacheService(
+                new FriendGraph(null), new SimpleMeterRegistry(), 100, 3, Duration.ofMinutes(1), 100);
+        when(postService.getFeedVersion(userId)).thenAnswer(invocation -> feedCacheService.getVersion(userId));
+        when(postService.updatePost(eq(5L), any(PostUpdateRequestDto.class))).thenAnswer(invocation -> {
+            feedCacheService.onPostEvent(new PostUpdatedEvent(5L, userId));
+            return new PostResponseDto();
+        });
+        when(postService.getUserAndFriendsPosts(userId, userId, null, 20, 0))
+                .thenReturn(new CursorPageResponseDto<>(List.of(), 20, null, false, null));
+
+        String eTag = mockMvc.perform(get("/api/posts/my-posts/with-friends"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/posts/my-posts/with-friends").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        PostUpdateRequestDto request = new PostUpdateRequestDto();
+        request.setText("Edited");
+        mockMvc.perform(put("/api/posts/5")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts/my-posts/with-friends").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)));
+    }
+
+    @Test
+    void getPostsWithFriends_shouldReturnDeltaSinceHead() throws Exception {
+        mockMvc = buildMockMvc(true);
+
+        PostResponseDto post = new PostResponseDto();
+        post.setId(3L);
+        post.setText("New post");
+
+        FeedDeltaResponseDto delta = new FeedDeltaResponseDto(
+                List.of(post),
+                List.of(new PostCountersDto(1L, 4, 2, 0)),
+                "new-head",
+                false
+        );
+
+        when(postService.getFeedVersion(userId)).thenReturn(43L);
+        when(postService.getUserAndFriendsPostsSince(userId, userId, "old-head", 20, 0)).thenReturn(delta);
+
+        mockMvc.perform(get("/api/posts/my-posts/with-friends")
+                        .param("since", "old-head")
+                        .header("If-None-Match", "\"42\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"43\""))
+                .andExpect(jsonPath("$.data.newPosts[0].text").value("New post"))
+                .andExpect(jsonPath("$.data.counters[0].likesCount").value(4))
+                .andExpect(jsonPath("$.data.headCursor").value("new-head"));
+    }
+
+    @Test
+    void getPostsWithFriends_shouldServeRankedOrder() throws Exception {
+        mockMvc = buildMockMvc(true);
+
+        PostResponseDto post = new PostResponseDto();
+        post.setId(5L);
+        post.setText("Popular post");
+
+        CursorPageResponseDto<PostResponseDto> posts =
+                new CursorPageResponseDto<>(List.of(post), 20, null, false, null);
+
+        when(postService.getFeedVersion(userId)).thenReturn(44L);
+        when(postService.getRankedUserAndFriendsPosts(userId, userId, null, 20, 0)).thenReturn(posts);
+
+        mockMvc.perform(get("/api/posts/my-posts/with-friends")
+                        .param("order", "ranked"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"44\""))
+                .andExpect(jsonPath("$.data.content[0].text").value("Popular post"));
+
+        Mockito.verify(postService, Mockito.never()).getUserAndFriendsPosts(anyLong(), anyLong(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getPostsWithFriends_shouldIncludeLatestComments() throws Exception {
+        mockMvc = buildMockMvc(true);
+
+        PostResponseDto post = new PostResponseDto();
+        post.setId(5L);
+        post.setLatestComments(List.of(
+                new CommentResponseDto(9L, new UserShortDto(2L, "Jane", "Doe", null, null), "First!", null)));
+
+        CursorPageResponseDto<PostResponseDto> posts =
+                new CursorPageResponseDto<>(List.of(post), 20, null, false, null);
+
+        when(postService.getFeedVersion(userId)).thenReturn(44L);
+        when(postService.getUserAndFriendsPosts(userId, userId, null, 20, 3)).thenReturn(posts);
+
+        mockMvc.perform(get("/api/posts/my-posts/with-friends")
+                        .param("comments", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].latestComments[0].text").value("First!"));
+    }
+
+    @Test
+    void exportUserPosts_shouldStreamNdjson() throws Exception {
+        mockMvc = buildMockMvc(false);
+
+        when(postService.exportUserPosts(2L)).thenReturn(out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes()));
+
+        MvcResult result = mockMvc.perform(get("/api/posts/user/2/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"posts-2.ndjson\""))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    void getTrendingPosts_shouldPassGroupAndSize() throws Exception {
+        mockMvc = buildMockMvc(true);
+
+        PostResponseDto post = new PostResponseDto();
+        post.setId(5L);
+        post.setText("Trending post");
+
+        when(postService.getTrendingPosts(userId, 3L, 5)).thenReturn(List.of(post));
+
+        mockMvc.perform(get("/api/posts/trending")
+                        .param("groupId", "3")
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].text").value("Trending post"));
+    }
 }
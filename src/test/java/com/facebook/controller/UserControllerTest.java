@@ -1,9 +1,11 @@
 package com.facebook.controller;
 
+import com.facebook.dto.PageResponseDto;
 import com.facebook.dto.UserAuthDto;
 import com.facebook.dto.UserDetailsDto;
 import com.facebook.dto.UserShortDto;
 import com.facebook.dto.UserUpdateRequestDto;
+import com.facebook.enums.PageCount;
 import com.facebook.enums.Provider;
 import com.facebook.middleware.CurrentUserArgumentResolver;
 import com.facebook.service.UserService;
@@ -105,6 +107,39 @@ public class UserControllerTest {
         verify(userService, times(1)).getUserDetails(otherUserId, userId);
     }
 
+    @Test
+    void testGetMutualFriends() throws Exception {
+        long otherUserId = 2L;
+        UserShortDto mutualFriend = new UserShortDto(3L, "Mutual", "Friend", null, null);
+
+        when(userService.getMutualFriends(otherUserId, userId, 1, 1)).thenReturn(
+                new PageResponseDto<>(new PageImpl<>(List.of(mutualFriend), PageRequest.of(1, 1), 2)));
+
+        mockMvc.perform(get("/api/users/{userId}/mutual-friends", otherUserId)
+                        .param("page", "1")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Mutual friends retrieved successfully"))
+                .andExpect(jsonPath("$.data.content[0].id").value(3L))
+                .andExpect(jsonPath("$.data.totalElements").value(2))
+                .andExpect(jsonPath("$.data.last").value(true));
+    }
+
+    @Test
+    void testGetFriends() throws Exception {
+        long otherUserId = 2L;
+        UserShortDto friend = new UserShortDto(4L, "Other", "Friend", null, null);
+
+        when(userService.getOtherFriends(otherUserId, userId, 0, 20)).thenReturn(
+                new PageResponseDto<>(new PageImpl<>(List.of(friend), PageRequest.of(0, 20), 1)));
+
+        mockMvc.perform(get("/api/users/{userId}/friends", otherUserId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Friends retrieved successfully"))
+                .andExpect(jsonPath("$.data.content[0].id").value(4L))
+                .andExpect(jsonPath("$.data.totalElements").value(1));
+    }
+
     @Test
     void testUpdateUserSuccess() throws Exception {
         UserUpdateRequestDto updateDto = new UserUpdateRequestDto();
@@ -140,7 +175,8 @@ public class UserControllerTest {
                 2
         );
 
-        when(userService.getAllUsersExceptCurrent(userId, 0, 10)).thenReturn(mockPage);
+        when(userService.getAllUsersExceptCurrent(userId, 0, 10, PageCount.EXACT))
+                .thenReturn(new PageResponseDto<>(mockPage));
 
         mockMvc.perform(get("/api/users")
                         .param("page", "0")
@@ -153,7 +189,7 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.data.content[1].id").value(3L))
                 .andExpect(jsonPath("$.data.content[1].firstName").value("Bob"));
 
-        verify(userService, times(1)).getAllUsersExceptCurrent(userId, 0, 10);
+        verify(userService, times(1)).getAllUsersExceptCurrent(userId, 0, 10, PageCount.EXACT);
     }
 
     @Test
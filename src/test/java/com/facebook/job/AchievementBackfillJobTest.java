@@ -0,0 +1,138 @@
+package com.facebook.job;
+
+import com.facebook.CommittingDataJpaTest;
+import com.facebook.config.AppConfig;
+import com.facebook.enums.Achievements;
+import com.facebook.model.Post;
+import com.facebook.model.User;
+import com.facebook.repository.PostRepository;
+import com.facebook.service.AchievementCatalog;
+import com.facebook.service.UserAchievementService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Chunks are evaluated on worker threads, so test data is committed
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:achievement_backfill;MODE=MYSQL",
+        "app.achievements.backfill.on-startup=false",
+        "app.achievements.backfill.chunk-size=1",
+        "app.achievements.backfill.threads=2"
+})
+@ImportAutoConfiguration({JdbcTemplateAutoConfiguration.class, TaskExecutionAutoConfiguration.class})
+@Import({AppConfig.class, SimpleMeterRegistry.class, AchievementCatalog.class, UserAchievementService.class,
+        AchievementBackfillJob.class})
+class AchievementBackfillJobTest extends CommittingDataJpaTest {
+    @Autowired
+    private AchievementBackfillJob backfillJob;
+
+    @Autowired
+    private UserAchievementService userAchievementService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    private User author;
+    private User reader;
+
+    @BeforeEach
+    void init() {
+        author = saveUser("author@test.com");
+        Post post = new Post();
+        post.setText("Popular post");
+        post.setUser(author);
+        post = postRepository.save(post);
+        jdbcTemplate.update("UPDATE posts SET likes_count = 12 WHERE id = ?", post.getId());
+
+        reader = saveUser("reader@test.com");
+        reader.setPhone("+380000000000");
+        reader.setBirthdate(Date.valueOf("2000-01-01"));
+        reader.setAvatarUrl("https://example.com/avatar.jpg");
+        reader.setHeaderPhotoUrl("https://example.com/header.jpg");
+        reader.setHomeCity("Kyiv");
+        reader.setCurrentCity("Lviv");
+        reader = userRepository.save(reader);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM achievement_backfills");
+    }
+
+    @Test
+    void run_shouldAwardEveryRuleExistingUsersMeet() {
+        // Cached before the backfill, evicted by it
+        assertFalse(userAchievementService.userHaveAchievement(reader.getId(), Achievements.PINK_PROFILE));
+
+        assertEquals(2, backfillJob.run(false));
+
+        assertEquals(
+                List.of(Achievements.BUZZ_STARTED, Achievements.FIRST_HEARTBEAT, Achievements.VIBE_CREATOR),
+                achievements(author)
+        );
+        assertEquals(List.of(Achievements.PINK_PROFILE), achievements(reader));
+        assertTrue(userAchievementService.userHaveAchievement(reader.getId(), Achievements.PINK_PROFILE));
+
+        assertEquals(reader.getId(), jdbcTemplate.queryForObject(
+                "SELECT last_user_id FROM achievement_backfills", Long.class));
+        assertEquals(4, (long) jdbcTemplate.queryForObject(
+                "SELECT awards_count FROM achievement_backfills", Long.class));
+        assertNotNull(jdbcTemplate.queryForObject(
+                "SELECT finished_at FROM achievement_backfills", Object.class));
+    }
+
+    @Test
+    void run_shouldSkip_whenRulesUnchangedSinceLastRun() {
+        assertEquals(2, backfillJob.run(false));
+
+        assertEquals(0, backfillJob.run(false));
+        assertEquals(2, backfillJob.run(true));
+        assertEquals(2, (int) jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM achievement_backfills", Integer.class));
+    }
+
+    @Test
+    void run_shouldResumeAfterLastCheckpoint() {
+        backfillJob.run(false);
+        jdbcTemplate.update("DELETE FROM user_achievements");
+        // As if the run stopped after its first chunk
+        jdbcTemplate.update("UPDATE achievement_backfills SET last_user_id = ?, finished_at = NULL", author.getId());
+
+        assertEquals(1, backfillJob.run(false));
+
+        assertTrue(achievements(author).isEmpty());
+        assertEquals(List.of(Achievements.PINK_PROFILE), achievements(reader));
+        assertNotNull(jdbcTemplate.queryForObject(
+                "SELECT finished_at FROM achievement_backfills", Object.class));
+    }
+
+    private List<Achievements> achievements(User user) {
+        return jdbcTemplate.queryForList("""
+                        SELECT a.name FROM user_achievements ua
+                        JOIN achievements a ON a.id = ua.achievement_id
+                        WHERE ua.user_id = ?
+                        ORDER BY a.id
+                        """, String.class, user.getId()).stream()
+                .map(name -> Arrays.stream(Achievements.values())
+                        .filter(achievement -> achievement.toString().equals(name))
+                        .findFirst()
+                        .orElseThrow())
+                .toList();
+    }
+}
@@ -0,0 +1,121 @@
+package com.facebook.job;
+
+import com.facebook.CommittingDataJpaTest;
+import com.facebook.config.AppConfig;
+import com.facebook.repository.FriendRepository;
+import com.facebook.repository.projection.FriendRecommendationView;
+import com.facebook.service.FriendGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Chunks are computed on worker threads, so test data is committed
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:friend_recommendations;MODE=MYSQL",
+        "app.friends.recommendations.limit=2",
+        "app.friends.recommendations.chunk-size=1",
+        "app.friends.recommendations.threads=2",
+        "app.friends.recommendations.refresh-interval-ms=3600000"
+})
+@ImportAutoConfiguration({JdbcTemplateAutoConfiguration.class, TaskExecutionAutoConfiguration.class})
+@Import({AppConfig.class, FriendGraph.class, FriendRecommendationJob.class})
+class FriendRecommendationJobTest extends CommittingDataJpaTest {
+    @Autowired
+    private FriendRecommendationJob recommendationJob;
+
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Autowired
+    private FriendRepository friendRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long[] ids;
+
+    @BeforeEach
+    void init() {
+        ids = new long[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = saveUser("user" + i + "@test.com").getId();
+        }
+
+        // 0 - 1 - 2, 0 - 3 - 2, 3 - 4
+        link(0, 1);
+        link(1, 2);
+        link(0, 3);
+        link(3, 2);
+        link(3, 4);
+        friendGraph.load();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM friend_recommendations");
+        jdbcTemplate.update("DELETE FROM friend_graph_changes");
+        jdbcTemplate.update("DELETE FROM friends");
+    }
+
+    @Test
+    void rebuildAll_shouldStoreTopCandidatesOfEveryUser() {
+        assertEquals(5, recommendationJob.rebuildAll());
+
+        assertEquals(List.of(ids[2], ids[4]), recommendations(0));
+        assertEquals(2, (int) jdbcTemplate.queryForObject("""
+                SELECT mutual_friends_count FROM friend_recommendations WHERE user_id = ? AND position = 0
+                """, Integer.class, ids[0]));
+        assertEquals(List.of(ids[0], ids[2]), recommendations(4));
+    }
+
+    @Test
+    void refresh_shouldRecomputeChangedUsersAndTheirFriendsOnly() {
+        recommendationJob.rebuildAll();
+        assertEquals(0, recommendationJob.refresh());
+        assertEquals(List.of(2, 1), mutualFriendsCounts(0));
+
+        // 4 befriends 1, which changes the friends-of-friends of 0, 2 and 3
+        link(4, 1);
+        friendGraph.link(ids[4], ids[1]);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            friendRepository.markGraphChanged(ids[4]);
+            friendRepository.markGraphChanged(ids[1]);
+        });
+
+        assertEquals(5, recommendationJob.refresh());
+        assertEquals(List.of(ids[2], ids[4]), recommendations(0));
+        assertEquals(List.of(2, 2), mutualFriendsCounts(0));
+        assertEquals(0, (int) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friend_graph_changes", Integer.class));
+        assertEquals(0, recommendationJob.refresh());
+    }
+
+    private List<Long> recommendations(int user) {
+        return friendRepository.findRecommendations(ids[user]).stream()
+                .map(FriendRecommendationView::getId)
+                .toList();
+    }
+
+    private List<Integer> mutualFriendsCounts(int user) {
+        return friendRepository.findRecommendations(ids[user]).stream()
+                .map(FriendRecommendationView::getMutualFriendsCount)
+                .toList();
+    }
+
+    private void link(int first, int second) {
+        jdbcTemplate.update("""
+                INSERT INTO friends (low_id, high_id, requester_id, status) VALUES (?, ?, ?, 'ACCEPTED')
+                """, Math.min(ids[first], ids[second]), Math.max(ids[first], ids[second]), ids[first]);
+    }
+}
@@ -0,0 +1,109 @@
+package com.facebook.job;
+
+import com.facebook.config.AppConfig;
+import com.facebook.model.Comment;
+import com.facebook.model.Like;
+import com.facebook.model.Post;
+import com.facebook.model.PostImage;
+import com.facebook.model.Repost;
+import com.facebook.model.User;
+import com.facebook.model.UserStats;
+import com.facebook.repository.UserStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import static com.facebook.TestUsers.newUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:user_stats;MODE=MYSQL")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(TransactionAutoConfiguration.class)
+@Import({AppConfig.class, UserStatsReconciliationJob.class})
+class UserStatsReconciliationJobTest {
+    @Autowired
+    private UserStatsReconciliationJob reconciliationJob;
+
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User author;
+    private User reader;
+    private Post post;
+
+    @BeforeEach
+    void init() {
+        author = entityManager.persist(newUser("author@test.com"));
+        reader = entityManager.persist(newUser("reader@test.com"));
+
+        post = new Post();
+        post.setText("Post with a photo");
+        post.setUser(author);
+        PostImage image = new PostImage();
+        image.setUrl("https://example.com/1.jpg");
+        image.setPost(post);
+        post.getImages().add(image);
+        entityManager.persist(post);
+
+        Comment comment = new Comment();
+        comment.setText("Nice");
+        comment.setPost(post);
+        comment.setUser(reader);
+        entityManager.persist(comment);
+        entityManager.persist(new Like(reader, post));
+
+        Repost repost = new Repost();
+        repost.setPost(post);
+        repost.setUser(reader);
+        entityManager.persist(repost);
+
+        entityManager.flush();
+    }
+
+    @Test
+    void reconcile_shouldRecountDriftedUsersOnly() {
+        userStatsRepository.adjustPostsCount(author.getId(), 1, 1);
+        userStatsRepository.adjustLikesReceivedCount(author.getId(), 1);
+        // The reader's stats were never written
+        entityManager.clear();
+
+        assertEquals(1, reconciliationJob.reconcile());
+
+        assertStats(author, new UserStats(author.getId(), 1, 1, 0, 1, 0));
+        assertStats(reader, new UserStats(reader.getId(), 0, 0, 1, 0, 1));
+
+        entityManager.clear();
+        assertEquals(0, reconciliationJob.reconcile());
+    }
+
+    @Test
+    void subtractPostInteractions_shouldMatchRecountAfterDeletion() {
+        reconciliationJob.reconcile();
+
+        userStatsRepository.subtractPostInteractions(post.getId());
+        userStatsRepository.adjustLikesReceivedCount(author.getId(), -1);
+        userStatsRepository.adjustPostsCount(author.getId(), -1, -1);
+        entityManager.getEntityManager().createQuery("DELETE FROM Post p WHERE p.id = :id")
+                .setParameter("id", post.getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        assertEquals(0, reconciliationJob.reconcile());
+        assertStats(reader, new UserStats(reader.getId(), 0, 0, 0, 0, 0));
+    }
+
+    private void assertStats(User user, UserStats expected) {
+        entityManager.clear();
+
+        assertEquals(expected, userStatsRepository.findById(user.getId()).orElseThrow());
+    }
+}
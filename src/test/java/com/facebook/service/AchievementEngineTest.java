@@ -0,0 +1,201 @@
+package com.facebook.service;
+
+import com.facebook.CommittingDataJpaTest;
+import com.facebook.config.AppConfig;
+import com.facebook.dto.AchievementResponseDto;
+import com.facebook.enums.Achievements;
+import com.facebook.event.PostCommentedEvent;
+import com.facebook.event.PostCreatedEvent;
+import com.facebook.event.PostLikedEvent;
+import com.facebook.event.ProfileUpdatedEvent;
+import com.facebook.model.Post;
+import com.facebook.model.User;
+import com.facebook.repository.AchievementEventRepository;
+import com.facebook.repository.PostRepository;
+import com.facebook.repository.UserStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs outside a test transaction, so events are recorded and enqueued on commit as in the application
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:achievement_engine;MODE=MYSQL",
+        "app.achievements.queue-capacity=2",
+        "app.achievements.sweep-after=0s",
+        "app.achievements.sweep-interval-ms=3600000"
+})
+@ImportAutoConfiguration(JdbcTemplateAutoConfiguration.class)
+@Import({AppConfig.class, SimpleMeterRegistry.class, AchievementCatalog.class, UserAchievementService.class,
+        AchievementEngine.class})
+class AchievementEngineTest extends CommittingDataJpaTest {
+    @Autowired
+    private AchievementEngine achievementEngine;
+
+    @Autowired
+    private UserAchievementService userAchievementService;
+
+    @Autowired
+    private AchievementEventRepository achievementEventRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User author;
+    private Post post;
+
+    @BeforeEach
+    void init() throws InterruptedException {
+        // Events are drained on the test thread
+        achievementEngine.stop();
+
+        author = saveUser("author@test.com");
+        Post newPost = new Post();
+        newPost.setText("Popular post");
+        newPost.setUser(author);
+        post = postRepository.save(newPost);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM achievement_events");
+    }
+
+    @Test
+    void committedEvents_shouldBeEvaluatedInOneBatch() {
+        inTransaction(() -> {
+            userStatsRepository.adjustPostsCount(author.getId(), 1, 0);
+            userStatsRepository.adjustCommentsCount(author.getId(), 25);
+        });
+
+        inTransaction(() -> {
+            eventPublisher.publishEvent(new PostCreatedEvent(post.getId(), author.getId()));
+            eventPublisher.publishEvent(new PostCommentedEvent(post.getId(), author.getId(), author.getId(), true));
+
+            assertEquals(0, achievementEngine.drain());
+        });
+
+        // Written as the transaction commits, queued once it has
+        assertEquals(2, achievementEventRepository.count());
+        assertEquals(2, achievementEngine.drain());
+        assertEquals(
+                List.of(Achievements.BUZZ_STARTED.toString(), Achievements.COMMENT_KING.toString()),
+                achievements()
+        );
+        assertEquals(0, achievementEventRepository.count());
+    }
+
+    @Test
+    void batchedLikes_shouldAwardEveryThresholdStepped() {
+        jdbcTemplate.update("UPDATE posts SET likes_count = 12 WHERE id = ?", post.getId());
+
+        eventPublisher.publishEvent(new PostLikedEvent(post.getId(), author.getId(), 99L, true));
+        // Own likes and unlikes are not recorded
+        eventPublisher.publishEvent(new PostLikedEvent(post.getId(), author.getId(), author.getId(), true));
+        eventPublisher.publishEvent(new PostLikedEvent(post.getId(), author.getId(), 99L, false));
+
+        assertEquals(1, achievementEngine.drain());
+        assertEquals(
+                List.of(Achievements.FIRST_HEARTBEAT.toString(), Achievements.VIBE_CREATOR.toString()),
+                achievements()
+        );
+    }
+
+    @Test
+    void events_shouldOnlyEvaluateRulesOfTheirCounters() {
+        inTransaction(() -> userStatsRepository.adjustCommentsCount(author.getId(), 30));
+
+        // Comment King is due, but a like does not change the comments counter
+        eventPublisher.publishEvent(new PostLikedEvent(post.getId(), author.getId(), 99L, true));
+
+        assertEquals(1, achievementEngine.drain());
+        assertTrue(achievements().isEmpty());
+
+        eventPublisher.publishEvent(new PostCommentedEvent(post.getId(), author.getId(), author.getId(), true));
+
+        assertEquals(1, achievementEngine.drain());
+        assertEquals(List.of(Achievements.COMMENT_KING.toString()), achievements());
+    }
+
+    @Test
+    void rolledBackWrite_shouldLeaveNoEvent() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new PostCreatedEvent(post.getId(), author.getId()));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, achievementEventRepository.count());
+        assertEquals(0, achievementEngine.drain());
+    }
+
+    @Test
+    void eventsBeyondQueueCapacity_shouldBeSweptOnce() {
+        author.setPhone("+380000000000");
+        author.setBirthdate(Date.valueOf("2000-01-01"));
+        author.setAvatarUrl("https://example.com/avatar.jpg");
+        author.setHeaderPhotoUrl("https://example.com/header.jpg");
+        author.setHomeCity("Kyiv");
+        author.setCurrentCity("Lviv");
+        userRepository.save(author);
+
+        for (int i = 0; i < 3; i++) {
+            eventPublisher.publishEvent(new ProfileUpdatedEvent(author.getId()));
+        }
+
+        // The third event did not fit in the queue and waits in the outbox
+        assertEquals(2, achievementEngine.drain());
+        assertEquals(1, achievementEventRepository.count());
+        assertEquals(List.of(Achievements.PINK_PROFILE.toString()), achievements());
+
+        assertEquals(1, achievementEngine.sweep());
+        assertEquals(0, achievementEngine.sweep());
+        assertEquals(1, (int) jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_achievements WHERE user_id = ?", Integer.class, author.getId()));
+    }
+
+    @Test
+    void eventsOfDeletedUsers_shouldBeDropped() {
+        inTransaction(() -> userStatsRepository.adjustPostsCount(author.getId(), 1, 0));
+        eventPublisher.publishEvent(new PostCreatedEvent(post.getId(), author.getId()));
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", author.getId());
+
+        assertEquals(1, achievementEngine.drain());
+        assertEquals(0, achievementEventRepository.count());
+        assertFalse(userAchievementService.userHaveAchievement(author.getId(), Achievements.BUZZ_STARTED));
+        assertTrue(achievements().isEmpty());
+    }
+
+    private List<String> achievements() {
+        return userAchievementService.getAllAchievementsOfUser(author).stream()
+                .map(AchievementResponseDto::getName)
+                .toList();
+    }
+
+    private void inTransaction(Runnable action) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> action.run());
+    }
+}
@@ -0,0 +1,61 @@
+package com.facebook.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ApproximateCountServiceTest {
+    private final List<Runnable> backgroundTasks = new ArrayList<>();
+
+    @Test
+    void getCount_shouldCountOnceWhileFresh() {
+        ApproximateCountService service = new ApproximateCountService(backgroundTasks::add, Duration.ofMinutes(5), 100);
+        AtomicLong counts = new AtomicLong();
+
+        assertEquals(7, service.getCount("posts:1", () -> {
+            counts.incrementAndGet();
+            return 7;
+        }));
+        assertEquals(7, service.getCount("posts:1", () -> {
+            counts.incrementAndGet();
+            return 8;
+        }));
+
+        assertEquals(1, counts.get());
+        assertEquals(List.of(), backgroundTasks);
+    }
+
+    @Test
+    void getCount_shouldServeStaleCountWhileRecountingInBackground() {
+        ApproximateCountService service = new ApproximateCountService(backgroundTasks::add, Duration.ZERO, 100);
+
+        service.getCount("groups", () -> 3);
+
+        assertEquals(3, service.getCount("groups", () -> 4));
+        // A recount is already running, so no second one is started
+        assertEquals(3, service.getCount("groups", () -> 5));
+        assertEquals(1, backgroundTasks.size());
+
+        backgroundTasks.getFirst().run();
+
+        assertEquals(4, service.getCount("groups", () -> 6));
+    }
+
+    @Test
+    void getCount_shouldKeepPreviousCountWhenRecountFails() {
+        ApproximateCountService service = new ApproximateCountService(Runnable::run, Duration.ZERO, 100);
+
+        service.getCount("users", () -> 10);
+        service.getCount("users", () -> {
+            throw new IllegalStateException("Database unavailable");
+        });
+
+        assertEquals(10, service.getCount("users", () -> 11));
+        assertEquals(11, service.getCount("users", () -> 12));
+    }
+}
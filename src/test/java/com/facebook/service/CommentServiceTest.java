@@ -1,7 +1,10 @@
 package com.facebook.service;
 
 import com.facebook.dto.CommentResponseDto;
+import com.facebook.dto.CursorPageResponseDto;
 import com.facebook.dto.UserShortDto;
+import com.facebook.event.PostCommentedEvent;
+import com.facebook.event.PostUpdatedEvent;
 import com.facebook.exception.NotFoundException;
 import com.facebook.model.Comment;
 import com.facebook.model.Post;
@@ -9,22 +12,33 @@ import com.facebook.model.User;
 import com.facebook.repository.CommentRepository;
 import com.facebook.repository.PostRepository;
 import com.facebook.repository.UserRepository;
+import com.facebook.repository.UserStatsRepository;
+import com.facebook.repository.projection.CommentView;
+import com.facebook.util.FeedCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.modelmapper.ModelMapper;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -39,9 +53,15 @@ public class CommentServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserStatsRepository userStatsRepository;
+
     @Mock
     private ModelMapper modelMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private CommentService commentService;
 
@@ -71,14 +91,30 @@ public class CommentServiceTest {
         when(postRepository.findById(1L)).thenReturn(Optional.of(post));
         when(userRepository.findById(2L)).thenReturn(Optional.of(mockUser));
         when(modelMapper.map(mockUser, UserShortDto.class)).thenReturn(mockUserShort);
-        when(postRepository.save(any(Post.class))).thenReturn(post);
 
         CommentResponseDto response = commentService.addComment(1L, 2L, "Hello world");
 
         assertNotNull(response);
         assertEquals("Hello world", response.getText());
         assertEquals("John", response.getUser().getFirstName());
-        verify(postRepository).save(post);
+        verify(commentRepository).save(any(Comment.class));
+        verify(postRepository).adjustCommentsCount(1L, 1);
+        verify(userStatsRepository).adjustCommentsCount(2L, 1);
+    }
+
+    @Test
+    void testAddComment_shouldPublishEvent_andLeaveAchievementsToEngine() {
+        Post post = new Post();
+        post.setId(1L);
+        post.setUser(mockUser);
+
+        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(mockUser));
+
+        commentService.addComment(1L, 2L, "Hello world");
+
+        verify(eventPublisher).publishEvent(any(PostCommentedEvent.class));
+        verify(userStatsRepository, never()).findById(anyLong());
     }
 
     @Test
@@ -101,9 +137,14 @@ public class CommentServiceTest {
 
     @Test
     void testUpdateCommentSuccess() {
+        Post post = new Post();
+        post.setId(1L);
+        post.setUser(mockUser);
+
         Comment comment = new Comment();
         comment.setId(10L);
         comment.setUser(mockUser);
+        comment.setPost(post);
         comment.setText("Old text");
 
         when(commentRepository.findById(10L)).thenReturn(Optional.of(comment));
@@ -112,6 +153,9 @@ public class CommentServiceTest {
 
         assertEquals("New text", comment.getText());
         verify(commentRepository).save(comment);
+        // The post's comment previews in feeds changed
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof PostUpdatedEvent updated
+                && updated.getPostId() == 1L && updated.getAuthorId().equals(mockUser.getId())));
     }
 
     @Test
@@ -135,25 +179,64 @@ public class CommentServiceTest {
 
     @Test
     void testGetPostComments() {
-        Post post = new Post();
-        post.setId(1L);
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+        when(postRepository.existsById(1L)).thenReturn(true);
+        when(commentRepository.getPostCommentsBefore(1L, FeedCursor.FIRST_PAGE.getCreatedDate(), Long.MAX_VALUE,
+                PageRequest.of(0, 3)))
+                .thenReturn(List.of(
+                        commentView(102L, 1L, "Third", now),
+                        commentView(101L, 1L, "Second", now.minusMinutes(1)),
+                        commentView(100L, 1L, "First", now.minusMinutes(2))
+                ));
+
+        CursorPageResponseDto<CommentResponseDto> page = commentService.getPostComments(1L, null, 2);
+
+        assertEquals(List.of("Third", "Second"), page.getContent().stream().map(CommentResponseDto::getText).toList());
+        assertEquals("John", page.getContent().getFirst().getUser().getFirstName());
+        assertTrue(page.isHasNext());
+        assertEquals(FeedCursor.encode(now.minusMinutes(1), 101L), page.getNextCursor());
+    }
 
-        Comment comment = new Comment();
-        comment.setId(100L);
-        comment.setText("Hi!");
-        comment.setUser(mockUser);
-        comment.setCreatedDate(LocalDateTime.now());
+    @Test
+    void testGetPostComments_seeksAfterCursor() {
+        LocalDateTime createdDate = LocalDateTime.of(2024, 5, 1, 12, 0);
 
-        post.setComments(List.of(comment));
-        post.setUser(mockUser);
+        when(postRepository.existsById(1L)).thenReturn(true);
+        when(commentRepository.getPostCommentsBefore(1L, createdDate, 101L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(commentView(100L, 1L, "First", createdDate.minusMinutes(1))));
 
-        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
-        when(modelMapper.map(mockUser, UserShortDto.class)).thenReturn(mockUserShort);
+        CursorPageResponseDto<CommentResponseDto> page =
+                commentService.getPostComments(1L, FeedCursor.encode(createdDate, 101L), 2);
 
-        List<CommentResponseDto> comments = commentService.getPostComments(1L);
+        assertEquals(1, page.getContent().size());
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetPostComments_NotFoundPost() {
+        when(postRepository.existsById(999L)).thenReturn(false);
 
-        assertEquals(1, comments.size());
-        assertEquals("Hi!", comments.getFirst().getText());
+        assertThrows(NotFoundException.class, () -> commentService.getPostComments(999L, null, 20));
+    }
+
+    @Test
+    void testGetLatestComments_groupsByPost() {
+        LocalDateTime now = LocalDateTime.now();
+
+        when(commentRepository.findLatestByPostIds(List.of(1L, 2L, 3L), 2)).thenReturn(List.of(
+                commentView(11L, 1L, "Newest of 1", now),
+                commentView(10L, 1L, "Older of 1", now.minusMinutes(1)),
+                commentView(20L, 2L, "Only of 2", now)
+        ));
+
+        Map<Long, List<CommentResponseDto>> comments = commentService.getLatestComments(List.of(1L, 2L, 3L), 2);
+
+        assertEquals(List.of("Newest of 1", "Older of 1"),
+                comments.get(1L).stream().map(CommentResponseDto::getText).toList());
+        assertEquals(1, comments.get(2L).size());
+        assertFalse(comments.containsKey(3L));
     }
 
     @Test
@@ -165,15 +248,23 @@ public class CommentServiceTest {
 
     @Test
     void testDeleteComment() {
+        Post post = new Post();
+        post.setId(1L);
+        post.setUser(mockUser);
+
         Comment comment = new Comment();
         comment.setId(10L);
         comment.setUser(mockUser);
+        comment.setPost(post);
 
         when(commentRepository.findById(10L)).thenReturn(Optional.of(comment));
 
         commentService.deleteComment(10L, mockUser.getId());
 
         verify(commentRepository).delete(comment);
+        verify(postRepository).adjustCommentsCount(1L, -1);
+        verify(userStatsRepository).adjustCommentsCount(mockUser.getId(), -1);
+        verify(eventPublisher).publishEvent(any(PostCommentedEvent.class));
     }
 
     @Test
@@ -193,4 +284,17 @@ public class CommentServiceTest {
 
         assertThrows(IllegalArgumentException.class, () -> commentService.deleteComment(10L, 999L));
     }
+
+    private CommentView commentView(Long id, Long postId, String text, LocalDateTime createdDate) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("postId", postId);
+        row.put("text", text);
+        row.put("createdDate", createdDate);
+        row.put("userId", mockUser.getId());
+        row.put("firstName", mockUser.getFirstName());
+        row.put("lastName", mockUser.getLastName());
+
+        return new SpelAwareProxyProjectionFactory().createProjection(CommentView.class, row);
+    }
 }
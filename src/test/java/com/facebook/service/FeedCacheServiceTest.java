@@ -0,0 +1,215 @@
+package com.facebook.service;
+
+import com.facebook.dto.CursorPageResponseDto;
+import com.facebook.dto.PostResponseDto;
+import com.facebook.event.FriendshipChangedEvent;
+import com.facebook.event.PostCreatedEvent;
+import com.facebook.event.PostLikedEvent;
+import com.facebook.event.PostUpdatedEvent;
+import com.facebook.event.ProfileUpdatedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FeedCacheServiceTest {
+    @Spy
+    private FriendGraph friendGraph = new FriendGraph(null);
+
+    private SimpleMeterRegistry meterRegistry;
+    private FeedCacheService feedCacheService;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        feedCacheService = new FeedCacheService(friendGraph, meterRegistry, 100, 2, Duration.ofMinutes(1), 100);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void getPage_shouldLoadOnceAndCountHitsAndMisses() {
+        CursorPageResponseDto<PostResponseDto> first = feedCacheService.getPage(1L, null, 10, loader());
+        CursorPageResponseDto<PostResponseDto> second = feedCacheService.getPage(1L, null, 10, loader());
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("feed.cache.gets").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("feed.cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void getPage_shouldKeepOnlyFirstPagesOfUser() {
+        feedCacheService.getPage(1L, null, 10, loader());
+        feedCacheService.getPage(1L, "page-2", 10, loader());
+        feedCacheService.getPage(1L, "page-3", 10, loader());
+        feedCacheService.getPage(1L, "page-3", 10, loader());
+        feedCacheService.getPage(1L, null, 10, loader());
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void onPostEvent_shouldEvictAuthorAndFriends() {
+        friendGraph.link(1L, 2L);
+
+        feedCacheService.getPage(1L, null, 10, loader());
+        feedCacheService.getPage(2L, null, 10, loader());
+        feedCacheService.getPage(3L, null, 10, loader());
+
+        feedCacheService.onPostEvent(new PostCreatedEvent(5L, 1L));
+
+        feedCacheService.getPage(1L, null, 10, loader());
+        feedCacheService.getPage(2L, null, 10, loader());
+        feedCacheService.getPage(3L, null, 10, loader());
+
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void onPostEvent_shouldChangeVersionOfLikingUser() {
+        friendGraph.link(1L, 2L);
+        long version = feedCacheService.getVersion(3L);
+
+        feedCacheService.onPostEvent(new PostLikedEvent(5L, 1L, 3L, true));
+
+        assertNotEquals(version, feedCacheService.getVersion(3L));
+    }
+
+    @Test
+    void onPostEvent_postUpdated_shouldEvictAuthorAndFriends() {
+        friendGraph.link(1L, 2L);
+        long friendVersion = feedCacheService.getVersion(2L);
+        feedCacheService.getPage(2L, null, 10, loader());
+
+        feedCacheService.onPostEvent(new PostUpdatedEvent(5L, 1L));
+        feedCacheService.getPage(2L, null, 10, loader());
+
+        assertEquals(2, loads.get());
+        assertNotEquals(friendVersion, feedCacheService.getVersion(2L));
+    }
+
+    @Test
+    void onProfileUpdated_shouldEvictUserAndFriends() {
+        friendGraph.link(1L, 2L);
+        long friendVersion = feedCacheService.getVersion(2L);
+        long strangerVersion = feedCacheService.getVersion(3L);
+        feedCacheService.getPage(1L, null, 10, loader());
+        feedCacheService.getPage(2L, null, 10, loader());
+        feedCacheService.getPage(3L, null, 10, loader());
+
+        feedCacheService.onProfileUpdated(new ProfileUpdatedEvent(1L));
+
+        feedCacheService.getPage(1L, null, 10, loader());
+        feedCacheService.getPage(2L, null, 10, loader());
+        feedCacheService.getPage(3L, null, 10, loader());
+
+        assertEquals(5, loads.get());
+        assertNotEquals(friendVersion, feedCacheService.getVersion(2L));
+        assertEquals(strangerVersion, feedCacheService.getVersion(3L));
+    }
+
+    @Test
+    void onPostEvent_inTransaction_shouldInvalidateOnceAfterCommit() {
+        friendGraph.link(1L, 2L);
+        long friendVersion = feedCacheService.getVersion(2L);
+        long likingUserVersion = feedCacheService.getVersion(4L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // As published by one like flush
+            feedCacheService.onPostEvent(new PostLikedEvent(5L, 1L, 3L, true));
+            feedCacheService.onPostEvent(new PostLikedEvent(5L, 1L, 4L, true));
+            feedCacheService.onPostEvent(new PostLikedEvent(6L, 1L, 3L, false));
+
+            assertEquals(friendVersion, feedCacheService.getVersion(2L));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertNotEquals(friendVersion, feedCacheService.getVersion(2L));
+        assertNotEquals(likingUserVersion, feedCacheService.getVersion(4L));
+        verify(friendGraph, times(1)).getFriendIds(1L);
+        assertNull(TransactionSynchronizationManager.getResource(feedCacheService));
+    }
+
+    @Test
+    void onPostEvent_whenRolledBack_shouldNotInvalidate() {
+        long version = feedCacheService.getVersion(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            feedCacheService.onPostEvent(new PostCreatedEvent(5L, 1L));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(version, feedCacheService.getVersion(1L));
+    }
+
+    @Test
+    void onFriendshipChanged_shouldEvictBothUsers() {
+        feedCacheService.getPage(1L, null, 10, loader());
+        feedCacheService.getPage(2L, null, 10, loader());
+
+        feedCacheService.onFriendshipChanged(new FriendshipChangedEvent(1L, 2L, true));
+
+        feedCacheService.getPage(1L, null, 10, loader());
+        feedCacheService.getPage(2L, null, 10, loader());
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void getVersion_shouldChangeOnlyWhenFeedIsInvalidated() {
+        long version = feedCacheService.getVersion(1L);
+
+        assertEquals(version, feedCacheService.getVersion(1L));
+
+        feedCacheService.onFriendshipChanged(new FriendshipChangedEvent(1L, 2L, false));
+
+        assertNotEquals(version, feedCacheService.getVersion(1L));
+    }
+
+    @Test
+    void getPage_shouldNotCachePageLoadedWhileFeedChanged() {
+        feedCacheService.getPage(1L, null, 10, () -> {
+            loads.incrementAndGet();
+            feedCacheService.onFriendshipChanged(new FriendshipChangedEvent(1L, 2L, true));
+            return new CursorPageResponseDto<>(List.of(), 10, null, false, null);
+        });
+        feedCacheService.getPage(1L, null, 10, loader());
+
+        assertEquals(2, loads.get());
+    }
+
+    private Supplier<CursorPageResponseDto<PostResponseDto>> loader() {
+        return () -> {
+            loads.incrementAndGet();
+            return new CursorPageResponseDto<>(List.of(new PostResponseDto()), 10, null, false, null);
+        };
+    }
+}
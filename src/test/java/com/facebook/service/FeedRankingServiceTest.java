@@ -0,0 +1,59 @@
+package com.facebook.service;
+
+import com.facebook.event.PostCommentedEvent;
+import com.facebook.event.PostCreatedEvent;
+import com.facebook.event.PostLikedEvent;
+import com.facebook.event.PostRepostedEvent;
+import com.facebook.repository.PostRepository;
+import com.facebook.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeedRankingServiceTest {
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private FeedRankingService feedRankingService;
+
+    @Test
+    void onPostCreated_shouldScoreNewPost() {
+        feedRankingService.onPostCreated(new PostCreatedEvent(5L, 1L));
+
+        verify(postRepository).refreshRankScore(5L);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void onPostLiked_shouldRescorePostAndRaiseAffinity() {
+        feedRankingService.onPostLiked(new PostLikedEvent(5L, 1L, 2L, true));
+
+        verify(postRepository).refreshRankScore(5L);
+        verify(userRepository).adjustAffinity(2L, 1L, FeedRankingService.LIKE_AFFINITY);
+    }
+
+    @Test
+    void onPostReposted_shouldLowerAffinityOnUndo() {
+        feedRankingService.onPostReposted(new PostRepostedEvent(5L, 1L, 2L, false));
+
+        verify(postRepository).refreshRankScore(5L);
+        verify(userRepository).adjustAffinity(2L, 1L, -FeedRankingService.REPOST_AFFINITY);
+    }
+
+    @Test
+    void onPostCommented_shouldNotTrackAffinityToSelf() {
+        feedRankingService.onPostCommented(new PostCommentedEvent(5L, 1L, 1L, true));
+
+        verify(postRepository).refreshRankScore(5L);
+        verify(userRepository, never()).adjustAffinity(anyLong(), anyLong(), anyDouble());
+    }
+}
@@ -0,0 +1,153 @@
+package com.facebook.service;
+
+import com.facebook.CommittingDataJpaTest;
+import com.facebook.config.AppConfig;
+import com.facebook.enums.FriendStatus;
+import com.facebook.model.Post;
+import com.facebook.model.User;
+import com.facebook.repository.FriendRepository;
+import com.facebook.repository.PostRepository;
+import com.facebook.repository.TimelineRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The friend graph is updated after commit, so friend writes are committed
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:friend_edges;MODE=MYSQL")
+@ImportAutoConfiguration(JdbcTemplateAutoConfiguration.class)
+@Import({AppConfig.class, FriendGraph.class, FriendService.class, TimelineService.class})
+class FriendEdgeQueryTest extends CommittingDataJpaTest {
+    @Autowired
+    private FriendService friendService;
+
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Autowired
+    private FriendRepository friendRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private TimelineRepository timelineRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long low;
+    private long high;
+    private long stranger;
+
+    @BeforeEach
+    void init() {
+        low = saveUser("low@test.com").getId();
+        high = saveUser("high@test.com").getId();
+        stranger = saveUser("stranger@test.com").getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM timeline_entries");
+        jdbcTemplate.update("DELETE FROM posts");
+        jdbcTemplate.update("DELETE FROM friend_graph_changes");
+        jdbcTemplate.update("DELETE FROM friends");
+        friendGraph.load();
+    }
+
+    @Test
+    void requestAndAccept_shouldKeepOneRowPerPair() {
+        friendService.addFriendRequest(high, low);
+
+        assertThrows(IllegalArgumentException.class, () -> friendService.addFriendRequest(low, high));
+        // Only the recipient accepts
+        assertThrows(IllegalArgumentException.class, () ->
+                friendService.responseToFriendRequest(high, low, FriendStatus.ACCEPTED));
+
+        friendService.responseToFriendRequest(low, high, FriendStatus.ACCEPTED);
+
+        Map<String, Object> edge = jdbcTemplate.queryForMap("SELECT low_id, high_id, requester_id, status FROM friends");
+        assertEquals(low, ((Number) edge.get("low_id")).longValue());
+        assertEquals(high, ((Number) edge.get("high_id")).longValue());
+        assertEquals(high, ((Number) edge.get("requester_id")).longValue());
+        assertEquals("ACCEPTED", edge.get("status"));
+
+        assertEquals(List.of(high), friendRepository.findHighDegreeFriendIds(low, 1));
+        assertEquals(List.of(low), friendRepository.findHighDegreeFriendIds(high, 1));
+        assertEquals(1, userRepository.getFriendsCount(low));
+        assertTrue(friendGraph.areFriends(low, high));
+
+        // Accepting again changes nothing
+        friendService.responseToFriendRequest(low, high, FriendStatus.ACCEPTED);
+        assertEquals(1, userRepository.getFriendsCount(high));
+    }
+
+    @Test
+    void fanOutPost_shouldReachFriendsOnEitherSideOfTheEdge() {
+        friendService.addFriendRequest(low, high);
+        friendService.responseToFriendRequest(high, low, FriendStatus.ACCEPTED);
+        long lowPost = savePost(low);
+        long highPost = savePost(high);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            timelineRepository.fanOutPost(lowPost);
+            timelineRepository.fanOutPost(highPost);
+        });
+
+        assertEquals(List.of(lowPost, highPost), timeline(high));
+        assertEquals(List.of(lowPost, highPost), timeline(low));
+        assertTrue(timeline(stranger).isEmpty());
+    }
+
+    @Test
+    void searchByFullNameContains_shouldSkipConnectedUsers() {
+        friendService.addFriendRequest(low, high);
+
+        List<Long> found = userRepository.searchByFullNameContains(high, "Test").orElseThrow().stream()
+                .map(User::getId)
+                .toList();
+
+        assertTrue(found.contains(stranger));
+        assertFalse(found.contains(low));
+    }
+
+    @Test
+    void declineAndDelete_shouldRemoveTheEdge() {
+        friendService.addFriendRequest(low, stranger);
+        friendService.responseToFriendRequest(stranger, low, FriendStatus.DECLINED);
+        friendService.addFriendRequest(high, low);
+        friendService.responseToFriendRequest(low, high, FriendStatus.ACCEPTED);
+
+        friendService.deleteFriend(high, low);
+
+        assertEquals(0, (int) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friends", Integer.class));
+        assertEquals(0, userRepository.getFriendsCount(low));
+        assertFalse(friendGraph.isConnected(low, high));
+        assertFalse(friendGraph.isConnected(low, stranger));
+    }
+
+    private List<Long> timeline(long ownerId) {
+        return jdbcTemplate.queryForList(
+                "SELECT post_id FROM timeline_entries WHERE owner_id = ? ORDER BY post_id", Long.class, ownerId);
+    }
+
+    private long savePost(long userId) {
+        Post post = new Post();
+        post.setText("Post");
+        post.setUser(userRepository.findById(userId).orElseThrow());
+
+        return postRepository.save(post).getId();
+    }
+}
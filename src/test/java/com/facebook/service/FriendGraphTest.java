@@ -0,0 +1,144 @@
+package com.facebook.service;
+
+import com.facebook.enums.FriendScoring;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class FriendGraphTest {
+    private FriendGraph friendGraph;
+
+    @BeforeEach
+    void setUp() {
+        friendGraph = new FriendGraph(null);
+    }
+
+    @Test
+    void load_shouldIndexAcceptedFriendsBothWaysAndPendingRequestsByDirection() throws SQLException {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        // (low, high, requester, status) rows, requests sent by the lower and by the higher id
+        when(resultSet.getLong(1)).thenReturn(1L, 1L, 1L, 3L);
+        when(resultSet.getLong(2)).thenReturn(2L, 5L, 4L, 6L);
+        when(resultSet.getLong(3)).thenReturn(2L, 1L, 1L, 6L);
+        when(resultSet.getString(4)).thenReturn("ACCEPTED", "ACCEPTED", "PENDING", "PENDING");
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < 4; i++) {
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        friendGraph = new FriendGraph(jdbcTemplate);
+        friendGraph.load();
+
+        assertArrayEquals(new long[]{2L, 5L}, friendGraph.getFriendIds(1L));
+        assertArrayEquals(new long[]{1L}, friendGraph.getFriendIds(5L));
+        assertArrayEquals(new long[]{1L}, friendGraph.getReceivedRequestIds(4L));
+        assertArrayEquals(new long[]{4L}, friendGraph.getSentRequestIds(1L));
+        assertArrayEquals(new long[]{6L}, friendGraph.getReceivedRequestIds(3L));
+        assertArrayEquals(new long[]{3L}, friendGraph.getSentRequestIds(6L));
+        assertTrue(friendGraph.isConnected(4L, 1L));
+        assertFalse(friendGraph.areFriends(4L, 1L));
+    }
+
+    @Test
+    void link_shouldReplaceRequestWithFriendship() {
+        friendGraph.addRequest(1L, 2L);
+
+        assertTrue(friendGraph.isConnected(2L, 1L));
+        assertFalse(friendGraph.areFriends(1L, 2L));
+
+        friendGraph.link(2L, 1L);
+
+        assertTrue(friendGraph.areFriends(1L, 2L));
+        assertTrue(friendGraph.areFriends(2L, 1L));
+        assertEquals(0, friendGraph.getSentRequestIds(1L).length);
+        assertEquals(0, friendGraph.getReceivedRequestIds(2L).length);
+    }
+
+    @Test
+    void unlink_shouldRemoveFriendshipBothWays() {
+        friendGraph.link(1L, 2L);
+        friendGraph.link(1L, 3L);
+
+        friendGraph.unlink(2L, 1L);
+
+        assertArrayEquals(new long[]{3L}, friendGraph.getFriendIds(1L));
+        assertEquals(0, friendGraph.getFriendIds(2L).length);
+        assertFalse(friendGraph.isConnected(1L, 2L));
+    }
+
+    @Test
+    void getFriendIds_shouldStaySortedAndUnchangedByLaterWrites() {
+        friendGraph.link(1L, 30L);
+        friendGraph.link(1L, 10L);
+        long[] before = friendGraph.getFriendIds(1L);
+
+        friendGraph.link(1L, 20L);
+        friendGraph.link(1L, 20L);
+
+        assertArrayEquals(new long[]{10L, 30L}, before);
+        assertArrayEquals(new long[]{10L, 20L, 30L}, friendGraph.getFriendIds(1L));
+    }
+
+    @Test
+    void getMutualFriendIds_shouldIntersectFriendLists() {
+        friendGraph.link(1L, 3L);
+        friendGraph.link(1L, 4L);
+        friendGraph.link(1L, 6L);
+        friendGraph.link(2L, 4L);
+        friendGraph.link(2L, 5L);
+        friendGraph.link(2L, 6L);
+
+        assertArrayEquals(new long[]{4L, 6L}, friendGraph.getMutualFriendIds(1L, 2L));
+        assertArrayEquals(new long[]{3L}, FriendGraph.difference(friendGraph.getFriendIds(1L),
+                friendGraph.getFriendIds(2L)));
+        assertEquals(0, friendGraph.getMutualFriendIds(1L, 7L).length);
+    }
+
+    @Test
+    void suggestFriends_shouldRankCandidatesInOnePassWithoutConnectedUsers() {
+        friendGraph.link(1L, 2L);
+        friendGraph.link(1L, 3L);
+        friendGraph.link(2L, 3L);
+        friendGraph.link(2L, 5L);
+        friendGraph.link(3L, 5L);
+        friendGraph.link(2L, 4L);
+        friendGraph.link(3L, 6L);
+        friendGraph.addRequest(1L, 6L);
+
+        List<FriendGraph.Suggestion> suggestions = friendGraph.suggestFriends(1L, 10, FriendScoring.MUTUAL_FRIENDS);
+
+        assertEquals(List.of(5L, 4L), suggestions.stream().map(FriendGraph.Suggestion::userId).toList());
+        assertEquals(2, suggestions.getFirst().mutualFriends());
+        assertEquals(List.of(5L), friendGraph.suggestFriends(1L, 1, FriendScoring.MUTUAL_FRIENDS).stream()
+                .map(FriendGraph.Suggestion::userId)
+                .toList());
+    }
+
+    @Test
+    void suggestFriends_withAdamicAdar_shouldWeighMutualFriendsWithFewFriendsMore() {
+        friendGraph.link(1L, 2L);
+        friendGraph.link(1L, 3L);
+        // 2 is a popular friend, 3 is not
+        for (long id = 10; id < 20; id++) {
+            friendGraph.link(2L, id);
+        }
+        friendGraph.link(3L, 30L);
+
+        assertEquals(10L, friendGraph.suggestFriends(1L, 1, FriendScoring.MUTUAL_FRIENDS).getFirst().userId());
+        assertEquals(30L, friendGraph.suggestFriends(1L, 1, FriendScoring.ADAMIC_ADAR).getFirst().userId());
+    }
+}
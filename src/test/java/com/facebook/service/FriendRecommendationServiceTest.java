@@ -0,0 +1,147 @@
+package com.facebook.service;
+
+import com.facebook.dto.FriendRecommendationDto;
+import com.facebook.dto.UserShortDto;
+import com.facebook.enums.FriendScoring;
+import com.facebook.model.User;
+import com.facebook.repository.FriendRepository;
+import com.facebook.repository.UserRepository;
+import com.facebook.repository.projection.FriendRecommendationView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FriendRecommendationServiceTest {
+    private FriendGraph friendGraph;
+    private FriendService friendService;
+    private FriendRepository friendRepository;
+    private UserRepository userRepository;
+
+    private FriendRecommendationService service;
+
+    @BeforeEach
+    void setUp() {
+        friendGraph = new FriendGraph(null);
+        friendService = mock(FriendService.class);
+        friendRepository = mock(FriendRepository.class);
+        userRepository = mock(UserRepository.class);
+
+        service = new FriendRecommendationService(
+                friendGraph, friendService, friendRepository, userRepository, new ModelMapper(), 3,
+                FriendScoring.MUTUAL_FRIENDS);
+    }
+
+    @Test
+    void getRecommendedFriends_shouldRankFriendsOfFriendsByMutualFriends() {
+        friendGraph.link(1L, 2L);
+        friendGraph.link(1L, 3L);
+        // 5 is a friend of both friends, 4 of one, 6 already sent the user a request
+        friendGraph.link(2L, 4L);
+        friendGraph.link(2L, 5L);
+        friendGraph.link(3L, 5L);
+        friendGraph.link(3L, 6L);
+        friendGraph.addRequest(6L, 1L);
+        // 7 is the newest user, 2 is a friend
+        when(friendService.getUsers(new long[]{5L, 4L})).thenReturn(List.of(shortUser(5L), shortUser(4L)));
+        // Limit plus two friends and a request
+        when(userRepository.findSliceByIdNotOrderByCreatedDateDesc(1L, PageRequest.of(0, 6)))
+                .thenReturn(new SliceImpl<>(List.of(user(2L), user(5L), user(7L))));
+
+        List<FriendRecommendationDto> result = service.getRecommendedFriends(1L);
+
+        assertEquals(List.of(5L, 4L, 7L), result.stream().map(UserShortDto::getId).toList());
+        assertEquals(List.of(2, 1, 0), result.stream().map(FriendRecommendationDto::getMutualFriendsCount).toList());
+        assertEquals("User 5", result.getFirst().getFirstName());
+    }
+
+    @Test
+    void getRecommendedFriends_shouldSkipDeletedUsers() {
+        friendGraph.link(1L, 2L);
+        friendGraph.link(2L, 3L);
+        friendGraph.link(2L, 4L);
+        when(friendService.getUsers(new long[]{3L, 4L})).thenReturn(List.of(shortUser(4L)));
+        when(userRepository.findSliceByIdNotOrderByCreatedDateDesc(1L, PageRequest.of(0, 4)))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        List<FriendRecommendationDto> result = service.getRecommendedFriends(1L);
+
+        assertEquals(List.of(4L), result.stream().map(UserShortDto::getId).toList());
+    }
+
+    @Test
+    void getRecommendedFriends_shouldFallBackToNewestUsers_whenUserHasNoFriends() {
+        friendGraph.addRequest(1L, 3L);
+        when(friendService.getUsers(new long[0])).thenReturn(List.of());
+        when(userRepository.findSliceByIdNotOrderByCreatedDateDesc(1L, PageRequest.of(0, 4)))
+                .thenReturn(new SliceImpl<>(List.of(user(2L), user(3L))));
+
+        List<FriendRecommendationDto> result = service.getRecommendedFriends(1L);
+
+        assertEquals(List.of(2L), result.stream().map(UserShortDto::getId).toList());
+        assertEquals(0, result.getFirst().getMutualFriendsCount());
+    }
+
+    @Test
+    void getRecommendedFriends_shouldReadStoredRecommendations() {
+        // 3 was stored before the user sent them a request
+        friendGraph.addRequest(1L, 3L);
+        when(friendRepository.findRecommendations(1L)).thenReturn(List.of(stored(4L, 2), stored(3L, 2), stored(5L, 1)));
+        when(userRepository.findSliceByIdNotOrderByCreatedDateDesc(1L, PageRequest.of(0, 4)))
+                .thenReturn(new SliceImpl<>(List.of(user(4L), user(6L))));
+
+        List<FriendRecommendationDto> result = service.getRecommendedFriends(1L);
+
+        assertEquals(List.of(4L, 5L, 6L), result.stream().map(UserShortDto::getId).toList());
+        assertEquals(List.of(2, 1, 0), result.stream().map(FriendRecommendationDto::getMutualFriendsCount).toList());
+        verify(friendService, never()).getUsers(any());
+    }
+
+    private static FriendRecommendationView stored(long id, int mutualFriendsCount) {
+        return new FriendRecommendationView() {
+            public int getMutualFriendsCount() {
+                return mutualFriendsCount;
+            }
+
+            public Long getId() {
+                return id;
+            }
+
+            public String getFirstName() {
+                return "User " + id;
+            }
+
+            public String getLastName() {
+                return "Test";
+            }
+
+            public String getAvatarUrl() {
+                return null;
+            }
+
+            public Date getBirthdate() {
+                return null;
+            }
+        };
+    }
+
+    private static UserShortDto shortUser(long id) {
+        return new UserShortDto(id, "User " + id, "Test", null, null);
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName("User " + id);
+
+        return user;
+    }
+}
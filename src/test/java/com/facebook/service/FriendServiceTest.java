@@ -2,24 +2,26 @@ package com.facebook.service;
 
 import com.facebook.dto.UserShortDto;
 import com.facebook.enums.FriendStatus;
+import com.facebook.event.FriendshipChangedEvent;
 import com.facebook.exception.NotFoundException;
-import com.facebook.model.Friend;
 import com.facebook.model.User;
 import com.facebook.repository.FriendRepository;
 import com.facebook.repository.UserRepository;
+import com.facebook.repository.projection.UserShortView;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,7 +31,13 @@ public class FriendServiceTest {
     @Mock
     private UserRepository userRepository;
     @Mock
-    private ModelMapper modelMapper;
+    private TimelineService timelineService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private FriendGraph friendGraph = new FriendGraph(null);
 
     @InjectMocks
     private FriendService friendService;
@@ -38,8 +46,6 @@ public class FriendServiceTest {
     private User friend = new User();
     private UserShortDto friendShort = new UserShortDto();
     private User notYetFriend = new User();
-    private Friend friendObject = new Friend();
-    private Friend notYetFriendObject = new Friend();
 
     @BeforeEach
     void setUp() {
@@ -56,89 +62,88 @@ public class FriendServiceTest {
         friendShort.setId(friend.getId());
         friendShort.setFirstName(friend.getFirstName());
         friendShort.setLastName(friend.getLastName());
-
-        friendObject.setId(1L);
-        friendObject.setUser(user);
-        friendObject.setFriend(friend);
-        friendObject.setStatus(FriendStatus.ACCEPTED);
-        notYetFriendObject.setId(2L);
-        notYetFriendObject.setUser(user);
-        notYetFriendObject.setFriend(notYetFriend);
-        notYetFriendObject.setStatus(FriendStatus.PENDING);
-        notYetFriendObject.setAcceptedDate(null);
     }
 
     @Test
     void testGetAllFriendUsers() {
-        when(friendRepository.findByStatusAndUserId(FriendStatus.ACCEPTED, 1L))
-                .thenReturn(List.of(friendObject));
-        when(modelMapper.map(friendObject.getFriend(), UserShortDto.class)).thenReturn(friendShort);
+        friendGraph.link(1L, 2L);
+        when(userRepository.findShortByIdIn(List.of(2L))).thenReturn(List.of(view(friend)));
 
         List<UserShortDto> result = friendService.getAllFriendUsers(1L);
 
         assertEquals(1, result.size());
         assertEquals(friendShort, result.getFirst());
+        assertEquals("Test Name 2", result.getFirst().getFirstName());
+        verifyNoInteractions(friendRepository);
     }
 
     @Test
     void testGetAllUsersWhoSentRequest() {
-        UserShortDto notYetFriendDto = new UserShortDto();
-        notYetFriendDto.setId(notYetFriend.getId());
-        notYetFriendDto.setFirstName(notYetFriend.getFirstName());
-
-        when(friendRepository.findByStatusAndUserId(FriendStatus.PENDING, 1L))
-                .thenReturn(List.of(notYetFriendObject));
-        when(modelMapper.map(notYetFriend, UserShortDto.class)).thenReturn(notYetFriendDto);
+        friendGraph.addRequest(3L, 1L);
+        when(userRepository.findShortByIdIn(List.of(3L))).thenReturn(List.of(view(notYetFriend)));
 
         List<UserShortDto> result = friendService.getAllUsersWhoSentRequest(1L);
 
         assertEquals(1, result.size());
-        assertEquals(notYetFriendDto, result.getFirst());
+        assertEquals(3L, result.getFirst().getId());
+        assertTrue(friendService.getAllUsersWhoSentRequest(3L).isEmpty());
     }
 
     @Test
     void testGetAllUsersWhomSentRequest() {
-        UserShortDto notYetFriendDto = new UserShortDto();
-        notYetFriendDto.setId(notYetFriend.getId());
-        notYetFriendDto.setFirstName(notYetFriend.getFirstName());
-
-        when(friendRepository.findByStatusAndFriendId(FriendStatus.PENDING, 1L))
-                .thenReturn(List.of(notYetFriendObject));
-        when(modelMapper.map(notYetFriend, UserShortDto.class)).thenReturn(notYetFriendDto);
+        friendGraph.addRequest(1L, 3L);
+        when(userRepository.findShortByIdIn(List.of(3L))).thenReturn(List.of(view(notYetFriend)));
 
         List<UserShortDto> result = friendService.getAllUsersWhomSentRequest(1L);
 
         assertEquals(1, result.size());
-        assertEquals(notYetFriendDto, result.getFirst());
+        assertEquals(3L, result.getFirst().getId());
+    }
+
+    @Test
+    void testIsFriend_shouldIncludePendingRequests() {
+        friendGraph.link(1L, 2L);
+        friendGraph.addRequest(3L, 1L);
+
+        assertTrue(friendService.isFriend(2L, 1L));
+        assertTrue(friendService.isFriend(1L, 3L));
+        assertFalse(friendService.isFriend(2L, 3L));
+        verifyNoInteractions(friendRepository);
     }
 
     @Test
     void testAddFriendRequest_OK() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(userRepository.findById(3L)).thenReturn(Optional.of(notYetFriend));
-        when(friendRepository.findByUserIdAndFriendId(3L, 1L))
-                .thenReturn(Optional.empty());
-        when(friendRepository.findByUserIdAndFriendId(1L, 3L))
-                .thenReturn(Optional.empty());
-        when(friendRepository.save(any(Friend.class))).thenReturn(notYetFriendObject);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(friendRepository.insertRequest(1L, 3L, 1L)).thenReturn(1);
 
         friendService.addFriendRequest(1L, 3L);
-        verify(friendRepository).save(any(Friend.class));
+
+        verify(friendRepository).insertRequest(1L, 3L, 1L);
+        verify(friendRepository).markGraphChanged(1L);
+        verify(friendRepository).markGraphChanged(3L);
+        assertArrayEquals(new long[]{1L}, friendGraph.getReceivedRequestIds(3L));
     }
 
     @Test
     void testAddFriendRequest_BadRequest() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(friend));
-        when(friendRepository.findByUserIdAndFriendId(1L, 2L))
-                .thenReturn(Optional.of(friendObject));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(friendRepository.insertRequest(1L, 2L, 1L)).thenReturn(0);
 
         assertThrows(IllegalArgumentException.class, () -> friendService.addFriendRequest(1L, 2L));
+        verify(friendRepository, never()).markGraphChanged(anyLong());
+    }
+
+    @Test
+    void testAddFriendRequest_ToYourself() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () -> friendService.addFriendRequest(1L, 1L));
+        verifyNoInteractions(friendRepository);
     }
 
     @Test
     void testAddFriendRequest_UserNotFound() {
-        when(userRepository.findById(4L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(4L)).thenReturn(false);
 
         assertThrows(NotFoundException.class, () ->
                 friendService.addFriendRequest(4L, 2L));
@@ -146,8 +151,8 @@ public class FriendServiceTest {
 
     @Test
     void testAddFriendRequest_FriendNotFound() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(userRepository.findById(4L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.existsById(4L)).thenReturn(false);
 
         assertThrows(NotFoundException.class, () ->
                 friendService.addFriendRequest(1L, 4L));
@@ -155,132 +160,112 @@ public class FriendServiceTest {
 
     @Test
     void testResponseToFriendRequest_whenAccepted_OK() {
-        when(userRepository.findById(2L)).thenReturn(Optional.of(user));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(friend));
-        when(friendRepository.findByUserIdAndFriendId(2L, 1L)).thenReturn(Optional.of(friendObject));
+        friendGraph.addRequest(1L, 2L);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(friendRepository.acceptRequest(1L, 2L, 1L)).thenReturn(1);
+
+        friendService.responseToFriendRequest(2L, 1L, FriendStatus.ACCEPTED);
+
+        verify(userRepository).adjustFriendsCount(List.of(2L, 1L), 1);
+        verify(timelineService).linkFriends(2L, 1L);
+        verify(eventPublisher).publishEvent(any(FriendshipChangedEvent.class));
+        assertTrue(friendGraph.areFriends(1L, 2L));
+        assertEquals(0, friendGraph.getReceivedRequestIds(2L).length);
+        verify(friendRepository).markGraphChanged(2L);
+        verify(friendRepository).markGraphChanged(1L);
+    }
+
+    @Test
+    void testResponseToFriendRequest_whenAlreadyFriends_shouldNotCountTwice() {
+        friendGraph.link(1L, 2L);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(friendRepository.acceptRequest(1L, 2L, 1L)).thenReturn(0);
 
         friendService.responseToFriendRequest(2L, 1L, FriendStatus.ACCEPTED);
 
-        verify(friendRepository, times(2)).save(any(Friend.class));
+        verify(userRepository, never()).adjustFriendsCount(anyList(), anyInt());
+        verify(timelineService, never()).linkFriends(anyLong(), anyLong());
     }
 
     @Test
     void testResponseToFriendRequest_whenDeclined_OK() {
-        when(userRepository.findById(2L)).thenReturn(Optional.of(user));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(friend));
-        when(friendRepository.findByUserIdAndFriendId(2L, 1L)).thenReturn(Optional.of(friendObject));
+        friendGraph.addRequest(1L, 2L);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(friendRepository.deleteRequest(1L, 2L, 1L)).thenReturn(1);
 
         friendService.responseToFriendRequest(2L, 1L, FriendStatus.DECLINED);
 
-        verify(friendRepository).delete(any(Friend.class));
+        verify(friendRepository).deleteRequest(1L, 2L, 1L);
+        verify(timelineService, never()).linkFriends(anyLong(), anyLong());
+        assertFalse(friendGraph.isConnected(2L, 1L));
     }
 
     @Test
     void testResponseToFriendRequest_FriendRequestNotFound() {
-        when(userRepository.findById(2L)).thenReturn(Optional.of(user));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(friend));
-        when(friendRepository.findByUserIdAndFriendId(2L, 1L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(friendRepository.acceptRequest(1L, 2L, 1L)).thenReturn(0);
 
         assertThrows(IllegalArgumentException.class, () ->
                 friendService.responseToFriendRequest(2L, 1L, FriendStatus.ACCEPTED));
+        verify(userRepository, never()).adjustFriendsCount(anyList(), anyInt());
     }
 
     @Test
     void deleteFriend_WhenValid_ShouldDeleteFriend() {
-        when(friendRepository.findByUserIdAndFriendId(1L, 2L)).thenReturn(Optional.of(friendObject));
+        friendGraph.link(1L, 2L);
+        when(friendRepository.deleteEdge(1L, 2L)).thenReturn(1);
 
         friendService.deleteFriend(1L, 2L);
 
-        verify(friendRepository, atLeastOnce()).delete(any(Friend.class));
+        verify(userRepository).adjustFriendsCount(List.of(1L, 2L), -1);
+        verify(timelineService).unlinkFriends(1L, 2L);
+        verify(eventPublisher).publishEvent(any(FriendshipChangedEvent.class));
+        assertFalse(friendGraph.areFriends(2L, 1L));
     }
 
     @Test
-    void testGetRecommendedFriends_NoFriends() {
-        when(friendService.getAllFriendUsers(1L)).thenReturn(List.of());
-
-        User otherUser1 = new User();
-        otherUser1.setId(2L);
-        otherUser1.setFirstName("Alice");
-        otherUser1.setLastName("Smith");
-
-        User otherUser2 = new User();
-        otherUser2.setId(3L);
-        otherUser2.setFirstName("Bob");
-        otherUser2.setLastName("Jones");
-
-        List<User> topUsers = List.of(otherUser1, otherUser2);
-
-        UserShortDto dto1 = new UserShortDto(otherUser1.getId(), otherUser1.getFirstName(), otherUser1.getLastName(), null, null);
-        UserShortDto dto2 = new UserShortDto(otherUser2.getId(), otherUser2.getFirstName(), otherUser2.getLastName(), null, null);
+    void deleteFriend_WhenRequestPending_ShouldNotTouchCounts() {
+        friendGraph.addRequest(3L, 1L);
+        when(friendRepository.deleteEdge(1L, 3L)).thenReturn(1);
 
-        when(userRepository.findTop40ByIdNotOrderByCreatedDateDesc(1L)).thenReturn(topUsers);
-        when(friendRepository.findByUserIdAndFriendId(1L, 2L)).thenReturn(Optional.empty());
-        when(friendRepository.findByUserIdAndFriendId(2L, 1L)).thenReturn(Optional.empty());
-        when(friendRepository.findByUserIdAndFriendId(1L, 3L)).thenReturn(Optional.empty());
-        when(friendRepository.findByUserIdAndFriendId(3L, 1L)).thenReturn(Optional.empty());
-        when(modelMapper.map(otherUser1, UserShortDto.class)).thenReturn(dto1);
-        when(modelMapper.map(otherUser2, UserShortDto.class)).thenReturn(dto2);
+        friendService.deleteFriend(1L, 3L);
 
-        List<UserShortDto> result = friendService.getRecommendedFriends(1L);
-
-        assertEquals(2, result.size());
-        assertTrue(result.contains(dto1));
-        assertTrue(result.contains(dto2));
+        verify(userRepository, never()).adjustFriendsCount(anyList(), anyInt());
+        verify(timelineService, never()).unlinkFriends(anyLong(), anyLong());
+        assertFalse(friendGraph.isConnected(1L, 3L));
     }
 
     @Test
-    void testGetRecommendedFriends_WithFriends() {
-        User friendUser = new User();
-        friendUser.setId(2L);
-        friendUser.setFirstName("Friend");
-        friendUser.setLastName("User");
-
-        Friend friend = new Friend();
-        friend.setFriend(friendUser);
-        friend.setUser(new User()); // dummy owner user
-
-        when(friendRepository.findByStatusAndUserId(FriendStatus.ACCEPTED, 1L))
-                .thenReturn(List.of(friend));
-
-        UserShortDto friendDto = new UserShortDto(2L, "Friend", "User", null, null);
-        when(modelMapper.map(friendUser, UserShortDto.class)).thenReturn(friendDto);
+    void deleteFriend_WhenNothingStored_ShouldDoNothing() {
+        when(friendRepository.deleteEdge(1L, 3L)).thenReturn(0);
 
-        User foaf1 = new User();
-        foaf1.setId(3L);
-        foaf1.setFirstName("FriendOf");
-        foaf1.setLastName("Friend1");
+        friendService.deleteFriend(1L, 3L);
 
-        User foaf2 = new User();
-        foaf2.setId(4L);
-        foaf2.setFirstName("FriendOf");
-        foaf2.setLastName("Friend2");
-
-        Friend friendOfFriend1 = new Friend();
-        friendOfFriend1.setFriend(foaf1);
-        friendOfFriend1.setUser(new User());
-
-        Friend friendOfFriend2 = new Friend();
-        friendOfFriend2.setFriend(foaf2);
-        friendOfFriend2.setUser(new User());
-
-        when(friendRepository.findByStatusAndUserId(FriendStatus.ACCEPTED, 2L))
-                .thenReturn(List.of(friendOfFriend1, friendOfFriend2));
+        verify(friendRepository, never()).markGraphChanged(anyLong());
+        verifyNoInteractions(userRepository, timelineService);
+    }
 
-        UserShortDto foafDto1 = new UserShortDto(3L, "FriendOf", "Friend1", null, null);
-        UserShortDto foafDto2 = new UserShortDto(4L, "FriendOf", "Friend2", null, null);
+    private static UserShortView view(User user) {
+        return new UserShortView() {
+            public Long getId() {
+                return user.getId();
+            }
 
-        when(friendRepository.findByUserIdAndFriendId(1L, 3L)).thenReturn(Optional.empty());
-        when(friendRepository.findByUserIdAndFriendId(3L, 1L)).thenReturn(Optional.empty());
-        when(friendRepository.findByUserIdAndFriendId(1L, 4L)).thenReturn(Optional.empty());
-        when(friendRepository.findByUserIdAndFriendId(4L, 1L)).thenReturn(Optional.empty());
+            public String getFirstName() {
+                return user.getFirstName();
+            }
 
-        when(modelMapper.map(foaf1, UserShortDto.class)).thenReturn(foafDto1);
-        when(modelMapper.map(foaf2, UserShortDto.class)).thenReturn(foafDto2);
+            public String getLastName() {
+                return user.getLastName();
+            }
 
-        List<UserShortDto> result = friendService.getRecommendedFriends(1L);
+            public String getAvatarUrl() {
+                return user.getAvatarUrl();
+            }
 
-        assertEquals(2, result.size());
-        assertTrue(result.contains(foafDto1));
-        assertTrue(result.contains(foafDto2));
+            public java.util.Date getBirthdate() {
+                return user.getBirthdate();
+            }
+        };
     }
 }
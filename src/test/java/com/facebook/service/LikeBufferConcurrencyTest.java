@@ -0,0 +1,197 @@
+package com.facebook.service;
+
+import com.facebook.CommittingDataJpaTest;
+import com.facebook.config.AppConfig;
+import com.facebook.model.LikeToggle;
+import com.facebook.model.Post;
+import com.facebook.model.User;
+import com.facebook.repository.LikeToggleRepository;
+import com.facebook.repository.PostRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs outside a test transaction, so every thread sees the committed rows
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:like_concurrency;MODE=MYSQL",
+        "app.likes.flush-interval-ms=3600000"
+})
+@ImportAutoConfiguration(JdbcTemplateAutoConfiguration.class)
+@Import({AppConfig.class, LikeBufferService.class})
+class LikeBufferConcurrencyTest extends CommittingDataJpaTest {
+    private static final int THREADS = 8;
+
+    @Autowired
+    private LikeBufferService likeBufferService;
+
+    @Autowired
+    private LikeToggleRepository likeToggleRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    private User author;
+    private Post post;
+
+    @BeforeEach
+    void init() {
+        author = saveUser("author@test.com");
+
+        Post newPost = new Post();
+        newPost.setText("Popular post");
+        newPost.setUser(author);
+        post = postRepository.save(newPost);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        likeBufferService.flush();
+    }
+
+    @Test
+    void concurrentToggles_shouldLeaveOneLikeAndMatchingCount() throws Exception {
+        User reader = saveUser("reader@test.com");
+        int togglesPerThread = 25;
+
+        // An odd number of toggles in total, flushed while they are still coming in
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> {
+                for (int j = 0; j < togglesPerThread; j++) {
+                    likeBufferService.toggle(post.getId(), author.getId(), reader.getId());
+                }
+                return null;
+            });
+        }
+        tasks.add(() -> {
+            likeBufferService.toggle(post.getId(), author.getId(), reader.getId());
+            return null;
+        });
+
+        runWhileFlushing(tasks);
+        likeBufferService.flush();
+
+        assertEquals(1, likesOf(reader));
+        assertEquals(1, likesCount());
+        assertEquals(1, likeBufferService.getLikesCount(post.getId()));
+        assertEquals(0, likeToggleRepository.count());
+    }
+
+    @Test
+    void concurrentLikesOfManyUsers_shouldCountEachOnce() throws Exception {
+        List<User> readers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            readers.add(saveUser("reader" + i + "@test.com"));
+        }
+
+        List<Callable<Void>> tasks = readers.stream()
+                .<Callable<Void>>map(reader -> () -> {
+                    likeBufferService.toggle(post.getId(), author.getId(), reader.getId());
+                    return null;
+                })
+                .toList();
+
+        runWhileFlushing(tasks);
+
+        assertEquals(readers.size(), likeBufferService.getLikesCount(post.getId()));
+
+        likeBufferService.flush();
+
+        assertEquals(readers.size(), likesCount());
+        assertEquals(readers.size(), likeBufferService.getLikesCount(post.getId()));
+        assertEquals(readers.size(), (int) jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM likes WHERE post_id = ?", Integer.class, post.getId()));
+        assertEquals(readers.size(), (int) jdbcTemplate.queryForObject(
+                "SELECT likes_received_count FROM user_stats WHERE user_id = ?", Integer.class, author.getId()));
+    }
+
+    @Test
+    void replayedToggle_shouldNotLikeOrCountTwice() {
+        User reader = saveUser("reader@test.com");
+        jdbcTemplate.update("INSERT INTO likes (user_id, post_id) VALUES (?, ?)", reader.getId(), post.getId());
+        jdbcTemplate.update("UPDATE posts SET likes_count = 1 WHERE id = ?", post.getId());
+
+        // A toggle already in the likes table, as if left in the journal by a crash
+        likeToggleRepository.save(
+                new LikeToggle(null, reader.getId(), post.getId(), author.getId(), true, LocalDateTime.now()));
+        likeBufferService.recover();
+
+        likeBufferService.flush();
+
+        assertEquals(1, likesOf(reader));
+        assertEquals(1, likesCount());
+        assertEquals(1, likeBufferService.getLikesCount(post.getId()));
+    }
+
+    @Test
+    void uniqueIndex_shouldRejectDuplicateLike() {
+        User reader = saveUser("reader@test.com");
+        String insert = "INSERT INTO likes (user_id, post_id) VALUES (?, ?)";
+        jdbcTemplate.update(insert, reader.getId(), post.getId());
+
+        assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update(insert, reader.getId(), post.getId()));
+    }
+
+    private void runWhileFlushing(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size() + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                while (running.get()) {
+                    likeBufferService.flush();
+                }
+            });
+
+            List<Future<Void>> results = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+
+            running.set(false);
+            flusher.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+    }
+
+    private int likesOf(User reader) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE user_id = ? AND post_id = ?",
+                Integer.class, reader.getId(), post.getId());
+    }
+
+    private int likesCount() {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM posts WHERE id = ?", Integer.class, post.getId());
+    }
+}
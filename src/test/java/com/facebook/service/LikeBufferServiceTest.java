@@ -0,0 +1,188 @@
+package com.facebook.service;
+
+import com.facebook.event.PostLikedEvent;
+import com.facebook.model.LikeToggle;
+import com.facebook.repository.LikeRepository;
+import com.facebook.repository.LikeToggleRepository;
+import com.facebook.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LikeBufferServiceTest {
+    private static final int BATCH_SIZE = 100;
+
+    @Mock
+    private LikeRepository likeRepository;
+
+    @Mock
+    private LikeToggleRepository likeToggleRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> inserts;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> counters;
+
+    private LikeBufferService likeBufferService;
+
+    private final List<LikeToggle> journal = new ArrayList<>();
+
+    @BeforeEach
+    void init() {
+        likeBufferService = new LikeBufferService(likeRepository, likeToggleRepository, postRepository,
+                jdbcTemplate, eventPublisher, transactionManager, 4, BATCH_SIZE);
+
+        lenient().when(likeToggleRepository.save(any(LikeToggle.class))).thenAnswer(invocation -> {
+            LikeToggle toggle = invocation.getArgument(0);
+            toggle.setId(journal.size() + 1L);
+            journal.add(toggle);
+            return toggle;
+        });
+    }
+
+    @Test
+    void toggle_shouldLikeAndCountBeforeFlush() {
+        when(likeRepository.existsByUserIdAndPostId(2L, 1L)).thenReturn(false);
+        when(postRepository.getLikesCount(1L)).thenReturn(5);
+
+        assertTrue(likeBufferService.toggle(1L, 9L, 2L));
+        assertEquals(6, likeBufferService.getLikesCount(1L));
+
+        assertEquals(1, journal.size());
+        assertTrue(journal.getFirst().isLiked());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void toggle_shouldFollowBufferedStateOverDatabase() {
+        when(likeRepository.existsByUserIdAndPostId(2L, 1L)).thenReturn(false);
+        when(postRepository.getLikesCount(1L)).thenReturn(5);
+
+        assertTrue(likeBufferService.toggle(1L, 9L, 2L));
+        assertFalse(likeBufferService.toggle(1L, 9L, 2L));
+        assertEquals(5, likeBufferService.getLikesCount(1L));
+
+        verify(likeRepository, times(1)).existsByUserIdAndPostId(2L, 1L);
+    }
+
+    @Test
+    void flush_shouldApplyLatestToggleOfEachUserOnce() {
+        when(likeRepository.existsByUserIdAndPostId(2L, 1L)).thenReturn(false);
+        when(likeRepository.existsByUserIdAndPostId(3L, 2L)).thenReturn(true);
+
+        likeBufferService.toggle(1L, 9L, 2L);
+        likeBufferService.toggle(1L, 9L, 2L);
+        likeBufferService.toggle(1L, 9L, 2L);
+        likeBufferService.toggle(2L, 9L, 3L);
+
+        when(likeToggleRepository.findAllByOrderByIdAsc(PageRequest.of(0, BATCH_SIZE))).thenReturn(List.copyOf(journal));
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT IGNORE INTO likes"), anyList())).thenReturn(new int[]{1});
+        when(jdbcTemplate.batchUpdate(startsWith("DELETE FROM likes"), anyList())).thenReturn(new int[]{1});
+        when(postRepository.getLikesCount(1L)).thenReturn(1);
+
+        assertEquals(4, likeBufferService.flush());
+
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT IGNORE INTO likes"), inserts.capture());
+        assertEquals(1, inserts.getValue().size());
+        assertArrayEquals(new Object[]{journal.get(2).getCreatedDate(), 1L, 2L}, inserts.getValue().getFirst());
+
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE posts"), counters.capture());
+        assertEquals(2, counters.getValue().size());
+        assertTrue(counters.getValue().stream().anyMatch(args -> args[0].equals(1) && args[1].equals(1L)));
+        assertTrue(counters.getValue().stream().anyMatch(args -> args[0].equals(-1) && args[1].equals(2L)));
+
+        // Both posts are by the same author, whose likes received are unchanged overall
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO user_stats"), eq(List.of()));
+
+        verify(eventPublisher, times(2)).publishEvent(any(PostLikedEvent.class));
+        verify(likeToggleRepository).deleteAllByIdInBatch(List.of(1L, 2L, 3L, 4L));
+
+        // The flushed toggles now come from the database
+        assertEquals(1, likeBufferService.getLikesCount(1L));
+    }
+
+    @Test
+    void getLikesCount_shouldWaitWhileFlushedBatchIsCommitted() throws Exception {
+        when(likeRepository.existsByUserIdAndPostId(2L, 1L)).thenReturn(false);
+        likeBufferService.toggle(1L, 9L, 2L);
+
+        when(likeToggleRepository.findAllByOrderByIdAsc(PageRequest.of(0, BATCH_SIZE))).thenReturn(List.copyOf(journal));
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT IGNORE INTO likes"), anyList())).thenReturn(new int[]{1});
+        when(jdbcTemplate.batchUpdate(startsWith("DELETE FROM likes"), anyList())).thenReturn(new int[0]);
+        // Already the committed count while the buffer still holds the toggle
+        when(postRepository.getLikesCount(1L)).thenReturn(1);
+
+        CompletableFuture<Integer> duringCommit = new CompletableFuture<>();
+        doAnswer(invocation -> {
+            CompletableFuture.supplyAsync(() -> likeBufferService.getLikesCount(1L)).thenAccept(duringCommit::complete);
+            Thread.sleep(50);
+            assertFalse(duringCommit.isDone());
+            return null;
+        }).when(transactionManager).commit(any());
+
+        likeBufferService.flush();
+
+        assertEquals(1, duringCommit.get(5, TimeUnit.SECONDS));
+        assertEquals(1, likeBufferService.getLikesCount(1L));
+    }
+
+    @Test
+    void flush_shouldNotCountTogglesThatChangedNoRow() {
+        when(likeRepository.existsByUserIdAndPostId(2L, 1L)).thenReturn(false);
+        likeBufferService.toggle(1L, 9L, 2L);
+
+        when(likeToggleRepository.findAllByOrderByIdAsc(PageRequest.of(0, BATCH_SIZE))).thenReturn(List.copyOf(journal));
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT IGNORE INTO likes"), anyList())).thenReturn(new int[]{0});
+        when(jdbcTemplate.batchUpdate(startsWith("DELETE FROM likes"), anyList())).thenReturn(new int[0]);
+
+        likeBufferService.flush();
+
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE posts"), eq(List.of()));
+        verifyNoInteractions(eventPublisher);
+        verify(likeToggleRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    void recover_shouldRestoreUnflushedToggles() {
+        LikeToggle unflushed = new LikeToggle(7L, 2L, 1L, 9L, true, null);
+        when(likeToggleRepository.findAllByOrderByIdAsc(Pageable.unpaged())).thenReturn(List.of(unflushed));
+        when(postRepository.getLikesCount(1L)).thenReturn(5);
+
+        likeBufferService.recover();
+
+        assertEquals(6, likeBufferService.getLikesCount(1L));
+        assertFalse(likeBufferService.toggle(1L, 9L, 2L));
+        verify(likeRepository, never()).existsByUserIdAndPostId(anyLong(), anyLong());
+    }
+}
@@ -0,0 +1,316 @@
+package com.facebook.service;
+
+import com.facebook.config.AppConfig;
+import com.facebook.dto.CommentResponseDto;
+import com.facebook.dto.CursorPageResponseDto;
+import com.facebook.dto.PageResponseDto;
+import com.facebook.dto.PostResponseDto;
+import com.facebook.enums.PageCount;
+import com.facebook.model.Comment;
+import com.facebook.model.Like;
+import com.facebook.model.Post;
+import com.facebook.model.PostImage;
+import com.facebook.model.Repost;
+import com.facebook.model.TimelineEntry;
+import com.facebook.model.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static com.facebook.TestUsers.newUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:post_feed_queries;MODE=MYSQL",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.feed.ranked.candidates=8"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppConfig.class, JacksonAutoConfiguration.class, PostService.class, TimelineService.class, CommentService.class})
+class PostFeedQueryCountTest {
+    private static final int POSTS = 12;
+
+    @MockitoBean
+    private FriendService friendService;
+
+    @MockitoBean
+    private FeedCacheService feedCacheService;
+
+    @MockitoBean
+    private ApproximateCountService approximateCountService;
+
+    @MockitoBean
+    private LikeBufferService likeBufferService;
+
+    @MockitoBean
+    private TrendingService trendingService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User reader;
+
+    @BeforeEach
+    void init() {
+        when(feedCacheService.getPage(anyLong(), any(), anyInt(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(3).get());
+
+        reader = entityManager.persist(newUser("reader@test.com", "Reader"));
+        User friend = entityManager.persist(newUser("friend@test.com", "Friend"));
+
+        for (int i = 0; i < POSTS; i++) {
+            Post post = new Post();
+            post.setText("Post " + i);
+            post.setUser(i % 2 == 0 ? reader : friend);
+
+            PostImage image = new PostImage();
+            image.setUrl("https://example.com/" + i + ".jpg");
+            image.setPost(post);
+            post.getImages().add(image);
+
+            entityManager.persist(post);
+            entityManager.persist(new TimelineEntry(0, reader, post, post.getCreatedDate()));
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void getUserAndFriendsPosts_shouldUseSameNumberOfQueriesForAnyPageSize() {
+        long smallPageQueries = countQueries(2);
+        long largePageQueries = countQueries(10);
+
+        // User lookup, high-degree friends, the page itself, its images and the reader's likes and reposts
+        assertEquals(5, smallPageQueries);
+        assertEquals(smallPageQueries, largePageQueries);
+    }
+
+    @Test
+    void getUserAndFriendsPosts_shouldNotHydratePosts() {
+        Statistics statistics = statistics();
+
+        CursorPageResponseDto<PostResponseDto> page =
+                postService.getUserAndFriendsPosts(reader.getId(), reader.getId(), null, 10, 0);
+
+        assertEquals(10, page.getContent().size());
+        assertEquals(1, page.getContent().getFirst().getImages().size());
+        assertEquals("Friend", page.getContent().getFirst().getUser().getFirstName());
+        // Only the reader is loaded as an entity
+        assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getUserAndFriendsPosts_shouldMarkLikesAndRepostsOfReader() {
+        List<Post> posts = entityManager.getEntityManager()
+                .createQuery("SELECT p FROM Post p ORDER BY p.id DESC", Post.class)
+                .setMaxResults(2)
+                .getResultList();
+        entityManager.persist(new Like(reader, posts.get(0)));
+        entityManager.persist(new Repost(reader, posts.get(1)));
+        entityManager.flush();
+
+        when(likeBufferService.isLiked(anyLong(), anyLong(), anyBoolean()))
+                .thenAnswer(invocation -> invocation.getArgument(2));
+
+        CursorPageResponseDto<PostResponseDto> page =
+                postService.getUserAndFriendsPosts(reader.getId(), reader.getId(), null, 3, 0);
+
+        assertEquals(List.of(true, false, false), page.getContent().stream().map(PostResponseDto::isLikedByMe).toList());
+        assertEquals(List.of(false, true, false),
+                page.getContent().stream().map(PostResponseDto::isRepostedByMe).toList());
+    }
+
+    @Test
+    void getUserAndFriendsPosts_withLatestComments_shouldAddOneQuery() {
+        List<Post> posts = entityManager.getEntityManager()
+                .createQuery("SELECT p FROM Post p ORDER BY p.id DESC", Post.class)
+                .setMaxResults(2)
+                .getResultList();
+        for (Post post : posts) {
+            for (int i = 0; i < 3; i++) {
+                Comment comment = new Comment();
+                comment.setText(post.getText() + " comment " + i);
+                comment.setPost(post);
+                comment.setUser(reader);
+                entityManager.persist(comment);
+            }
+        }
+        entityManager.flush();
+
+        long withoutComments = countQueries(4);
+
+        entityManager.clear();
+        Statistics statistics = statistics();
+
+        CursorPageResponseDto<PostResponseDto> page =
+                postService.getUserAndFriendsPosts(reader.getId(), reader.getId(), null, 4, 2);
+
+        assertEquals(withoutComments + 1, statistics.getPrepareStatementCount());
+        assertEquals(List.of("Post 11 comment 2", "Post 11 comment 1"),
+                page.getContent().getFirst().getLatestComments().stream().map(CommentResponseDto::getText).toList());
+        assertEquals(2, page.getContent().get(1).getLatestComments().size());
+        assertEquals("Reader", page.getContent().get(1).getLatestComments().getFirst().getUser().getFirstName());
+        assertEquals(List.of(), page.getContent().get(2).getLatestComments());
+    }
+
+    @Test
+    void getRankedUserAndFriendsPosts_shouldUseOneQueryMoreThanChronologicalFeed() {
+        long chronologicalQueries = countQueries(5);
+
+        entityManager.clear();
+        Statistics statistics = statistics();
+
+        CursorPageResponseDto<PostResponseDto> page =
+                postService.getRankedUserAndFriendsPosts(reader.getId(), reader.getId(), null, 5, 0);
+
+        assertEquals(5, page.getContent().size());
+        assertEquals(1, page.getContent().getFirst().getImages().size());
+        // Candidates are ranked by id and score, then the page's rows are read
+        assertEquals(chronologicalQueries + 1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getRankedUserAndFriendsPosts_shouldServeEveryPostOnceThenContinueChronologically() {
+        CursorPageResponseDto<PostResponseDto> firstPage =
+                postService.getRankedUserAndFriendsPosts(reader.getId(), reader.getId(), null, 5, 0);
+
+        // Scores moving during the session don't bring a served post back
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE posts SET rank_score = 100 WHERE id = :postId")
+                .setParameter("postId", firstPage.getContent().getLast().getId())
+                .executeUpdate();
+
+        CursorPageResponseDto<PostResponseDto> secondPage = postService.getRankedUserAndFriendsPosts(
+                reader.getId(), reader.getId(), firstPage.getNextCursor(), 5, 0);
+        CursorPageResponseDto<PostResponseDto> thirdPage = postService.getRankedUserAndFriendsPosts(
+                reader.getId(), reader.getId(), secondPage.getNextCursor(), 5, 0);
+
+        // Three more ranked posts, then the four posts older than the eight candidates
+        assertEquals(List.of("Post 6", "Post 5", "Post 4"), texts(secondPage));
+        assertEquals(List.of("Post 3", "Post 2", "Post 1", "Post 0"), texts(thirdPage));
+        assertFalse(thirdPage.isHasNext());
+        assertEquals(POSTS, Stream.of(firstPage, secondPage, thirdPage)
+                .flatMap(page -> page.getContent().stream())
+                .map(PostResponseDto::getId)
+                .distinct()
+                .count());
+    }
+
+    @Test
+    void getUserPosts_shouldUseSameNumberOfQueriesForAnyPageSize() {
+        Statistics statistics = statistics();
+
+        PageResponseDto<PostResponseDto> smallPage = postService.getUserPosts(reader.getId(), 0, 2);
+        long smallPageQueries = statistics.getPrepareStatementCount();
+
+        entityManager.clear();
+        statistics.clear();
+
+        PageResponseDto<PostResponseDto> largePage = postService.getUserPosts(reader.getId(), 0, 6);
+        long largePageQueries = statistics.getPrepareStatementCount();
+
+        assertEquals(2, smallPage.getContent().size());
+        assertEquals(6, largePage.getContent().size());
+        assertEquals("Reader", largePage.getContent().getLast().getUser().getFirstName());
+        assertEquals(1, largePage.getContent().getLast().getImages().size());
+        assertEquals(smallPageQueries, largePageQueries);
+    }
+
+    @Test
+    void getUserPosts_withoutCount_shouldSkipCountQuery() {
+        Statistics statistics = statistics();
+        PageResponseDto<PostResponseDto> exactPage = postService.getUserPosts(reader.getId(), 0, 4, PageCount.EXACT);
+        long exactQueries = statistics.getPrepareStatementCount();
+
+        entityManager.clear();
+        statistics.clear();
+
+        PageResponseDto<PostResponseDto> slicePage = postService.getUserPosts(reader.getId(), 0, 4, PageCount.NONE);
+
+        assertEquals(exactPage.getContent(), slicePage.getContent());
+        assertFalse(slicePage.isLast());
+        assertEquals(exactQueries - 1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void exportUserPosts_shouldStreamWholeHistoryNewestFirst() throws IOException {
+        Statistics statistics = statistics();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        postService.exportUserPosts(reader.getId()).writeTo(out);
+
+        List<JsonNode> posts = out.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readTree(line);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+
+        assertEquals(POSTS / 2, posts.size());
+        assertEquals("Post 10", posts.getFirst().get("text").asText());
+        assertEquals("Post 0", posts.getLast().get("text").asText());
+        assertEquals(1, posts.getLast().get("images").size());
+        // User check, the streamed history and one images query per fetched chunk
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    private List<String> texts(CursorPageResponseDto<PostResponseDto> page) {
+        return page.getContent().stream().map(PostResponseDto::getText).toList();
+    }
+
+    private long countQueries(int size) {
+        entityManager.clear();
+        Statistics statistics = statistics();
+
+        CursorPageResponseDto<PostResponseDto> page =
+                postService.getUserAndFriendsPosts(reader.getId(), reader.getId(), null, size, 0);
+
+        assertEquals(size, page.getContent().size());
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        return statistics;
+    }
+}
@@ -1,9 +1,16 @@
 package com.facebook.service;
 
 import com.facebook.dto.*;
+import com.facebook.enums.PageCount;
+import com.facebook.event.PostCreatedEvent;
+import com.facebook.event.PostUpdatedEvent;
 import com.facebook.exception.NotFoundException;
 import com.facebook.model.*;
 import com.facebook.repository.*;
+import com.facebook.repository.projection.PostFeedView;
+import com.facebook.repository.projection.PostImageView;
+import com.facebook.repository.projection.PostInteractionView;
+import com.facebook.util.FeedCursor;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,14 +19,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,16 +46,40 @@ class PostServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private LikeRepository likeRepository;
+    private LikeBufferService likeBufferService;
 
     @Mock
     private RepostRepository repostRepository;
 
     @Mock
-    private UserAchievementService userAchievementService;
+    private FriendService friendService;
 
     @Mock
-    private FriendService friendService;
+    private TimelineService timelineService;
+
+    @Mock
+    private FeedCacheService feedCacheService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ApproximateCountService approximateCountService;
+
+    @Mock
+    private TrendingService trendingService;
+
+    @Mock
+    private GroupRepository groupRepository;
+
+    @Mock
+    private GroupMemberRepository groupMemberRepository;
+
+    @Mock
+    private CommentService commentService;
+
+    @Mock
+    private UserStatsRepository userStatsRepository;
 
     @InjectMocks
     private PostService postService;
@@ -81,6 +117,8 @@ class PostServiceTest {
         assertEquals("John", response.getUser().getFirstName());
 
         verify(postRepository).save(any(Post.class));
+        verify(timelineService).distributePost(any(), eq(mockUserId));
+        verify(eventPublisher).publishEvent(any(PostCreatedEvent.class));
     }
 
     @Test
@@ -119,6 +157,8 @@ class PostServiceTest {
         assertEquals("Doe", response.getUser().getLastName());
 
         verify(postRepository).save(any(Post.class));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof PostUpdatedEvent updated
+                && updated.getPostId() == 1L && updated.getAuthorId().equals(mockUser.getId())));
     }
 
     @Test
@@ -142,6 +182,28 @@ class PostServiceTest {
         postService.deletePost(1L, mockUser.getId());
 
         verify(postRepository).delete(post);
+        verify(userStatsRepository).subtractPostInteractions(1L);
+        verify(userStatsRepository).adjustPostsCount(mockUserId, -1, 0);
+    }
+
+    @Test
+    void deletePost_shouldRemoveRepostAndDecrementCounter_whenNotOwner() {
+        Post post = new Post();
+        post.setId(1L);
+        post.setUser(mockUser);
+
+        Repost repost = new Repost();
+        repost.setPost(post);
+
+        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+        when(repostRepository.findByUserIdAndPostId(2L, 1L)).thenReturn(Optional.of(repost));
+
+        postService.deletePost(1L, 2L);
+
+        verify(repostRepository).delete(repost);
+        verify(postRepository).adjustRepostsCount(1L, -1);
+        verify(userStatsRepository).adjustRepostsCount(2L, -1);
+        verify(postRepository, never()).delete(any(Post.class));
     }
 
     @Test
@@ -153,61 +215,47 @@ class PostServiceTest {
 
     @Test
     void testLikePost_addLike() {
-        Post post = new Post();
-        post.setId(1L);
-        post.setLikes(new ArrayList<>());
-        post.setUser(mockUser);
-
-        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(new User()));
-        when(likeRepository.findByUserIdAndPostId(2L, 1L)).thenReturn(Optional.empty());
-        when(postRepository.save(any(Post.class))).thenReturn(post);
+        when(postRepository.findAuthorId(1L)).thenReturn(Optional.of(mockUserId));
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(likeBufferService.toggle(1L, mockUserId, 2L)).thenReturn(true);
+        when(likeBufferService.getLikesCount(1L)).thenReturn(1);
 
         int likeCount = postService.likePost(1L, 2L);
 
         assertEquals(1, likeCount);
-        verify(postRepository).save(any(Post.class));
+        verify(feedCacheService).invalidate(List.of(2L));
+        verify(userRepository, never()).findById(anyLong());
+        verify(postRepository, never()).adjustLikesCount(anyLong(), anyInt());
+        verify(postRepository, never()).save(any(Post.class));
     }
 
     @Test
     void testLikePost_removeLike() {
-        Post post = new Post();
-        post.setId(1L);
-        post.setUser(mockUser);
-
-        Like like = new Like();
-        like.setUser(mockUser);
-        like.setPost(post);
-
-        post.setLikes(new ArrayList<>(List.of(like)));
+        when(postRepository.findAuthorId(1L)).thenReturn(Optional.of(mockUserId));
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(likeBufferService.toggle(1L, mockUserId, 2L)).thenReturn(false);
+        when(likeBufferService.getLikesCount(1L)).thenReturn(0);
 
-        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
-        when(userRepository.findById(mockUserId)).thenReturn(Optional.of(mockUser));
-        when(likeRepository.findByUserIdAndPostId(mockUserId, 1L)).thenReturn(Optional.of(like));
-        when(postRepository.save(any(Post.class))).thenReturn(post);
-
-        int likeCount = postService.likePost(1L, 1L);
+        int likeCount = postService.likePost(1L, 2L);
 
         assertEquals(0, likeCount);
-        verify(postRepository).save(any(Post.class));
     }
 
     @Test
     void testLikePost_throwNotFoundPost() {
-        when(postRepository.findById(999L)).thenReturn(Optional.empty());
+        when(postRepository.findAuthorId(999L)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> postService.likePost(999L, 1L));
+        verifyNoInteractions(likeBufferService);
     }
 
     @Test
     void testLikePost_throwNotFoundUser() {
-        Post post = new Post();
-        post.setId(1L);
-
-        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
-        when(userRepository.findById(999L)).thenReturn(Optional.empty());
+        when(postRepository.findAuthorId(1L)).thenReturn(Optional.of(mockUserId));
+        when(userRepository.existsById(999L)).thenReturn(false);
 
         assertThrows(NotFoundException.class, () -> postService.likePost(1L, 999L));
+        verifyNoInteractions(likeBufferService, feedCacheService);
     }
 
     @Test
@@ -222,11 +270,14 @@ class PostServiceTest {
         when(postRepository.findById(1L)).thenReturn(Optional.of(originalPost));
         when(userRepository.findById(2L)).thenReturn(Optional.of(repostingUser));
         when(repostRepository.findByUserIdAndPostId(2L, 1L)).thenReturn(Optional.empty());
+        when(postRepository.getRepostsCount(1L)).thenReturn(1);
 
         int repostCount = postService.repost(1L, 2L);
 
         assertEquals(1, repostCount);
-        verify(postRepository).save(any(Post.class));
+        verify(repostRepository).save(any(Repost.class));
+        verify(postRepository).adjustRepostsCount(1L, 1);
+        verify(userStatsRepository).adjustRepostsCount(2L, 1);
     }
 
     @Test
@@ -280,51 +331,33 @@ class PostServiceTest {
     }
 
     @Test
-    void createPost_shouldGiveBuzzStartedAchievement_whenFirstPost() {
+    void createPost_shouldCountPostWithImages_andLeaveAchievementsToEvents() {
         PostCreateRequestDto request = new PostCreateRequestDto();
         request.setText("First post");
         request.setImages(List.of("img1.jpg"));
 
-        Post savedPost = new Post();
-        savedPost.setUser(mockUser);
-        savedPost.setImages(new ArrayList<>(List.of(new PostImage())));
-        savedPost.setCreatedDate(LocalDateTime.now());
-
         when(userRepository.findById(1L)).thenReturn(Optional.of(mockUser));
-        when(postRepository.save(any())).thenReturn(savedPost);
-        when(postRepository.findAllByUserId(1L)).thenReturn(Optional.of(List.of(savedPost)));
-        when(userAchievementService.userHaveAchievement(mockUser, "Buzz Started")).thenReturn(false);
+        when(postRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         postService.createPost(1L, request);
 
-        verify(userAchievementService).awardAchievement(mockUser, "Buzz Started");
+        verify(userStatsRepository).adjustPostsCount(1L, 1, 1);
+        verify(eventPublisher).publishEvent(any(PostCreatedEvent.class));
+        verify(userStatsRepository, never()).findById(anyLong());
+        verify(postRepository, never()).findAllByUserId(anyLong());
     }
 
     @Test
-    void createPost_shouldGiveAestheticDropAchievement_whenFivePostsWithPhotos() {
+    void createPost_shouldCountPostWithoutImages() {
         PostCreateRequestDto request = new PostCreateRequestDto();
-        request.setText("Post 5");
-        request.setImages(List.of("img.jpg"));
-
-        List<Post> existingPosts = new ArrayList<>();
-        for (int i = 0; i < 4; i++) {
-            Post p = new Post();
-            p.setImages(new ArrayList<>(List.of(new PostImage())));
-            existingPosts.add(p);
-        }
-
-        Post newPost = new Post();
-        newPost.setImages(new ArrayList<>(List.of(new PostImage())));
-        existingPosts.add(newPost);
+        request.setText("Post 8");
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(mockUser));
-        when(postRepository.save(any())).thenReturn(newPost);
-        when(postRepository.findAllByUserId(1L)).thenReturn(Optional.of(existingPosts));
-        when(userAchievementService.userHaveAchievement(mockUser, "Aesthetic Drop")).thenReturn(false);
+        when(postRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         postService.createPost(1L, request);
 
-        verify(userAchievementService).awardAchievement(mockUser, "Aesthetic Drop");
+        verify(userStatsRepository).adjustPostsCount(1L, 1, 0);
     }
 
     @Test
@@ -365,36 +398,82 @@ class PostServiceTest {
         assertThrows(NotFoundException.class, () -> postService.getUserPosts(userId));
     }
 
+    @Test
+    void testGetUserPosts_withoutCount() {
+        long userId = 1L;
+        int size = 2;
+
+        PostFeedView post1 = feedView(1L, "Post 1", mockUser, LocalDateTime.now().minusHours(2));
+        PostFeedView post2 = feedView(2L, "Post 2", mockUser, LocalDateTime.now().minusHours(1));
+        PostFeedView post3 = feedView(3L, "Post 3", mockUser, LocalDateTime.now());
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(mockUser));
+        when(postRepository.getCombinedPosts(userId, size + 1, size)).thenReturn(List.of(post3, post2, post1));
+        when(postRepository.findImagesByPostIds(List.of(3L, 2L))).thenReturn(List.of());
+
+        PageResponseDto<PostResponseDto> response = postService.getUserPosts(userId, 1, size, PageCount.NONE);
+
+        assertEquals(List.of("Post 3", "Post 2"), response.getContent().stream().map(PostResponseDto::getText).toList());
+        assertFalse(response.isLast());
+        assertEquals(PageResponseDto.UNCOUNTED, response.getTotalElements());
+        verify(postRepository, never()).countCombinedPosts(anyLong());
+        verifyNoInteractions(approximateCountService);
+    }
+
+    @Test
+    void testGetUserPosts_approximateCount() {
+        long userId = 1L;
+        int size = 2;
+
+        PostFeedView post1 = feedView(1L, "Post 1", mockUser, LocalDateTime.now());
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(mockUser));
+        when(postRepository.getCombinedPosts(userId, size + 1, 0)).thenReturn(List.of(post1));
+        when(approximateCountService.getCount(eq("posts:" + userId), any())).thenReturn(5L);
+
+        PageResponseDto<PostResponseDto> response = postService.getUserPosts(userId, 0, size, PageCount.APPROXIMATE);
+
+        assertTrue(response.isLast());
+        assertTrue(response.isApproximate());
+        assertEquals(5, response.getTotalElements());
+        assertEquals(3, response.getTotalPages());
+        verify(postRepository, never()).countCombinedPosts(anyLong());
+    }
+
+    @Test
+    void testExportUserPosts_NotFoundUser() {
+        long userId = 999L;
+
+        when(userRepository.existsById(userId)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> postService.exportUserPosts(userId));
+        verify(postRepository, never()).streamCombinedPosts(anyLong());
+    }
+
     @Test
     void testGetUserPosts_pagination() {
         long userId = 1L;
-        List<Post> posts = new ArrayList<>();
         int page = 0;
         int size = 2;
 
-        Post post1 = new Post();
-        post1.setId(1L);
-        post1.setText("Post 1");
-        post1.setUser(mockUser);
-        post1.setCreatedDate(LocalDateTime.now().minusHours(2));
-        posts.add(post1);
+        PostFeedView post1 = feedView(1L, "Post 1", mockUser, LocalDateTime.now().minusHours(2));
+        PostFeedView post2 = feedView(2L, "Post 2", mockUser, LocalDateTime.now());
 
-        Post post2 = new Post();
-        post2.setId(2L);
-        post2.setText("Post 2");
-        post2.setUser(mockUser);
-        post2.setCreatedDate(LocalDateTime.now());
-        posts.addFirst(post2);
+        PostImageView image = imageView(1L, "img1.jpg");
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(mockUser));
-        when(postRepository.getCombinedPosts(userId, size, size * page)).thenReturn(posts);
-        when(postRepository.countCombinedPosts(userId)).thenReturn((long) posts.size());
+        when(postRepository.getCombinedPosts(userId, size, size * page)).thenReturn(List.of(post2, post1));
+        when(postRepository.countCombinedPosts(userId)).thenReturn(2L);
+        when(postRepository.findImagesByPostIds(List.of(2L, 1L))).thenReturn(List.of(image));
 
         PageResponseDto<PostResponseDto> response = postService.getUserPosts(userId, page, size);
 
         assertEquals(2, response.getSize());
         assertEquals("Post 2", response.getContent().get(0).getText());
         assertEquals("Post 1", response.getContent().get(1).getText());
+        assertEquals(List.of(), response.getContent().get(0).getImages());
+        assertEquals(List.of("img1.jpg"), response.getContent().get(1).getImages());
+        assertEquals("John", response.getContent().get(1).getUser().getFirstName());
     }
 
     @Test
@@ -440,39 +519,301 @@ class PostServiceTest {
 
 
     @Test
-    void testGetUserAndFriendsPosts_pagination() {
-        int page = 0;
+    void testGetUserAndFriendsPosts_readsTimeline() {
+        passThroughFeedCache();
         int size = 2;
 
-        Post post1 = new Post();
-        post1.setId(1L);
-        post1.setText("User Post");
-        post1.setUser(mockUser);
-        post1.setCreatedDate(LocalDateTime.now().minusHours(3));
-
         User friend = new User();
         friend.setId(2L);
 
-        UserShortDto friendShort = new UserShortDto();
-        friendShort.setId(friend.getId());
-
-        Post post2 = new Post();
-        post2.setId(2L);
-        post2.setText("Friend Post");
-        post2.setUser(friend);
-        post2.setCreatedDate(LocalDateTime.now());
+        PostFeedView post1 = feedView(1L, "User Post", mockUser, LocalDateTime.now().minusHours(3));
+        PostFeedView post2 = feedView(2L, "Friend Post", friend, LocalDateTime.now(), 3, 2);
 
         when(userRepository.findById(mockUserId)).thenReturn(Optional.of(mockUser));
-        when(friendService.getAllFriendUsers(mockUserId)).thenReturn(List.of(friendShort));
-        when(postRepository.getUserAndFriendsPosts(mockUserId, List.of(friend.getId()), size, size * page))
-                .thenReturn(List.of(post2, post1));
-        when(postRepository.countUserAndFriendsPosts(mockUserId, List.of(friend.getId())))
-                .thenReturn(2L);
+        when(timelineService.getFeedPage(mockUserId, FeedCursor.FIRST_PAGE, size + 1)).thenReturn(List.of(post2, post1));
 
-        PageResponseDto<PostResponseDto> response = postService.getUserAndFriendsPosts(mockUserId, page, size);
+        CursorPageResponseDto<PostResponseDto> response = postService.getUserAndFriendsPosts(mockUserId, mockUserId, null, size, 0);
 
         assertEquals(2, response.getSize());
         assertEquals("Friend Post", response.getContent().get(0).getText());
+        assertEquals(3, response.getContent().get(0).getLikesCount());
+        assertEquals(2, response.getContent().get(0).getCommentsCount());
         assertEquals("User Post", response.getContent().get(1).getText());
+        assertFalse(response.isHasNext());
+        assertNull(response.getNextCursor());
+        verify(postRepository).findImagesByPostIds(List.of(2L, 1L));
+    }
+
+    @Test
+    void testGetUserAndFriendsPosts_nextCursorSeeksAfterLastPost() {
+        passThroughFeedCache();
+        int size = 1;
+        LocalDateTime newest = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+        PostFeedView post1 = feedView(7L, "Newest", mockUser, newest);
+        PostFeedView post2 = feedView(3L, "Older", mockUser, newest.minusMinutes(5));
+
+        when(userRepository.findById(mockUserId)).thenReturn(Optional.of(mockUser));
+        when(timelineService.getFeedPage(mockUserId, FeedCursor.FIRST_PAGE, size + 1)).thenReturn(List.of(post1, post2));
+        when(timelineService.getFeedPage(
+                eq(mockUserId),
+                argThat(position -> position.getCreatedDate().equals(newest) && position.getId() == 7L),
+                eq(size + 1)
+        )).thenReturn(List.of(post2));
+
+        CursorPageResponseDto<PostResponseDto> firstPage = postService.getUserAndFriendsPosts(mockUserId, mockUserId, null, size, 0);
+
+        assertTrue(firstPage.isHasNext());
+        assertEquals(1, firstPage.getContent().size());
+        assertEquals("Newest", firstPage.getContent().get(0).getText());
+
+        CursorPageResponseDto<PostResponseDto> secondPage =
+                postService.getUserAndFriendsPosts(mockUserId, mockUserId, firstPage.getNextCursor(), size, 0);
+
+        assertFalse(secondPage.isHasNext());
+        assertEquals("Older", secondPage.getContent().get(0).getText());
+    }
+
+    @Test
+    void testGetUserAndFriendsPosts_servedFromCache() {
+        CursorPageResponseDto<PostResponseDto> cachedPage = new CursorPageResponseDto<>(List.of(), 10, null, false, null);
+
+        when(feedCacheService.getPage(eq(mockUserId), isNull(), eq(10), any())).thenReturn(cachedPage);
+
+        CursorPageResponseDto<PostResponseDto> response = postService.getUserAndFriendsPosts(mockUserId, mockUserId, null, 10, 0);
+
+        assertEquals(cachedPage, response);
+        verifyNoInteractions(timelineService);
+    }
+
+    @Test
+    void testGetUserAndFriendsPosts_marksPostsOfViewer() {
+        PostResponseDto liked = new PostResponseDto();
+        liked.setId(1L);
+        PostResponseDto reposted = new PostResponseDto();
+        reposted.setId(2L);
+        PostResponseDto likedInBuffer = new PostResponseDto();
+        likedInBuffer.setId(3L);
+        CursorPageResponseDto<PostResponseDto> cachedPage =
+                new CursorPageResponseDto<>(List.of(liked, reposted, likedInBuffer), 10, null, false, null);
+
+        when(feedCacheService.getPage(eq(mockUserId), isNull(), eq(10), any())).thenReturn(cachedPage);
+        when(postRepository.findInteractions(2L, List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(interaction(1L, "like"), interaction(2L, "repost")));
+        when(likeBufferService.isLiked(eq(2L), anyLong(), anyBoolean()))
+                .thenAnswer(invocation -> invocation.getArgument(1).equals(3L) || invocation.<Boolean>getArgument(2));
+
+        CursorPageResponseDto<PostResponseDto> response = postService.getUserAndFriendsPosts(mockUserId, 2L, null, 10, 0);
+
+        assertEquals(List.of(true, false, true), response.getContent().stream().map(PostResponseDto::isLikedByMe).toList());
+        assertEquals(List.of(false, true, false),
+                response.getContent().stream().map(PostResponseDto::isRepostedByMe).toList());
+        // Cached posts are shared with other viewers
+        assertFalse(liked.isLikedByMe());
+    }
+
+    @Test
+    void testGetUserAndFriendsPosts_addsLatestCommentsOfPage() {
+        PostResponseDto commented = new PostResponseDto();
+        commented.setId(1L);
+        PostResponseDto quiet = new PostResponseDto();
+        quiet.setId(2L);
+        CursorPageResponseDto<PostResponseDto> cachedPage =
+                new CursorPageResponseDto<>(List.of(commented, quiet), 10, null, false, null);
+        CommentResponseDto comment = new CommentResponseDto(7L, null, "First!", LocalDateTime.now());
+
+        when(feedCacheService.getPage(eq(mockUserId), isNull(), eq(10), any())).thenReturn(cachedPage);
+        when(commentService.getLatestComments(List.of(1L, 2L), 3)).thenReturn(Map.of(1L, List.of(comment)));
+
+        CursorPageResponseDto<PostResponseDto> response = postService.getUserAndFriendsPosts(mockUserId, mockUserId, null, 10, 3);
+
+        assertEquals(List.of(comment), response.getContent().getFirst().getLatestComments());
+        assertEquals(List.of(), response.getContent().get(1).getLatestComments());
+        // Cached posts are shared with requests without previews
+        assertTrue(commented.getLatestComments().isEmpty());
+    }
+
+    @Test
+    void testGetUserAndFriendsPosts_tooManyLatestComments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> postService.getUserAndFriendsPosts(mockUserId, mockUserId, null, 10, 11));
+        verifyNoInteractions(feedCacheService, commentService);
+    }
+
+    @Test
+    void testGetUserAndFriendsPostsSince_returnsNewPostsAndCountersOfKnownOnes() {
+        passThroughFeedCache();
+        int size = 3;
+        LocalDateTime head = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+        PostFeedView newPost = feedView(9L, "New", mockUser, head.plusMinutes(1));
+        PostFeedView headPost = feedView(5L, "Head", mockUser, head, 4, 1);
+        PostFeedView olderPost = feedView(2L, "Older", mockUser, head.minusMinutes(1));
+
+        when(userRepository.findById(mockUserId)).thenReturn(Optional.of(mockUser));
+        when(timelineService.getFeedPage(mockUserId, FeedCursor.FIRST_PAGE, size + 1))
+                .thenReturn(List.of(newPost, headPost, olderPost));
+
+        FeedDeltaResponseDto delta = postService.getUserAndFriendsPostsSince(
+                mockUserId, mockUserId, FeedCursor.encode(head, 5L), size, 0);
+
+        assertEquals(1, delta.getNewPosts().size());
+        assertEquals("New", delta.getNewPosts().getFirst().getText());
+        assertEquals(List.of(5L, 2L), delta.getCounters().stream().map(PostCountersDto::getId).toList());
+        assertEquals(4, delta.getCounters().getFirst().getLikesCount());
+        assertEquals(FeedCursor.encode(head.plusMinutes(1), 9L), delta.getHeadCursor());
+        assertFalse(delta.isTruncated());
+    }
+
+    @Test
+    void testGetUserAndFriendsPostsSince_truncatedWhenWholePageIsNew() {
+        passThroughFeedCache();
+        int size = 1;
+        LocalDateTime head = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+        PostFeedView newest = feedView(9L, "Newest", mockUser, head.plusMinutes(2));
+        PostFeedView newer = feedView(8L, "Newer", mockUser, head.plusMinutes(1));
+
+        when(userRepository.findById(mockUserId)).thenReturn(Optional.of(mockUser));
+        when(timelineService.getFeedPage(mockUserId, FeedCursor.FIRST_PAGE, size + 1))
+                .thenReturn(List.of(newest, newer));
+
+        FeedDeltaResponseDto delta = postService.getUserAndFriendsPostsSince(
+                mockUserId, mockUserId, FeedCursor.encode(head, 5L), size, 0);
+
+        assertEquals(1, delta.getNewPosts().size());
+        assertTrue(delta.getCounters().isEmpty());
+        assertTrue(delta.isTruncated());
+    }
+
+    @Test
+    void testGetUserAndFriendsPosts_invalidCursor() {
+        passThroughFeedCache();
+        when(userRepository.findById(mockUserId)).thenReturn(Optional.of(mockUser));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> postService.getUserAndFriendsPosts(mockUserId, mockUserId, "not-a-cursor", 10, 0));
+    }
+
+    @Test
+    void testGetRankedUserAndFriendsPosts_pagesThroughSnapshotThenChronologically() {
+        passThroughFeedCache();
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        FeedCursor tail = new FeedCursor(now.minusHours(3), 1L);
+        TimelineService.RankedFeed feed = new TimelineService.RankedFeed(now, 9L, new long[]{4L, 9L, 2L}, tail);
+
+        when(userRepository.findById(mockUserId)).thenReturn(Optional.of(mockUser));
+        when(timelineService.getRankedFeed(eq(mockUserId), any())).thenReturn(feed);
+        when(postRepository.findFeedViewsByIds(List.of(4L, 9L))).thenReturn(List.of(
+                feedView(9L, "Tied newer", mockUser, now),
+                feedView(4L, "Best", mockUser, now.minusHours(2))
+        ));
+        when(postRepository.findFeedViewsByIds(List.of(2L)))
+                .thenReturn(List.of(feedView(2L, "Tied older", mockUser, now.minusHours(1))));
+
+        CursorPageResponseDto<PostResponseDto> firstPage =
+                postService.getRankedUserAndFriendsPosts(mockUserId, mockUserId, null, 2, 0);
+
+        assertEquals(List.of("Best", "Tied newer"), firstPage.getContent().stream().map(PostResponseDto::getText).toList());
+        assertTrue(firstPage.isHasNext());
+        assertNull(firstPage.getHeadCursor());
+        verify(feedCacheService).getPage(eq(mockUserId), eq("ranked:"), eq(2), any());
+
+        CursorPageResponseDto<PostResponseDto> secondPage =
+                postService.getRankedUserAndFriendsPosts(mockUserId, mockUserId, firstPage.getNextCursor(), 2, 0);
+
+        assertEquals(List.of("Tied older"), secondPage.getContent().stream().map(PostResponseDto::getText).toList());
+        // The session keeps the snapshot it started with
+        verify(timelineService).getRankedFeed(eq(mockUserId), argThat(position ->
+                position.getHeadId() == 9L && now.equals(position.getHeadDate()) && position.getOffset() == 2));
+        // The last ranked page hands over to the chronological feed below the snapshot
+        assertTrue(secondPage.isHasNext());
+        assertEquals(FeedCursor.encode(tail.getCreatedDate(), tail.getId()), secondPage.getNextCursor());
+    }
+
+    @Test
+    void testGetRankedUserAndFriendsPosts_continuesChronologicallyPastSnapshot() {
+        passThroughFeedCache();
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        String cursor = FeedCursor.encode(now, 5L);
+        FeedCursor position = FeedCursor.decode(cursor);
+        PostFeedView older = feedView(3L, "Older", mockUser, now.minusHours(1));
+
+        when(userRepository.findById(mockUserId)).thenReturn(Optional.of(mockUser));
+        when(timelineService.getFeedPage(eq(mockUserId), argThat(c -> c.getId() == position.getId()), eq(3)))
+                .thenReturn(List.of(older));
+
+        CursorPageResponseDto<PostResponseDto> page =
+                postService.getRankedUserAndFriendsPosts(mockUserId, mockUserId, cursor, 2, 0);
+
+        assertEquals(List.of("Older"), page.getContent().stream().map(PostResponseDto::getText).toList());
+        assertFalse(page.isHasNext());
+        assertNull(page.getHeadCursor());
+        verify(timelineService, never()).getRankedFeed(anyLong(), any());
+    }
+
+    @Test
+    void testGetTrendingPosts_keepsBoardOrderAndSkipsDeletedPosts() {
+        when(trendingService.getTopPostIds(null, 3)).thenReturn(List.of(7L, 3L, 5L));
+        when(postRepository.findFeedViewsByIds(List.of(7L, 3L, 5L))).thenReturn(List.of(
+                feedView(3L, "Second", mockUser, LocalDateTime.now()),
+                feedView(7L, "First", mockUser, LocalDateTime.now())
+        ));
+
+        List<PostResponseDto> posts = postService.getTrendingPosts(mockUserId, null, 3);
+
+        assertEquals(List.of("First", "Second"), posts.stream().map(PostResponseDto::getText).toList());
+    }
+
+    @Test
+    void testGetTrendingPosts_privateGroupOfOthers() {
+        Group group = new Group();
+        group.setId(4L);
+        group.setPrivate(true);
+
+        when(groupRepository.findById(4L)).thenReturn(Optional.of(group));
+        when(groupMemberRepository.findByGroupIdAndUserId(4L, mockUserId)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> postService.getTrendingPosts(mockUserId, 4L, 10));
+        verifyNoInteractions(trendingService);
+    }
+
+    @Test
+    void testGetTrendingPosts_invalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> postService.getTrendingPosts(mockUserId, null, 51));
+    }
+
+    private PostInteractionView interaction(Long postId, String interaction) {
+        return new SpelAwareProxyProjectionFactory()
+                .createProjection(PostInteractionView.class, Map.of("postId", postId, "interaction", interaction));
+    }
+
+    private PostFeedView feedView(Long id, String text, User author, LocalDateTime createdDate) {
+        return feedView(id, text, author, createdDate, 0, 0);
+    }
+
+    private PostFeedView feedView(Long id, String text, User author, LocalDateTime createdDate,
+                                  int likesCount, int commentsCount) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("text", text);
+        row.put("createdDate", createdDate);
+        row.put("likesCount", likesCount);
+        row.put("commentsCount", commentsCount);
+        row.put("repostsCount", 0);
+        row.put("userId", author.getId());
+        row.put("firstName", author.getFirstName());
+
+        return new SpelAwareProxyProjectionFactory().createProjection(PostFeedView.class, row);
+    }
+
+    private PostImageView imageView(Long postId, String url) {
+        return new SpelAwareProxyProjectionFactory()
+                .createProjection(PostImageView.class, Map.of("postId", postId, "url", url));
+    }
+
+    private void passThroughFeedCache() {
+        when(feedCacheService.getPage(anyLong(), any(), anyInt(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(3).get());
     }
 }
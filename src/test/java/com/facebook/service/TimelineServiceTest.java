@@ -0,0 +1,255 @@
+package com.facebook.service;
+
+import com.facebook.repository.FriendRepository;
+import com.facebook.repository.PostRepository;
+import com.facebook.repository.TimelineRepository;
+import com.facebook.repository.UserRepository;
+import com.facebook.repository.projection.PostFeedView;
+import com.facebook.repository.projection.RankedPostView;
+import com.facebook.util.FeedCursor;
+import com.facebook.util.RankCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TimelineServiceTest {
+    private static final int THRESHOLD = 100;
+    private static final int CANDIDATES = 50;
+
+    @Mock
+    private TimelineRepository timelineRepository;
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private FriendRepository friendRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private TimelineService timelineService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(timelineService, "highDegreeThreshold", THRESHOLD);
+        ReflectionTestUtils.setField(timelineService, "rankedCandidates", CANDIDATES);
+        ReflectionTestUtils.setField(timelineService, "affinityWeight", 1.0);
+    }
+
+    @Test
+    void distributePost_shouldFanOutRegularAuthor() {
+        when(userRepository.getFriendsCount(1L)).thenReturn(10);
+
+        timelineService.distributePost(5L, 1L);
+
+        verify(timelineRepository).fanOutPost(5L);
+        verify(timelineRepository, never()).addToAuthorTimeline(anyLong());
+    }
+
+    @Test
+    void distributePost_shouldOnlyStoreHighDegreeAuthorPostOnce() {
+        when(userRepository.getFriendsCount(1L)).thenReturn(THRESHOLD);
+
+        timelineService.distributePost(5L, 1L);
+
+        verify(timelineRepository).addToAuthorTimeline(5L);
+        verify(timelineRepository, never()).fanOutPost(anyLong());
+    }
+
+    @Test
+    void linkFriends_shouldCopyPostsInBothDirections() {
+        when(userRepository.getFriendsCount(anyLong())).thenReturn(1);
+
+        timelineService.linkFriends(1L, 2L);
+
+        verify(timelineRepository).addAuthorPosts(1L, 2L);
+        verify(timelineRepository).addAuthorPosts(2L, 1L);
+    }
+
+    @Test
+    void linkFriends_shouldNotCopyHighDegreeAuthorPosts() {
+        when(userRepository.getFriendsCount(1L)).thenReturn(1);
+        when(userRepository.getFriendsCount(2L)).thenReturn(THRESHOLD + 1);
+
+        timelineService.linkFriends(1L, 2L);
+
+        verify(timelineRepository, never()).addAuthorPosts(1L, 2L);
+        verify(timelineRepository).addAuthorPosts(2L, 1L);
+    }
+
+    @Test
+    void unlinkFriends_shouldRemovePostsInBothDirections() {
+        when(userRepository.getFriendsCount(anyLong())).thenReturn(1);
+
+        timelineService.unlinkFriends(1L, 2L);
+
+        verify(timelineRepository).removeAuthorPosts(1L, 2L);
+        verify(timelineRepository).removeAuthorPosts(2L, 1L);
+        verify(timelineRepository, never()).pushAuthorPostsToFriends(anyLong());
+    }
+
+    @Test
+    void unlinkFriends_shouldPushPostsOfAuthorDroppingBelowThreshold() {
+        when(userRepository.getFriendsCount(1L)).thenReturn(THRESHOLD - 1);
+        when(userRepository.getFriendsCount(2L)).thenReturn(1);
+
+        timelineService.unlinkFriends(1L, 2L);
+
+        verify(timelineRepository).pushAuthorPostsToFriends(1L);
+        verify(timelineRepository, never()).pushAuthorPostsToFriends(2L);
+    }
+
+    @Test
+    void rebuildTimeline_shouldClearThenFill() {
+        when(timelineRepository.fillTimeline(1L, THRESHOLD)).thenReturn(3);
+
+        int entries = timelineService.rebuildTimeline(1L);
+
+        assertEquals(3, entries);
+
+        InOrder inOrder = inOrder(timelineRepository);
+        inOrder.verify(timelineRepository).deleteAllByOwner(1L);
+        inOrder.verify(timelineRepository).fillTimeline(1L, THRESHOLD);
+    }
+
+    @Test
+    void getFeedPage_shouldMergePulledAuthorsIntoTimeline() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        FeedCursor position = FeedCursor.FIRST_PAGE;
+
+        PostFeedView pushed = post(1L, now.minusMinutes(1));
+        PostFeedView pulledNewest = post(2L, now);
+        PostFeedView pulledOldest = post(3L, now.minusMinutes(5));
+
+        when(postRepository.getTimelinePostsBefore(1L, position.getCreatedDate(), position.getId(), PageRequest.of(0, 2)))
+                .thenReturn(List.of(pushed, pulledOldest));
+        when(friendRepository.findHighDegreeFriendIds(1L, THRESHOLD)).thenReturn(List.of(9L));
+        when(postRepository.getAuthorsPostsBefore(List.of(9L), position.getCreatedDate(), position.getId(), PageRequest.of(0, 2)))
+                .thenReturn(List.of(pulledNewest, pulledOldest));
+
+        List<PostFeedView> page = timelineService.getFeedPage(1L, position, 2);
+
+        assertEquals(List.of(pulledNewest, pushed), page);
+    }
+
+    @Test
+    void getFeedPage_shouldDropDuplicatesAcrossSources() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        FeedCursor position = FeedCursor.FIRST_PAGE;
+
+        PostFeedView shared = post(4L, now);
+        PostFeedView older = post(1L, now.minusHours(1));
+
+        when(postRepository.getTimelinePostsBefore(1L, position.getCreatedDate(), position.getId(), PageRequest.of(0, 10)))
+                .thenReturn(List.of(shared, older));
+        when(friendRepository.findHighDegreeFriendIds(1L, THRESHOLD)).thenReturn(List.of(9L));
+        when(postRepository.getAuthorsPostsBefore(List.of(9L), position.getCreatedDate(), position.getId(), PageRequest.of(0, 10)))
+                .thenReturn(List.of(shared));
+
+        List<PostFeedView> page = timelineService.getFeedPage(1L, position, 10);
+
+        assertEquals(List.of(shared, older), page);
+    }
+
+    @Test
+    void getFeedPage_shouldSkipPullQueryWithoutHighDegreeFriends() {
+        FeedCursor position = FeedCursor.FIRST_PAGE;
+        PostFeedView pushed = post(1L, LocalDateTime.of(2024, 5, 1, 12, 0));
+
+        when(postRepository.getTimelinePostsBefore(1L, position.getCreatedDate(), position.getId(), PageRequest.of(0, 10)))
+                .thenReturn(List.of(pushed));
+        when(friendRepository.findHighDegreeFriendIds(1L, THRESHOLD)).thenReturn(List.of());
+
+        assertEquals(List.of(pushed), timelineService.getFeedPage(1L, position, 10));
+        verify(postRepository, never()).getAuthorsPostsBefore(anyList(), any(), anyLong(), any());
+    }
+
+    @Test
+    void getRankedFeed_shouldRankNewestPostsOfTimelineAndPulledAuthorsTogether() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        FeedCursor newest = FeedCursor.FIRST_PAGE;
+        RankedPostView pushed = rankedPost(1L, now.minusHours(2), 10.0);
+        RankedPostView pulledBest = rankedPost(2L, now.minusHours(1), 12.5);
+        RankedPostView shared = rankedPost(3L, now, 11.0);
+
+        when(postRepository.getRankedTimelineCandidates(
+                1L, newest.getCreatedDate(), newest.getId(), 1.0, CANDIDATES + 1)).thenReturn(List.of(shared, pushed));
+        when(friendRepository.findHighDegreeFriendIds(1L, THRESHOLD)).thenReturn(List.of(9L));
+        when(postRepository.getRankedAuthorCandidates(
+                1L, List.of(9L), newest.getCreatedDate(), newest.getId(), 1.0, CANDIDATES + 1))
+                .thenReturn(List.of(shared, pulledBest));
+
+        TimelineService.RankedFeed feed = timelineService.getRankedFeed(1L, RankCursor.FIRST_PAGE);
+
+        assertArrayEquals(new long[]{2L, 3L, 1L}, feed.postIds());
+        assertEquals(now, feed.headDate());
+        assertEquals(3L, feed.headId());
+        assertNull(feed.tail());
+    }
+
+    @Test
+    void getRankedFeed_shouldKeepRankingOfSessionAndEndAtOldestCandidate() {
+        ReflectionTestUtils.setField(timelineService, "rankedCandidates", 2);
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        FeedCursor newest = FeedCursor.FIRST_PAGE;
+        RankedPostView newer = rankedPost(2L, now, 10.0);
+        RankedPostView older = rankedPost(1L, now.minusHours(1), 20.0);
+        RankedPostView oldest = rankedPost(5L, now.minusHours(2), 30.0);
+
+        when(postRepository.getRankedTimelineCandidates(1L, newest.getCreatedDate(), newest.getId(), 1.0, 3))
+                .thenReturn(List.of(newer, older, oldest));
+        when(friendRepository.findHighDegreeFriendIds(1L, THRESHOLD)).thenReturn(List.of());
+
+        TimelineService.RankedFeed feed = timelineService.getRankedFeed(1L, RankCursor.FIRST_PAGE);
+        TimelineService.RankedFeed nextPage = timelineService.getRankedFeed(1L, new RankCursor(now, 2L, 2));
+
+        // The oldest candidate is left to the chronological feed below the snapshot
+        assertArrayEquals(new long[]{1L, 2L}, feed.postIds());
+        assertEquals(now.minusHours(1), feed.tail().getCreatedDate());
+        assertEquals(1L, feed.tail().getId());
+        assertSame(feed, nextPage);
+        verify(postRepository, times(1)).getRankedTimelineCandidates(anyLong(), any(), anyLong(), anyDouble(), anyInt());
+        verify(postRepository, never())
+                .getRankedAuthorCandidates(anyLong(), anyList(), any(), anyLong(), anyDouble(), anyInt());
+    }
+
+    @Test
+    void getRankedFeed_shouldRankEvictedSessionAgainUpToItsHead() {
+        LocalDateTime head = LocalDateTime.of(2024, 5, 1, 12, 0);
+        RankedPostView post = rankedPost(4L, head.minusHours(1), 1.0);
+
+        when(postRepository.getRankedTimelineCandidates(1L, head, 7L, 1.0, CANDIDATES + 1)).thenReturn(List.of(post));
+        when(friendRepository.findHighDegreeFriendIds(1L, THRESHOLD)).thenReturn(List.of());
+
+        TimelineService.RankedFeed feed = timelineService.getRankedFeed(1L, new RankCursor(head, 7L, 20));
+
+        assertArrayEquals(new long[]{4L}, feed.postIds());
+    }
+
+    private PostFeedView post(Long id, LocalDateTime createdDate) {
+        return new SpelAwareProxyProjectionFactory()
+                .createProjection(PostFeedView.class, Map.of("id", id, "createdDate", createdDate));
+    }
+
+    private RankedPostView rankedPost(Long id, LocalDateTime createdDate, double score) {
+        return new SpelAwareProxyProjectionFactory().createProjection(
+                RankedPostView.class, Map.of("id", id, "createdDate", createdDate, "score", score));
+    }
+}
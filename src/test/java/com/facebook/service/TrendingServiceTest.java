@@ -0,0 +1,211 @@
+package com.facebook.service;
+
+import com.facebook.event.PostCommentedEvent;
+import com.facebook.event.PostDeletedEvent;
+import com.facebook.event.PostLikedEvent;
+import com.facebook.event.PostRepostedEvent;
+import com.facebook.repository.PostRepository;
+import com.facebook.repository.projection.PostGroupView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingServiceTest {
+    private static final Duration HALF_LIFE = Duration.ofHours(6);
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> rows;
+
+    private TrendingService trendingService;
+
+    private long now = Duration.ofDays(1000).toMillis();
+
+    @BeforeEach
+    void init() {
+        trendingService = new TrendingService(postRepository, jdbcTemplate, transactionManager,
+                HALF_LIFE, Duration.ofMinutes(1), 100);
+        ReflectionTestUtils.setField(trendingService, "clock", (LongSupplier) () -> now);
+        trendingService.restore();
+    }
+
+    @Test
+    void interactions_shouldRankByWeight() {
+        inGroup(1L, null, false);
+        inGroup(2L, null, false);
+        inGroup(3L, null, false);
+
+        like(1L);
+        trendingService.onPostCommented(new PostCommentedEvent(2L, 9L, 5L, true));
+        trendingService.onPostReposted(new PostRepostedEvent(3L, 9L, 5L, true));
+
+        assertEquals(List.of(3L, 2L, 1L), trendingService.getTopPostIds(null, 10));
+        assertEquals(List.of(3L), trendingService.getTopPostIds(null, 1));
+    }
+
+    @Test
+    void interactions_shouldDecayWithTime() {
+        inGroup(1L, null, false);
+        inGroup(2L, null, false);
+
+        like(1L);
+        like(1L);
+        like(1L);
+
+        // Two half-lives later a single like is worth four old ones
+        now += HALF_LIFE.multipliedBy(2).toMillis();
+        like(2L);
+
+        assertEquals(List.of(2L, 1L), trendingService.getTopPostIds(null, 10));
+
+        // The order holds once the scores are brought to the current time
+        trendingService.checkpoint();
+        assertEquals(List.of(2L, 1L), trendingService.getTopPostIds(null, 10));
+    }
+
+    @Test
+    void undoneInteractions_shouldLeaveBoard() {
+        inGroup(1L, null, false);
+
+        like(1L);
+        trendingService.onPostLiked(new PostLikedEvent(1L, 9L, 5L, false));
+
+        assertTrue(trendingService.getTopPostIds(null, 10).isEmpty());
+    }
+
+    @Test
+    void groupPosts_shouldRankOnGroupBoard_andPrivateOnesOnlyThere() {
+        inGroup(1L, 7L, false);
+        inGroup(2L, 7L, true);
+        inGroup(3L, 8L, true);
+
+        like(1L);
+        like(2L);
+        like(2L);
+        like(3L);
+
+        assertEquals(List.of(1L), trendingService.getTopPostIds(null, 10));
+        assertEquals(List.of(2L, 1L), trendingService.getTopPostIds(7L, 10));
+        assertEquals(List.of(3L), trendingService.getTopPostIds(8L, 10));
+        assertTrue(trendingService.getTopPostIds(9L, 10).isEmpty());
+
+        // The group of a post is looked up once
+        like(1L);
+        verify(postRepository, times(1)).findGroup(1L);
+    }
+
+    @Test
+    void deletedPosts_shouldLeaveEveryBoard() {
+        inGroup(1L, 7L, false);
+        when(postRepository.findGroup(2L)).thenReturn(Optional.empty());
+
+        like(1L);
+        like(2L);
+        trendingService.onPostDeleted(new PostDeletedEvent(1L, 9L));
+
+        assertTrue(trendingService.getTopPostIds(null, 10).isEmpty());
+        assertTrue(trendingService.getTopPostIds(7L, 10).isEmpty());
+    }
+
+    @Test
+    void checkpoint_shouldSaveDecayedScores() {
+        inGroup(1L, 7L, false);
+        inGroup(2L, null, false);
+
+        like(1L);
+        like(2L);
+        like(2L);
+
+        now += HALF_LIFE.toMillis();
+        assertEquals(3, trendingService.checkpoint());
+
+        verify(jdbcTemplate).update("DELETE FROM trending_scores");
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO trending_scores"), rows.capture());
+
+        Map<String, Double> scores = new HashMap<>();
+        rows.getValue().forEach(row -> scores.put(row[0] + ":" + row[1], (Double) row[2]));
+        assertEquals(0.5, scores.get("null:1"), 1e-9);
+        assertEquals(1.0, scores.get("null:2"), 1e-9);
+        assertEquals(0.5, scores.get("7:1"), 1e-9);
+        assertEquals(new Timestamp(now), rows.getValue().getFirst()[3]);
+    }
+
+    @Test
+    void checkpoint_shouldDropFadedPosts() {
+        inGroup(1L, 7L, false);
+        like(1L);
+
+        // A like is below the minimum score after seven half-lives
+        now += HALF_LIFE.multipliedBy(7).toMillis();
+        assertEquals(0, trendingService.checkpoint());
+
+        assertTrue(trendingService.getTopPostIds(null, 10).isEmpty());
+        assertTrue(trendingService.getTopPostIds(7L, 10).isEmpty());
+    }
+
+    @Test
+    void restore_shouldReloadDecayedScores() throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getObject("group_id", Long.class)).thenReturn(null, 7L);
+        when(resultSet.getLong("post_id")).thenReturn(1L, 2L);
+        when(resultSet.getDouble("score")).thenReturn(4.0, 2.0);
+        when(resultSet.getTimestamp("scored_at")).thenReturn(
+                new Timestamp(now - HALF_LIFE.multipliedBy(3).toMillis()), new Timestamp(now));
+        when(jdbcTemplate.query(startsWith("SELECT group_id"), any(RowMapper.class))).thenAnswer(invocation -> {
+            RowMapper<?> mapper = invocation.getArgument(1);
+            return List.of(mapper.mapRow(resultSet, 0), mapper.mapRow(resultSet, 1));
+        });
+        inGroup(3L, null, false);
+
+        trendingService.restore();
+        like(3L);
+        like(3L);
+
+        // Post 1 is down to half a like, post 3 was liked twice now
+        assertEquals(List.of(3L, 1L), trendingService.getTopPostIds(null, 10));
+        assertEquals(List.of(2L), trendingService.getTopPostIds(7L, 10));
+    }
+
+    private void like(Long postId) {
+        trendingService.onPostLiked(new PostLikedEvent(postId, 9L, 5L, true));
+    }
+
+    private void inGroup(Long postId, Long groupId, boolean privateGroup) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("groupId", groupId);
+        row.put("privateGroup", groupId == null ? null : privateGroup);
+
+        when(postRepository.findGroup(postId)).thenReturn(Optional.of(
+                new SpelAwareProxyProjectionFactory().createProjection(PostGroupView.class, row)));
+    }
+}
@@ -1,17 +1,17 @@
 package com.facebook.service;
 
 import com.facebook.dto.AchievementResponseDto;
+import com.facebook.enums.Achievements;
 import com.facebook.model.Achievement;
 import com.facebook.model.User;
-import com.facebook.model.UserAchievement;
 import com.facebook.repository.AchievementRepository;
 import com.facebook.repository.UserAchievementRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.modelmapper.ModelMapper;
 
+import java.time.Duration;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -20,7 +20,6 @@ class UserAchievementServiceTest {
 
     private UserAchievementRepository userAchievementRepository;
     private AchievementRepository achievementRepository;
-    private ModelMapper modelMapper;
 
     private UserAchievementService service;
 
@@ -30,119 +29,106 @@ class UserAchievementServiceTest {
     void setUp() {
         userAchievementRepository = mock(UserAchievementRepository.class);
         achievementRepository = mock(AchievementRepository.class);
-        modelMapper = new ModelMapper();
 
-        service = new UserAchievementService(userAchievementRepository, achievementRepository, modelMapper);
+        Achievement signedIn = new Achievement("Sweet & Signed In", "First login", false);
+        signedIn.setId(1L);
+        Achievement pinkProfile = new Achievement("Pink Profile", "Completed your profile + added avatar", false);
+        pinkProfile.setId(2L);
+        Achievement unknown = new Achievement("Retired", "No longer awarded", false);
+        unknown.setId(99L);
+        when(achievementRepository.findAll()).thenReturn(List.of(signedIn, pinkProfile, unknown));
+
+        AchievementCatalog catalog = new AchievementCatalog(achievementRepository, new ModelMapper());
+        catalog.load();
+
+        service = new UserAchievementService(userAchievementRepository, catalog, 100, Duration.ofHours(1));
 
         user = new User();
         user.setId(1L);
     }
 
     @Test
-    void awardAchievement_shouldSaveIfNotAlreadyAwarded() {
-        Achievement achievement = new Achievement();
-        achievement.setId(1L);
-        achievement.setName("First Login");
+    void awardAchievement_shouldInsertIfNotAlreadyAwarded() {
+        when(userAchievementRepository.insertIfAbsent(1L, 1L)).thenReturn(1);
 
-        when(achievementRepository.findByName("First Login")).thenReturn(Optional.of(achievement));
-        when(userAchievementRepository.findByUserAndAchievement(user, achievement)).thenReturn(Optional.empty());
+        assertTrue(service.awardAchievement(1L, Achievements.SWEET_SIGNED_IN));
 
-        service.awardAchievement(user, "First Login");
-
-        verify(userAchievementRepository).save(any(UserAchievement.class));
+        verify(userAchievementRepository).insertIfAbsent(1L, 1L);
+        verify(achievementRepository, never()).findByName(any());
     }
 
     @Test
-    void awardAchievement_shouldNotSaveIfAlreadyAwarded() {
-        Achievement achievement = new Achievement();
-        achievement.setId(1L);
-        achievement.setName("First Login");
+    void awardAchievement_shouldNotInsertIfAlreadyAwarded() {
+        when(userAchievementRepository.findAchievementIdsByUserId(1L)).thenReturn(List.of(1L));
 
-        UserAchievement ua = new UserAchievement();
-        ua.setUser(user);
-        ua.setAchievement(achievement);
+        assertFalse(service.awardAchievement(1L, Achievements.SWEET_SIGNED_IN));
 
-        when(achievementRepository.findByName("First Login")).thenReturn(Optional.of(achievement));
-        when(userAchievementRepository.findByUserAndAchievement(user, achievement)).thenReturn(Optional.of(ua));
+        verify(userAchievementRepository, never()).insertIfAbsent(any(), any());
+    }
 
-        service.awardAchievement(user, "First Login");
+    @Test
+    void awardAchievement_shouldReportRepeatedAward_whenInsertIgnored() {
+        when(userAchievementRepository.insertIfAbsent(1L, 1L)).thenReturn(0);
 
-        verify(userAchievementRepository, never()).save(any(UserAchievement.class));
+        assertFalse(service.awardAchievement(1L, Achievements.SWEET_SIGNED_IN));
     }
 
     @Test
-    void awardAchievement_shouldThrowException_whenAchievementNotFound() {
-        when(achievementRepository.findByName("Unknown")).thenReturn(Optional.empty());
-
+    void awardAchievement_shouldThrowException_whenAchievementNotInCatalog() {
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
-                () -> service.awardAchievement(user, "Unknown"));
+                () -> service.awardAchievement(1L, Achievements.GOLDEN_BUZZ));
 
-        assertEquals("Unknown achievement name: Unknown", ex.getMessage());
+        assertEquals("Unknown achievement name: Golden Buzz", ex.getMessage());
     }
 
     @Test
     void getAllAchievementsOfUser_shouldReturnListOfAchievementDtos() {
-        Achievement achievement1 = new Achievement("Sweet & Signed In","First Login", false);
-        achievement1.setId(1L);
-        Achievement achievement2 = new Achievement("Pink Profile", "Completed your profile + added avatar", false);
-        achievement2.setId(2L);
-
-        UserAchievement ua1 = new UserAchievement();
-        ua1.setAchievement(achievement1);
-        ua1.setUser(user);
-
-        UserAchievement ua2 = new UserAchievement();
-        ua2.setAchievement(achievement2);
-        ua2.setUser(user);
-
-        when(userAchievementRepository.findAllByUser(user)).thenReturn(Optional.of(List.of(ua1, ua2)));
-        when(achievementRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(achievement1, achievement2));
+        when(userAchievementRepository.findAchievementIdsByUserId(1L)).thenReturn(List.of(2L, 1L, 99L));
 
         List<AchievementResponseDto> dtos = service.getAllAchievementsOfUser(user);
 
         assertEquals(2, dtos.size());
         assertEquals("Sweet & Signed In", dtos.get(0).getName());
         assertEquals("Pink Profile", dtos.get(1).getName());
+        assertEquals("Completed your profile + added avatar", dtos.get(1).getDescription());
     }
 
     @Test
     void getAllAchievementsOfUser_shouldReturnEmptyList_whenUserHasNoAchievements() {
-        when(userAchievementRepository.findAllByUser(user)).thenReturn(Optional.of(List.of()));
+        when(userAchievementRepository.findAchievementIdsByUserId(1L)).thenReturn(List.of());
 
         List<AchievementResponseDto> dtos = service.getAllAchievementsOfUser(user);
 
         assertTrue(dtos.isEmpty());
-        verify(achievementRepository).findAllById(List.of());
     }
 
     @Test
     void userHaveAchievement_shouldReturnTrue_whenAchievementExists() {
-        Achievement achievement = new Achievement("Pink Profile", "Completed your profile", false);
-        achievement.setId(1L);
+        when(userAchievementRepository.findAchievementIdsByUserId(1L)).thenReturn(List.of(2L));
 
-        when(userAchievementRepository.findAllByUser(user)).thenReturn(
-                Optional.of(List.of(new UserAchievement(user, achievement)))
-        );
-        when(achievementRepository.findAllById(List.of(1L))).thenReturn(List.of(achievement));
+        assertTrue(service.userHaveAchievement(1L, Achievements.PINK_PROFILE));
+    }
 
-        boolean hasAchievement = service.userHaveAchievement(user, "Pink Profile");
+    @Test
+    void userHaveAchievement_shouldReturnFalse_whenAchievementNotExists() {
+        when(userAchievementRepository.findAchievementIdsByUserId(1L)).thenReturn(List.of(1L));
 
-        assertTrue(hasAchievement);
+        assertFalse(service.userHaveAchievement(1L, Achievements.PINK_PROFILE));
     }
 
     @Test
-    void userHaveAchievement_shouldReturnFalse_whenAchievementNotExists() {
-        Achievement achievement = new Achievement("Other Achievement", "Desc", false);
-        achievement.setId(2L);
+    void userHaveAchievement_shouldQueryOnce_untilAwarded() {
+        when(userAchievementRepository.findAchievementIdsByUserId(1L)).thenReturn(List.of(1L), List.of(1L, 2L));
+        when(userAchievementRepository.insertIfAbsent(1L, 2L)).thenReturn(1);
 
-        when(userAchievementRepository.findAllByUser(user)).thenReturn(
-                Optional.of(List.of(new UserAchievement(user, achievement)))
-        );
-        when(achievementRepository.findAllById(List.of(2L))).thenReturn(List.of(achievement));
+        assertTrue(service.userHaveAchievement(1L, Achievements.SWEET_SIGNED_IN));
+        assertFalse(service.userHaveAchievement(1L, Achievements.PINK_PROFILE));
+        service.getAllAchievementsOfUser(user);
+        verify(userAchievementRepository, times(1)).findAchievementIdsByUserId(1L);
 
-        boolean hasAchievement = service.userHaveAchievement(user, "Pink Profile");
+        service.awardAchievement(1L, Achievements.PINK_PROFILE);
 
-        assertFalse(hasAchievement);
+        assertTrue(service.userHaveAchievement(1L, Achievements.PINK_PROFILE));
+        verify(userAchievementRepository, times(2)).findAchievementIdsByUserId(1L);
     }
-
 }
@@ -1,31 +1,35 @@
 package com.facebook.service;
 
+import com.facebook.dto.PageResponseDto;
 import com.facebook.dto.UserDetailsDto;
 import com.facebook.dto.UserShortDto;
 import com.facebook.dto.UserUpdateRequestDto;
-import com.facebook.enums.FriendStatus;
 import com.facebook.enums.Gender;
+import com.facebook.enums.PageCount;
 import com.facebook.enums.Provider;
+import com.facebook.event.ProfileUpdatedEvent;
 import com.facebook.exception.NotFoundException;
 import com.facebook.model.User;
-import com.facebook.repository.FriendRepository;
 import com.facebook.repository.UserRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
 import java.sql.Date;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,13 +42,19 @@ public class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private FriendRepository friendRepository;
+    private FriendService friendService;
+
+    @Spy
+    private FriendGraph friendGraph = new FriendGraph(null);
 
     @Mock
     private ModelMapper modelMapper;
 
     @Mock
-    private UserAchievementService userAchievementService;
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ApproximateCountService approximateCountService;
 
     @InjectMocks
     private UserService userService;
@@ -121,6 +131,7 @@ public class UserServiceTest {
         UserDetailsDto updatedUser = userService.updateUser(1L, userUpdateRequestDto);
 
         verify(userRepository, times(1)).save(user);
+        verify(eventPublisher).publishEvent(any(ProfileUpdatedEvent.class));
 
         assertNotNull(updatedUser);
         assertEquals(userUpdateRequestDto.getFirstName(), updatedUser.getFirstName());
@@ -144,8 +155,6 @@ public class UserServiceTest {
     void testGetCurrentUserDetails() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         when(modelMapper.map(user, UserDetailsDto.class)).thenReturn(userCurrentDetailsDto);
-        when(friendRepository.findByStatusAndUserId(FriendStatus.ACCEPTED, 1L)).thenReturn(new ArrayList<>());
-        when(friendRepository.findByStatusAndFriendId(FriendStatus.PENDING, 1L)).thenReturn(new ArrayList<>());
 
         UserDetailsDto foundUser = userService.getCurrentUserDetails(1L);
 
@@ -198,15 +207,22 @@ public class UserServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         when(userRepository.findById(2L)).thenReturn(Optional.of(otherUser));
-        when(friendRepository.findByStatusAndUserId(FriendStatus.ACCEPTED, 1L)).thenReturn(new ArrayList<>());
-        when(friendRepository.findByStatusAndUserId(FriendStatus.ACCEPTED, 2L)).thenReturn(new ArrayList<>());
-        when(friendRepository.findByStatusAndFriendId(FriendStatus.PENDING, 2L)).thenReturn(new ArrayList<>());
+        // The users share friend 3, friend 4 is only the other user's
+        friendGraph.link(2L, 3L);
+        friendGraph.link(2L, 4L);
+        friendGraph.link(1L, 3L);
+        UserShortDto mutualFriend = new UserShortDto(3L, "Mutual", "Friend", null, null);
+        UserShortDto otherFriend = new UserShortDto(4L, "Other", "Friend", null, null);
+        when(friendService.getUsers(new long[]{3L, 4L})).thenReturn(List.of(mutualFriend, otherFriend));
 
         when(modelMapper.map(otherUser, UserDetailsDto.class)).thenReturn(userDetailsDto);
 
         UserDetailsDto foundUser = userService.getUserDetails(2L, 1L);
 
         assertNotNull(foundUser);
+        assertEquals(List.of(mutualFriend), foundUser.getMutualFriends());
+        assertEquals(List.of(otherFriend), foundUser.getFriends());
+        assertEquals(1, foundUser.getMutualFriendsCount());
         assertEquals(otherUser.getId(), foundUser.getId());
         assertEquals(otherUser.getEmail(), foundUser.getEmail());
         assertEquals(otherUser.getFirstName(), foundUser.getFirstName());
@@ -219,6 +235,81 @@ public class UserServiceTest {
         assertEquals(otherUser.getCurrentCity(), foundUser.getCurrentCity());
     }
 
+    @Test
+    void testGetUserDetails_shouldLoadOnlyTheFirstPagesOfFriends() {
+        User otherUser = new User();
+        otherUser.setId(2L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(otherUser));
+        when(modelMapper.map(otherUser, UserDetailsDto.class)).thenReturn(new UserDetailsDto());
+        // Friends 100-129 are mutual, 200-229 are only the other user's
+        for (long friendId = 100; friendId < 130; friendId++) {
+            friendGraph.link(1L, friendId);
+            friendGraph.link(2L, friendId);
+            friendGraph.link(2L, friendId + 100);
+        }
+        when(friendService.getUsers(any(long[].class))).thenReturn(List.of());
+
+        UserDetailsDto foundUser = userService.getUserDetails(2L, 1L);
+
+        ArgumentCaptor<long[]> loadedIds = ArgumentCaptor.forClass(long[].class);
+        verify(friendService).getUsers(loadedIds.capture());
+        assertEquals(40, loadedIds.getValue().length);
+        assertEquals(100L, loadedIds.getValue()[0]);
+        assertEquals(200L, loadedIds.getValue()[20]);
+        assertEquals(30, foundUser.getMutualFriendsCount());
+        assertEquals(30, foundUser.getFriendsCount());
+    }
+
+    @Test
+    void testGetMutualFriends_shouldLoadOnlyTheRequestedPage() {
+        for (long friendId = 10; friendId < 15; friendId++) {
+            friendGraph.link(1L, friendId);
+            friendGraph.link(2L, friendId);
+        }
+        friendGraph.link(2L, 20L);
+        UserShortDto mutualFriend = new UserShortDto(12L, "Mutual", "Friend", null, null);
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(friendService.getUsers(new long[]{12L, 13L})).thenReturn(List.of(mutualFriend));
+
+        PageResponseDto<UserShortDto> result = userService.getMutualFriends(2L, 1L, 1, 2);
+
+        assertEquals(List.of(mutualFriend), result.getContent());
+        assertEquals(5, result.getTotalElements());
+        assertEquals(3, result.getTotalPages());
+    }
+
+    @Test
+    void testGetOtherFriends_shouldPageFriendsNotShared() {
+        friendGraph.link(1L, 10L);
+        friendGraph.link(2L, 10L);
+        for (long friendId = 20; friendId < 25; friendId++) {
+            friendGraph.link(2L, friendId);
+        }
+        UserShortDto otherFriend = new UserShortDto(22L, "Other", "Friend", null, null);
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(friendService.getUsers(new long[]{22L, 23L})).thenReturn(List.of(otherFriend));
+
+        PageResponseDto<UserShortDto> result = userService.getOtherFriends(2L, 1L, 1, 2);
+
+        assertEquals(List.of(otherFriend), result.getContent());
+        assertEquals(5, result.getTotalElements());
+    }
+
+    @Test
+    void testGetOtherFriendsNotFound() {
+        when(userRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> userService.getOtherFriends(2L, 1L, 0, 10));
+    }
+
+    @Test
+    void testGetMutualFriendsNotFound() {
+        when(userRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> userService.getMutualFriends(2L, 1L, 0, 10));
+    }
+
     @Test
     void testGetUserDetailsNotFound() {
         when(userRepository.findById(1L)).thenReturn(Optional.empty());
@@ -289,6 +380,30 @@ public class UserServiceTest {
         verify(modelMapper, times(1)).map(user2, UserShortDto.class);
     }
 
+    @Test
+    void getAllUsersExceptCurrent_withApproximateCount_skipsExactCount() {
+        long currentUserId = 1L;
+        Pageable pageable = PageRequest.of(0, 1);
+
+        User user1 = new User();
+        user1.setId(2L);
+        UserShortDto dto1 = new UserShortDto(user1.getId(), "Alice", "Smith", null, null);
+
+        when(userRepository.findSliceByIdNotOrderByCreatedDateDesc(currentUserId, pageable))
+                .thenReturn(new SliceImpl<>(List.of(user1), pageable, true));
+        when(modelMapper.map(user1, UserShortDto.class)).thenReturn(dto1);
+        when(approximateCountService.getCount(eq("users"), any())).thenReturn(4L);
+
+        PageResponseDto<UserShortDto> result =
+                userService.getAllUsersExceptCurrent(currentUserId, 0, 1, PageCount.APPROXIMATE);
+
+        assertEquals(List.of(dto1), result.getContent());
+        assertFalse(result.isLast());
+        assertTrue(result.isApproximate());
+        assertEquals(3, result.getTotalElements());
+        verify(userRepository, never()).findAllByIdNotOrderByCreatedDateDesc(anyLong(), any());
+    }
+
     @Test
     void searchUsersByFullName_returnsMappedDtoList_singleWord() {
         String fullName = "First";